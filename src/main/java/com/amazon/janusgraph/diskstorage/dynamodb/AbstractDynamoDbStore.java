@@ -14,12 +14,18 @@
  */
 package com.amazon.janusgraph.diskstorage.dynamodb;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
 import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
@@ -28,25 +34,33 @@ import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.CheckpointingScanner;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.DeferredScanner;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.OrderedParallelScanner;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ParallelScanner;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ScanBackedKeyIterator;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ScanCheckpoint;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ScanContextInterpreter;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.Scanner;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.SequentialScanner;
+import com.amazon.janusgraph.diskstorage.dynamodb.mutation.MutateWorker;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang3.tuple.Pair;
 import org.janusgraph.diskstorage.BackendException;
 import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryMetaData;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.keycolumnvalue.KCVMutation;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyRangeQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.KeySliceQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
 import org.janusgraph.diskstorage.locking.TemporaryLockingException;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
-import com.google.common.util.concurrent.ExecutionError;
-import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -59,6 +73,7 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public abstract class AbstractDynamoDbStore implements AwsStore {
+    private static final String SCAN_CHECKPOINT_SUFFIX = ".scan-checkpoint";
     protected final Client client;
     @Getter
     private final String tableName;
@@ -66,20 +81,21 @@ public abstract class AbstractDynamoDbStore implements AwsStore {
     @Getter
     private final String name;
     private final boolean forceConsistentRead;
+    private final boolean enableTtl;
     /**
-     * The key column local lock cache maps key-column pairs to the DynamoDbStoreTransaction that first
+     * The TTL (in seconds) of every item written to this store, or 0 if only cell TTLs apply.
+     */
+    @Getter(AccessLevel.PROTECTED)
+    private final int storeTtlSeconds;
+    /**
+     * The directory of the keys of this store, or null if the store does not maintain one.
+     */
+    private final KeyDirectory keyDirectory;
+    /**
+     * The key column local lock table maps key-column pairs to the DynamoDbStoreTransaction that first
      * acquired a lock on those key-column pairs.
      */
-    private final Cache<Pair<StaticBuffer, StaticBuffer>, DynamoDbStoreTransaction> keyColumnLocalLocks;
-
-    private enum ReportingRemovalListener implements RemovalListener<Pair<StaticBuffer, StaticBuffer>, DynamoDbStoreTransaction> {
-        INSTANCE;
-
-        @Override
-        public void onRemoval(final RemovalNotification<Pair<StaticBuffer, StaticBuffer>, DynamoDbStoreTransaction> notice) {
-            log.trace("Expiring {} in tx {} because of {}", notice.getKey().toString(), notice.getValue().toString(), notice.getCause());
-        }
-    }
+    private final LocalLockTable keyColumnLocalLocks;
 
     protected void mutateOneKey(final StaticBuffer key, final KCVMutation mutation, final StoreTransaction txh) throws BackendException {
         manager.mutateMany(Collections.singletonMap(name, Collections.singletonMap(key, mutation)), txh);
@@ -116,17 +132,133 @@ public abstract class AbstractDynamoDbStore implements AwsStore {
                 .withLimit(client.scanLimit(tableName))
                 .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
     }
+
+    /**
+     * Creates the scanner for a full scan of the table. When scan checkpoints are enabled, a scan resumes from the
+     * checkpoint that an earlier, incomplete scan of the table with the same checkpoint name, filter and slice left
+     * behind, and records its own progress.
+     * @param scanRequest a fresh ScanRequest for this table
+     * @param query the slice the keys of the scan are read with
+     * @return a sequential, parallel or ordered parallel scanner, depending on the configuration
+     * @throws BackendException if the parallel scan could not be set up
+     */
+    protected Scanner createScanner(final ScanRequest scanRequest, final SliceQuery query) throws BackendException {
+        final DynamoDbDelegate delegate = client.getDelegate();
+        final boolean parallel = client.isSegmentedScan();
+        final int orderedSegments = client.getOrderedParallelScanSegments();
+        final Optional<Path> checkpointDirectory = client.getScanCheckpointDirectory();
+        if (!checkpointDirectory.isPresent()) {
+            if (orderedSegments > 0) {
+                return new OrderedParallelScanner(delegate, scanRequest, orderedSegments, delegate.getScanWorkers(), Optional.empty());
+            }
+            if (parallel) {
+                return delegate.getParallelScanCompletionService(scanRequest);
+            }
+            return new SequentialScanner(delegate, scanRequest);
+        }
+
+        final Path file = checkpointDirectory.get().resolve(client.getScanCheckpointName() + "." + tableName + SCAN_CHECKPOINT_SUFFIX);
+        final String filter = describeFilter(scanRequest);
+        final String slice = encodeForLog(query);
+        final Optional<ScanCheckpoint> previous = ScanCheckpoint.load(file)
+            .filter(checkpoint -> tableName.equals(checkpoint.getTableName()) && checkpoint.isParallel() == parallel && !checkpoint.isComplete())
+            .filter(checkpoint -> orderedSegments == 0 || checkpoint.getTotalSegments() == orderedSegments)
+            .filter(checkpoint -> {
+                final boolean sameRequest = filter.equals(checkpoint.getFilter()) && slice.equals(checkpoint.getSlice());
+                if (!sameRequest) {
+                    log.info("Not resuming scan of {} from {}, which was saved by a scan with a different filter or slice", tableName, file);
+                }
+                return sameRequest;
+            });
+        previous.ifPresent(checkpoint -> log.info("Resuming scan of {} from {} after {} items", tableName, file, checkpoint.getTotalItemsEmitted()));
+
+        final Scanner scanner;
+        final ScanCheckpoint checkpoint;
+        if (orderedSegments > 0) {
+            scanner = new OrderedParallelScanner(delegate, scanRequest, orderedSegments, delegate.getScanWorkers(), previous);
+            checkpoint = previous.orElseGet(() -> new ScanCheckpoint(tableName, filter, slice, true /*parallel*/, orderedSegments));
+        } else if (parallel) {
+            final ParallelScanner parallelScanner = delegate.getParallelScanCompletionService(scanRequest, previous);
+            checkpoint = previous.orElseGet(() -> new ScanCheckpoint(tableName, filter, slice, true /*parallel*/, parallelScanner.getTotalSegments()));
+            scanner = parallelScanner;
+        } else {
+            checkpoint = previous.orElseGet(() -> new ScanCheckpoint(tableName, filter, slice, false /*parallel*/, 1 /*totalSegments*/));
+            scanner = new SequentialScanner(delegate, scanRequest, checkpoint.getExclusiveStartKey(0));
+        }
+        return new CheckpointingScanner(scanner, checkpoint, file, client.getScanCheckpointIntervalMillis());
+    }
+
+    /**
+     * @param scanRequest a scan request
+     * @return the filter expression of the request and the values it refers to, in a stable order
+     */
+    private static String describeFilter(final ScanRequest scanRequest) {
+        if (scanRequest.getFilterExpression() == null) {
+            return "";
+        }
+        final Map<String, AttributeValue> values = new TreeMap<>();
+        if (scanRequest.getExpressionAttributeValues() != null) {
+            values.putAll(scanRequest.getExpressionAttributeValues());
+        }
+        return scanRequest.getFilterExpression() + " " + values;
+    }
+
+    /**
+     * Creates one key iterator per segment of a parallel scan of the table. Segments are not checkpointed,
+     * and each segment starts scanning when it is first iterated.
+     * @param scanRequest a fresh ScanRequest for this table
+     * @param interpreter the interpreter shared by all the segments
+     * @return the key iterators of the segments
+     * @throws BackendException if the number of segments could not be determined
+     */
+    protected List<KeyIterator> createSegmentKeyIterators(final ScanRequest scanRequest, final ScanContextInterpreter interpreter) throws BackendException {
+        final DynamoDbDelegate delegate = client.getDelegate();
+        final int segments = delegate.getParallelScanSegments(tableName);
+        final List<KeyIterator> iterators = new ArrayList<>(segments);
+        for (int segment = 0; segment < segments; segment++) {
+            final ScanRequest segmentRequest = DynamoDbDelegate.copyScanRequest(scanRequest).withTotalSegments(segments).withSegment(segment);
+            iterators.add(new ScanBackedKeyIterator(new DeferredScanner(() -> new SequentialScanner(delegate, segmentRequest)), interpreter));
+        }
+        return iterators;
+    }
+
     AbstractDynamoDbStore(final DynamoDBStoreManager manager, final String prefix, final String storeName) {
         this.manager = manager;
         this.client = this.manager.getClient();
         this.name = storeName;
         this.tableName = prefix + "_" + storeName;
         this.forceConsistentRead = client.isForceConsistentRead();
+        this.enableTtl = client.isEnableTtl();
+        this.storeTtlSeconds = manager.getStoreTtlSeconds(storeName);
+        final int keyDirectoryBuckets = client.keyDirectoryBuckets(storeName);
+        if (keyDirectoryBuckets > 0) {
+            this.keyDirectory = new KeyDirectory(manager, prefix, storeName, keyDirectoryBuckets);
+        } else {
+            this.keyDirectory = null;
+        }
 
-        final CacheBuilder<Pair<StaticBuffer, StaticBuffer>, DynamoDbStoreTransaction> builder = CacheBuilder.newBuilder().concurrencyLevel(client.getDelegate().getMaxConcurrentUsers())
-            .expireAfterWrite(manager.getLockExpiresDuration().toMillis(), TimeUnit.MILLISECONDS)
-            .removalListener(ReportingRemovalListener.INSTANCE);
-        this.keyColumnLocalLocks = builder.build();
+        this.keyColumnLocalLocks = new LocalLockTable(client.getDelegate(), tableName, manager.getLockExpiresDuration(),
+            manager.getScheduler());
+    }
+
+    /**
+     * Computes the expiry of an item that is being written to this store. The TTL of the entry takes precedence
+     * over the TTL of the store.
+     * @param entry the entry that is being written, or null if the TTL of the store applies
+     * @return the expiry time of the item in seconds since the epoch, 0 if the item does not expire, or null if TTL is disabled
+     */
+    protected Long getExpiry(final Entry entry) {
+        if (!enableTtl) {
+            return null;
+        }
+        int ttlSeconds = storeTtlSeconds;
+        if (entry != null && entry.hasMetaData() && entry.getMetaData().containsKey(EntryMetaData.TTL)) {
+            ttlSeconds = (Integer) entry.getMetaData().get(EntryMetaData.TTL);
+        }
+        if (ttlSeconds <= 0) {
+            return 0L;
+        }
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + ttlSeconds;
     }
 
     /**
@@ -135,6 +267,15 @@ public abstract class AbstractDynamoDbStore implements AwsStore {
      * @return a create table request appropriate for the schema of the selected implementation.
      */
     public CreateTableRequest getTableSchema() {
+        return createBaseTableSchema(client, tableName);
+    }
+
+    /**
+     * @param client the client of the store
+     * @param tableName the table of the store
+     * @return a create table request with the name and the initial capacity of the table, but no keys
+     */
+    static CreateTableRequest createBaseTableSchema(final Client client, final String tableName) {
         return new CreateTableRequest()
                 .withTableName(tableName)
                 .withProvisionedThroughput(new ProvisionedThroughput(client.readCapacity(tableName),
@@ -145,6 +286,12 @@ public abstract class AbstractDynamoDbStore implements AwsStore {
     public final void ensureStore() throws BackendException {
         log.debug("Entering ensureStore table:{}", tableName);
         client.getDelegate().createTableAndWaitForActive(getTableSchema());
+        if (enableTtl) {
+            client.getDelegate().enableTimeToLive(tableName, Constants.JANUSGRAPH_EXPIRY);
+        }
+        if (keyDirectory != null) {
+            keyDirectory.ensureStore();
+        }
     }
 
     @Override
@@ -153,21 +300,49 @@ public abstract class AbstractDynamoDbStore implements AwsStore {
         client.getDelegate().deleteTable(getTableSchema().getTableName());
         //block until the tables are actually deleted
         client.getDelegate().ensureTableDeleted(getTableSchema().getTableName());
+        if (keyDirectory != null) {
+            keyDirectory.deleteStore();
+        }
+        invalidateCaches();
+    }
+
+    /**
+     * Called after the table of this store was deleted. Stores that cache items should empty their caches.
+     */
+    protected void invalidateCaches() {
+        // nothing is cached by default
     }
 
     @Override
-    public void acquireLock(final StaticBuffer key, final StaticBuffer column, final StaticBuffer expectedValue, final StoreTransaction txh) throws BackendException {
-        final DynamoDbStoreTransaction tx = DynamoDbStoreTransaction.getTx(txh);
-        final Pair<StaticBuffer, StaticBuffer> keyColumn = Pair.of(key, column);
+    public KeyIterator getKeys(final KeyRangeQuery query, final StoreTransaction txh) throws BackendException {
+        if (keyDirectory == null) {
+            throw new UnsupportedOperationException("Keys are not byte ordered. Set key-directory-buckets to support key ranges.");
+        }
+        log.debug("Entering getKeys table:{} keyrange:[{} -> {}] txh:{}", tableName, encodeKeyForLog(query.getKeyStart()),
+            encodeKeyForLog(query.getKeyEnd()), txh);
+        return keyDirectory.getKeys(query, this, txh);
+    }
 
-        final DynamoDbStoreTransaction existing;
-        try {
-            existing = keyColumnLocalLocks.get(keyColumn, () -> tx);
-        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
-            throw new TemporaryLockingException("Unable to acquire lock", e);
+    /**
+     * Creates the workers that add the keys that get new columns to the key directory of this store, if it has one.
+     * @param mutationMap the mutations of this store
+     * @param txh the transaction
+     * @return the workers that update the key directory
+     */
+    protected Collection<MutateWorker> createKeyDirectoryMutationWorkers(final Map<StaticBuffer, KCVMutation> mutationMap, final DynamoDbStoreTransaction txh) {
+        if (keyDirectory == null) {
+            return Collections.emptyList();
         }
-        if (null != existing && tx != existing) {
-            throw new TemporaryLockingException(String.format("tx %s already locked key-column %s when tx %s tried to lock", existing.toString(), keyColumn.toString(), tx.toString()));
+        return keyDirectory.createMutationWorkers(mutationMap, txh);
+    }
+
+    @Override
+    public void acquireLock(final StaticBuffer key, final StaticBuffer column, final StaticBuffer expectedValue, final StoreTransaction txh) throws BackendException {
+        final DynamoDbStoreTransaction tx = DynamoDbStoreTransaction.getTx(txh);
+        final DynamoDbStoreTransaction existing = keyColumnLocalLocks.lock(key, column, tx);
+        if (tx != existing) {
+            throw new TemporaryLockingException(String.format("tx %s already locked key-column %s when tx %s tried to lock", existing.toString(),
+                Pair.of(key, column).toString(), tx.toString()));
         }
 
         // Titan's locking expects that only the first expectedValue for a given key/column should be used
@@ -177,6 +352,7 @@ public abstract class AbstractDynamoDbStore implements AwsStore {
     @Override
     public void close() throws BackendException {
         log.debug("Closing table:{}", tableName);
+        keyColumnLocalLocks.close();
     }
 
     String encodeKeyForLog(final StaticBuffer key) {
@@ -236,6 +412,6 @@ public abstract class AbstractDynamoDbStore implements AwsStore {
     }
 
     void releaseLock(final StaticBuffer key, final StaticBuffer column) {
-        keyColumnLocalLocks.invalidate(Pair.of(key, column));
+        keyColumnLocalLocks.release(key, column);
     }
 }
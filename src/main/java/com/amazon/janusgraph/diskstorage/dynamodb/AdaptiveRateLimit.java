@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Adjusts the rate of a rate limiter to the throughput that DynamoDB accepts, instead of a fixed capacity: the rate
+ * is raised additively every second in which callers waited for the limiter, and halved when DynamoDB throttles a
+ * request. The configured rate of a store is the rate the limiter starts at. This suits tables whose throughput is
+ * not provisioned, like on-demand tables, and tables whose capacity is managed outside of the graph.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+class AdaptiveRateLimit {
+    private static final double MIN_RATE = 1.0;
+    private static final double DECREASE_FACTOR = 0.5;
+    /**
+     * The fraction of the starting rate that the rate is raised by every second in which callers waited.
+     */
+    private static final double INCREASE_FRACTION = 0.1;
+    private static final long ADJUSTMENT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RateLimiter limiter;
+    private final double increment;
+    private long lastAdjustmentNanos;
+
+    /**
+     * @param limiter the rate limiter to adjust, at its starting rate
+     */
+    AdaptiveRateLimit(final RateLimiter limiter) {
+        this.limiter = limiter;
+        this.increment = Math.max(MIN_RATE, limiter.getRate() * INCREASE_FRACTION);
+        // the first throttled request lowers the rate right away
+        this.lastAdjustmentNanos = System.nanoTime() - ADJUSTMENT_INTERVAL_NANOS;
+    }
+
+    /**
+     * @param permits the permits to acquire
+     */
+    void acquire(final int permits) {
+        final double waitedSeconds = limiter.acquire(permits);
+        if (waitedSeconds > 0) {
+            increase();
+        }
+    }
+
+    private synchronized void increase() {
+        final long now = System.nanoTime();
+        if (now - lastAdjustmentNanos >= ADJUSTMENT_INTERVAL_NANOS) {
+            limiter.setRate(limiter.getRate() + increment);
+            lastAdjustmentNanos = now;
+        }
+    }
+
+    /**
+     * Halves the rate, at most once per second, so that the requests that were throttled together lower it once.
+     */
+    synchronized void onThrottled() {
+        final long now = System.nanoTime();
+        if (now - lastAdjustmentNanos >= ADJUSTMENT_INTERVAL_NANOS) {
+            limiter.setRate(Math.max(MIN_RATE, limiter.getRate() * DECREASE_FACTOR));
+            lastAdjustmentNanos = now;
+        }
+    }
+
+    double getRate() {
+        return limiter.getRate();
+    }
+}
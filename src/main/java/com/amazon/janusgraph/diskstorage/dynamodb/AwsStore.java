@@ -15,12 +15,16 @@
 package com.amazon.janusgraph.diskstorage.dynamodb;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.janusgraph.diskstorage.BackendException;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.keycolumnvalue.KCVMutation;
 import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
 
 import com.amazon.janusgraph.diskstorage.dynamodb.mutation.MutateWorker;
 
@@ -63,4 +67,15 @@ public interface AwsStore extends KeyColumnValueStore {
     Collection<MutateWorker> createMutationWorkers(Map<StaticBuffer, KCVMutation> mutationMap,
                                                    DynamoDbStoreTransaction txh);
 
+    /**
+     * Splits a full scan of the store into the segments of a parallel scan. Each segment is an independent
+     * KeyIterator that can be consumed on its own thread, and together the segments return the same keys as
+     * getKeys(query, txh). A segment does not issue any requests until it is first iterated.
+     * @param query the slice of columns to return for each key
+     * @param txh the transaction
+     * @return one key iterator per scan segment
+     * @throws BackendException if the number of segments could not be determined
+     */
+    List<KeyIterator> getKeySegments(SliceQuery query, StoreTransaction txh) throws BackendException;
+
 }
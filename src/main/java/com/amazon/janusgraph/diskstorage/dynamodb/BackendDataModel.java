@@ -14,6 +14,8 @@
  */
 package com.amazon.janusgraph.diskstorage.dynamodb;
 
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
@@ -30,12 +32,22 @@ public enum BackendDataModel {
         public AwsStore createStoreBackend(final DynamoDBStoreManager manager, final String prefix, final String name) {
             return new DynamoDbSingleRowStore(manager, prefix, name);
         }
+
+        @Override
+        public CreateTableRequest createTableSchema(final Client client, final String tableName) {
+            return DynamoDbSingleRowStore.createTableSchema(client, tableName);
+        }
     },
     MULTI("Multiple") {
         @Override
         public AwsStore createStoreBackend(final DynamoDBStoreManager manager, final String prefix, final String name) {
             return new DynamoDbStore(manager, prefix, name);
         }
+
+        @Override
+        public CreateTableRequest createTableSchema(final Client client, final String tableName) {
+            return DynamoDbStore.createTableSchema(client, tableName);
+        }
     };
 
     @Getter
@@ -43,4 +55,12 @@ public enum BackendDataModel {
 
     public abstract AwsStore createStoreBackend(DynamoDBStoreManager manager, String prefix, String name);
 
+    /**
+     * Builds the schema of the table of a store without creating the store.
+     * @param client the client of the store
+     * @param tableName the table of the store
+     * @return the create table request of the table
+     */
+    public abstract CreateTableRequest createTableSchema(Client client, String tableName);
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.janusgraph.diskstorage.BackendException;
+
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically adjusts the provisioned throughput of the tables of a graph to the capacity they consumed. Capacity
+ * is raised when the consumed capacity exceeds the target utilization of the provisioned throughput, or when calls
+ * wait for the rate limiters of a table, and lowered when the consumed capacity falls well below it. Capacity stays
+ * between the initial capacity and the max capacity of the store of a table, and decreases are spaced out to stay
+ * within the daily decrease quota of DynamoDB. Each run also sets the rate limiters of every table to the throughput
+ * the table actually has.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Slf4j
+@RequiredArgsConstructor
+class CapacityAutoscaler implements Runnable {
+    private static final List<String> READ_APIS = Arrays.asList(DynamoDbDelegate.GET_ITEM, DynamoDbDelegate.QUERY,
+        DynamoDbDelegate.SCAN);
+    private static final List<String> WRITE_APIS = Arrays.asList(DynamoDbDelegate.PUT_ITEM, DynamoDbDelegate.UPDATE_ITEM,
+        DynamoDbDelegate.DELETE_ITEM, DynamoDbDelegate.BATCH_WRITE_ITEM);
+    /**
+     * The number of decreases of provisioned throughput that DynamoDB allows at any time of a UTC day.
+     */
+    static final int MAX_DECREASES_PER_DAY = 4;
+    private static final Duration DECREASE_COOLDOWN = Duration.ofHours(1);
+    /**
+     * Capacity is lowered only if the capacity that would meet the target utilization is below this fraction of the
+     * provisioned throughput, so that small changes in load do not use up decreases.
+     */
+    private static final double DECREASE_THRESHOLD = 0.8;
+    private static final long THROTTLED_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int THROTTLED_SCALE_FACTOR = 2;
+
+    private final Client client;
+    private final double targetUtilization;
+
+    @Override
+    public void run() {
+        for (String tableName : client.getTableNames()) {
+            try {
+                adjust(tableName);
+            } catch (BackendException | RuntimeException e) {
+                log.warn("Unable to adjust the capacity of table {}", tableName, e);
+            }
+        }
+    }
+
+    private void adjust(final String tableName) throws BackendException {
+        final DynamoDbDelegate delegate = client.getDelegate();
+        final TableDescription table = delegate.describeTable(tableName);
+        final ProvisionedThroughputDescription provisioned = table.getProvisionedThroughput();
+        if (provisioned == null || provisioned.getReadCapacityUnits() == null || provisioned.getReadCapacityUnits() == 0) {
+            // the table is not provisioned
+            return;
+        }
+        final long read = provisioned.getReadCapacityUnits();
+        final long write = provisioned.getWriteCapacityUnits();
+        delegate.setRateLimits(tableName, read, write);
+        if (!TableStatus.ACTIVE.toString().equals(table.getTableStatus())) {
+            return;
+        }
+
+        final boolean mayDecrease = mayDecrease(provisioned, Instant.now());
+        final long newRead = scale(read, getConsumedCapacityRate(delegate, READ_APIS, tableName), isThrottled(delegate, READ_APIS, tableName),
+            targetUtilization, client.readCapacity(tableName), client.maxReadCapacity(tableName), mayDecrease);
+        final long newWrite = scale(write, getConsumedCapacityRate(delegate, WRITE_APIS, tableName), isThrottled(delegate, WRITE_APIS, tableName),
+            targetUtilization, client.writeCapacity(tableName), client.maxWriteCapacity(tableName), mayDecrease);
+        if (newRead != read || newWrite != write) {
+            log.info("Changing the capacity of table {} from {} reads and {} writes to {} reads and {} writes", tableName, read, write,
+                newRead, newWrite);
+            delegate.updateProvisionedThroughput(tableName, new ProvisionedThroughput(newRead, newWrite));
+        }
+    }
+
+    private static double getConsumedCapacityRate(final DynamoDbDelegate delegate, final List<String> apis, final String tableName) {
+        return apis.stream().mapToDouble(api -> delegate.getConsumedCapacityRate(api, tableName)).sum();
+    }
+
+    private static boolean isThrottled(final DynamoDbDelegate delegate, final List<String> apis, final String tableName) {
+        return apis.stream().map(api -> delegate.getThrottleTimer(api, tableName))
+            .anyMatch(timer -> timer.getOneMinuteRate() > 0 && timer.getSnapshot().get75thPercentile() > THROTTLED_WAIT_NANOS);
+    }
+
+    /**
+     * @param current the provisioned capacity
+     * @param consumedRate the consumed capacity units per second
+     * @param throttled true if calls waited for the rate limiter of the capacity
+     * @param targetUtilization the fraction of the provisioned capacity to aim for the consumed capacity to be
+     * @param min the lowest capacity to set
+     * @param max the highest capacity to set, or 0 if the capacity is not scaled
+     * @param mayDecrease true if the capacity may be lowered
+     * @return the capacity to provision
+     */
+    static long scale(final long current, final double consumedRate, final boolean throttled, final double targetUtilization,
+        final long min, final long max, final boolean mayDecrease) {
+        if (max == 0) {
+            return current;
+        }
+        long desired = (long) Math.ceil(consumedRate / targetUtilization);
+        if (throttled) {
+            desired = Math.max(desired, current * THROTTLED_SCALE_FACTOR);
+        }
+        desired = Math.max(min, Math.min(max, desired));
+        if (desired > current || mayDecrease && desired < current * DECREASE_THRESHOLD) {
+            return desired;
+        }
+        return current;
+    }
+
+    /**
+     * @param provisioned the provisioned throughput of a table
+     * @param now the current time
+     * @return true if the table has decreases left today and was not decreased within the last hour
+     */
+    static boolean mayDecrease(final ProvisionedThroughputDescription provisioned, final Instant now) {
+        final Long decreasesToday = provisioned.getNumberOfDecreasesToday();
+        if (decreasesToday != null && decreasesToday >= MAX_DECREASES_PER_DAY) {
+            return false;
+        }
+        return provisioned.getLastDecreaseDateTime() == null
+            || provisioned.getLastDecreaseDateTime().toInstant().plus(DECREASE_COOLDOWN).isBefore(now);
+    }
+}
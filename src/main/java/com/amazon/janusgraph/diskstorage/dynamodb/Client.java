@@ -15,18 +15,28 @@
  */
 package com.amazon.janusgraph.diskstorage.dynamodb;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
+import org.janusgraph.diskstorage.Backend;
+import org.janusgraph.diskstorage.configuration.ConfigOption;
 import org.janusgraph.diskstorage.configuration.Configuration;
 import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
 
@@ -49,15 +59,52 @@ import com.google.common.util.concurrent.RateLimiterCreator;
 public class Client {
     private static final String VALIDATE_CREDENTIALS_CLASS_NAME = "Must provide either an AWSCredentials or AWSCredentialsProvider fully qualified class name";
     private static final double DEFAULT_BURST_BUCKET_SIZE_IN_SECONDS = 300.0;
+    private static final String SCAN_CHECKPOINT_NAME_PATTERN = "[A-Za-z0-9._-]*";
+    private static final List<ConfigOption<?>> SHARED_CLIENT_OPTIONS = Arrays.asList(
+        Constants.DYNAMODB_CLIENT_ENDPOINT, Constants.DYNAMODB_CLIENT_SIGNING_REGION,
+        Constants.DYNAMODB_CREDENTIALS_CLASS_NAME, Constants.DYNAMODB_CLIENT_CONN_TIMEOUT,
+        Constants.DYNAMODB_CLIENT_CONN_TTL, Constants.DYNAMODB_CLIENT_MAX_CONN, Constants.DYNAMODB_CLIENT_MAX_ERROR_RETRY,
+        Constants.DYNAMODB_CLIENT_USE_GZIP, Constants.DYNAMODB_CLIENT_USE_REAPER, Constants.DYNAMODB_CLIENT_USER_AGENT,
+        Constants.DYNAMODB_CLIENT_SOCKET_TIMEOUT, Constants.DYNAMODB_CLIENT_SOCKET_BUFFER_SEND_HINT,
+        Constants.DYNAMODB_CLIENT_SOCKET_BUFFER_RECV_HINT, Constants.DYNAMODB_CLIENT_PROXY_DOMAIN,
+        Constants.DYNAMODB_CLIENT_PROXY_WORKSTATION, Constants.DYNAMODB_CLIENT_PROXY_HOST,
+        Constants.DYNAMODB_CLIENT_PROXY_PORT, Constants.DYNAMODB_CLIENT_PROXY_USERNAME,
+        Constants.DYNAMODB_CLIENT_PROXY_PASSWORD, Constants.DYNAMODB_CLIENT_EXECUTOR_CORE_POOL_SIZE,
+        Constants.DYNAMODB_CLIENT_EXECUTOR_MAX_POOL_SIZE, Constants.DYNAMODB_CLIENT_EXECUTOR_KEEP_ALIVE,
+        Constants.DYNAMODB_CLIENT_EXECUTOR_QUEUE_MAX_LENGTH, Constants.DYNAMODB_CLIENT_EXECUTOR_REJECTION_POLICY);
 
     private final Map<String, Long> capacityRead = new HashMap<>();
     private final Map<String, Long> capacityWrite = new HashMap<>();
+    private final Map<String, Long> maxCapacityRead = new HashMap<>();
+    private final Map<String, Long> maxCapacityWrite = new HashMap<>();
     private final Map<String, BackendDataModel> dataModelMap = new HashMap<>();
     @Getter(AccessLevel.PACKAGE)
     private final boolean forceConsistentRead;
     @Getter(AccessLevel.PACKAGE)
     private final boolean enableParallelScan;
+    @Getter(AccessLevel.PACKAGE)
+    private final int orderedParallelScanSegments;
+    @Getter(AccessLevel.PACKAGE)
+    private final boolean enableTtl;
     private final Map<String, Integer> scanLimitMap = new HashMap<>();
+    private final Map<String, Integer> keyDirectoryBucketsMap = new HashMap<>();
+    private final Map<String, Long> rowCacheBytesMap = new HashMap<>();
+    private final Map<String, Long> rowCacheStalenessMap = new HashMap<>();
+    private final Map<String, Long> sliceCacheBytesMap = new HashMap<>();
+    private final Map<String, Long> sliceCacheStalenessMap = new HashMap<>();
+    private final Map<String, Long> negativeCacheKeysMap = new HashMap<>();
+    private final Map<String, Long> negativeCacheTtlMap = new HashMap<>();
+    private final Map<String, Long> writeCombiningWindowMap = new HashMap<>();
+    private final Map<String, Integer> shardsMap = new HashMap<>();
+    private final Map<String, List<String>> shardedKeysMap = new HashMap<>();
+    private final Map<String, Double> shardWriteRateMap = new HashMap<>();
+    private final Map<String, Long> shardDirectoryReloadMap = new HashMap<>();
+    private final Map<String, Boolean> streamSlicesMap = new HashMap<>();
+    private final Map<String, Integer> slicePartitionsMap = new HashMap<>();
+    private final Path scanCheckpointDirectory;
+    private final String scanCheckpointName;
+    @Getter(AccessLevel.PACKAGE)
+    private final long scanCheckpointIntervalMillis;
     @Getter
     private final DynamoDbDelegate delegate;
 
@@ -115,6 +162,17 @@ public class Client {
 //end adaptation of constructor at
 //https://github.com/buka/titan/blob/master/src/main/java/com/thinkaurelius/titan/diskstorage/dynamodb/DynamoDBClient.java#L77
         enableParallelScan = config.get(Constants.DYNAMODB_ENABLE_PARALLEL_SCAN);
+        orderedParallelScanSegments = config.get(Constants.DYNAMODB_ORDERED_PARALLEL_SCAN_SEGMENTS);
+        Preconditions.checkArgument(orderedParallelScanSegments >= 0,
+            Constants.DYNAMODB_ORDERED_PARALLEL_SCAN_SEGMENTS.getName() + " must be at least 0");
+        scanCheckpointDirectory = createScanCheckpointDirectory(config.get(Constants.DYNAMODB_SCAN_CHECKPOINT_DIRECTORY));
+        scanCheckpointName = config.get(Constants.DYNAMODB_SCAN_CHECKPOINT_NAME);
+        Preconditions.checkArgument(scanCheckpointName.matches(SCAN_CHECKPOINT_NAME_PATTERN),
+            Constants.DYNAMODB_SCAN_CHECKPOINT_NAME.getName() + " may only contain letters, digits, dots, dashes and underscores");
+        scanCheckpointIntervalMillis = config.get(Constants.DYNAMODB_SCAN_CHECKPOINT_INTERVAL);
+        Preconditions.checkArgument(scanCheckpointIntervalMillis >= 0,
+            Constants.DYNAMODB_SCAN_CHECKPOINT_INTERVAL.getName() + " must be at least 0");
+        enableTtl = config.get(Constants.DYNAMODB_ENABLE_TTL);
         prefix = config.get(Constants.DYNAMODB_TABLE_PREFIX);
         final String metricsPrefix = config.get(Constants.DYNAMODB_METRICS_PREFIX);
 
@@ -138,27 +196,122 @@ public class Client {
         final Set<String> storeNames = new HashSet<>(Constants.REQUIRED_BACKEND_STORES);
         storeNames.add(config.get(GraphDatabaseConfiguration.IDS_STORE_NAME));
         storeNames.addAll(config.getContainedNamespaces(Constants.DYNAMODB_STORES_NAMESPACE));
-        storeNames.forEach(storeName -> setupStore(config, readRateLimit, writeRateLimit, storeName));
+        final Set<String> adaptiveTables = new HashSet<>();
+        storeNames.forEach(storeName -> setupStore(config, readRateLimit, writeRateLimit, adaptiveTables, storeName));
 
         delegate = new DynamoDbDelegate(JanusGraphConfigUtil.getNullableConfigValue(config, Constants.DYNAMODB_CLIENT_ENDPOINT),
                 JanusGraphConfigUtil.getNullableConfigValue(config, Constants.DYNAMODB_CLIENT_SIGNING_REGION),
                 credentialsProvider,
-            clientConfig, config, readRateLimit, writeRateLimit, maxRetries, retryMillis, prefix, metricsPrefix, controlPlaneRateLimiter);
+            clientConfig, config, readRateLimit, writeRateLimit, maxRetries, retryMillis, prefix, metricsPrefix, controlPlaneRateLimiter,
+            createSharedClientKey(config), adaptiveTables);
+    }
+
+    /**
+     * @param config the configuration of the graph
+     * @return the values of the options that graphs must agree on to share a DynamoDB client and client executor, or
+     * null if the graph does not share them
+     */
+    private static List<Object> createSharedClientKey(final Configuration config) {
+        if (!config.get(Constants.DYNAMODB_CLIENT_SHARED)) {
+            return null;
+        }
+        final List<Object> key = new ArrayList<>();
+        for (ConfigOption<?> option : SHARED_CLIENT_OPTIONS) {
+            key.add(JanusGraphConfigUtil.getNullableConfigValue(config, option));
+        }
+        key.add(Arrays.asList(config.get(Constants.DYNAMODB_CREDENTIALS_CONSTRUCTOR_ARGS)));
+        return key;
     }
 
     private void setupStore(final Configuration config,
-        final Map<String, RateLimiter> readRateLimit, final Map<String, RateLimiter> writeRateLimit, final String store) {
+        final Map<String, RateLimiter> readRateLimit, final Map<String, RateLimiter> writeRateLimit, final Set<String> adaptiveTables,
+        final String store) {
 
         final String dataModel = config.get(Constants.STORES_DATA_MODEL, store);
         final int scanLimit = config.get(Constants.STORES_SCAN_LIMIT, store);
         final long readCapacity = config.get(Constants.STORES_INITIAL_CAPACITY_READ, store);
         final long writeCapacity = config.get(Constants.STORES_INITIAL_CAPACITY_WRITE, store);
+        final long maxReadCapacity = config.get(Constants.STORES_MAX_CAPACITY_READ, store);
+        Preconditions.checkArgument(maxReadCapacity == 0 || maxReadCapacity >= readCapacity,
+            Constants.STORES_MAX_CAPACITY_READ.getName() + " must be 0 or at least " + Constants.STORES_INITIAL_CAPACITY_READ.getName());
+        final long maxWriteCapacity = config.get(Constants.STORES_MAX_CAPACITY_WRITE, store);
+        Preconditions.checkArgument(maxWriteCapacity == 0 || maxWriteCapacity >= writeCapacity,
+            Constants.STORES_MAX_CAPACITY_WRITE.getName() + " must be 0 or at least " + Constants.STORES_INITIAL_CAPACITY_WRITE.getName());
         final double readRate = config.get(Constants.STORES_READ_RATE_LIMIT, store);
         final double writeRate = config.get(Constants.STORES_WRITE_RATE_LIMIT, store);
+        final boolean adaptiveRateLimit = config.get(Constants.STORES_ADAPTIVE_RATE_LIMIT, store);
+
+        final int keyDirectoryBuckets = config.get(Constants.STORES_KEY_DIRECTORY_BUCKETS, store);
+        Preconditions.checkArgument(keyDirectoryBuckets >= 0, Constants.STORES_KEY_DIRECTORY_BUCKETS.getName() + " must be at least 0");
+
+        final long rowCacheBytes = config.get(Constants.STORES_ROW_CACHE_BYTES, store);
+        Preconditions.checkArgument(rowCacheBytes >= 0, Constants.STORES_ROW_CACHE_BYTES.getName() + " must be at least 0");
+        final long rowCacheStaleness = config.get(Constants.STORES_ROW_CACHE_STALENESS, store);
+        Preconditions.checkArgument(rowCacheStaleness > 0, Constants.STORES_ROW_CACHE_STALENESS.getName() + " must be at least 1");
+        final long sliceCacheBytes = config.get(Constants.STORES_SLICE_CACHE_BYTES, store);
+        Preconditions.checkArgument(sliceCacheBytes >= 0, Constants.STORES_SLICE_CACHE_BYTES.getName() + " must be at least 0");
+        final long sliceCacheStaleness = config.get(Constants.STORES_SLICE_CACHE_STALENESS, store);
+        Preconditions.checkArgument(sliceCacheStaleness > 0, Constants.STORES_SLICE_CACHE_STALENESS.getName() + " must be at least 1");
+        final long negativeCacheKeys = config.get(Constants.STORES_NEGATIVE_CACHE_KEYS, store);
+        Preconditions.checkArgument(negativeCacheKeys >= 0, Constants.STORES_NEGATIVE_CACHE_KEYS.getName() + " must be at least 0");
+        final long negativeCacheTtl = config.get(Constants.STORES_NEGATIVE_CACHE_TTL, store);
+        Preconditions.checkArgument(negativeCacheTtl > 0, Constants.STORES_NEGATIVE_CACHE_TTL.getName() + " must be at least 1");
+        final long writeCombiningWindow = config.get(Constants.STORES_WRITE_COMBINING_WINDOW, store);
+        Preconditions.checkArgument(writeCombiningWindow >= 0, Constants.STORES_WRITE_COMBINING_WINDOW.getName() + " must be at least 0");
+        // writes through the row cache need the item each update returns, which a combined update does not return
+        Preconditions.checkArgument(writeCombiningWindow == 0 || rowCacheBytes == 0, Constants.STORES_WRITE_COMBINING_WINDOW.getName()
+            + " and " + Constants.STORES_ROW_CACHE_BYTES.getName() + " cannot both be set for store " + store);
+
+        final int shards = config.get(Constants.STORES_SHARDS, store);
+        Preconditions.checkArgument(shards == 0 || shards >= 2, Constants.STORES_SHARDS.getName() + " must be 0 or at least 2");
+        Preconditions.checkArgument(shards == 0 || BackendDataModel.MULTI.name().equals(dataModel),
+            Constants.STORES_SHARDS.getName() + " requires the MULTI data model");
+        final double shardWriteRate = config.get(Constants.STORES_SHARD_WRITE_RATE, store);
+        Preconditions.checkArgument(shardWriteRate >= 0, Constants.STORES_SHARD_WRITE_RATE.getName() + " must be at least 0");
+        final long shardDirectoryReload = config.get(Constants.STORES_SHARD_DIRECTORY_RELOAD, store);
+        Preconditions.checkArgument(shardDirectoryReload > 0, Constants.STORES_SHARD_DIRECTORY_RELOAD.getName() + " must be at least 1");
+
+        final int slicePartitions = config.get(Constants.STORES_SLICE_PARTITIONS, store);
+        Preconditions.checkArgument(slicePartitions == 0 || slicePartitions >= 2,
+            Constants.STORES_SLICE_PARTITIONS.getName() + " must be 0 or at least 2");
 
         final String actualTableName = prefix + "_" + store;
 
         this.dataModelMap.put(store, BackendDataModel.valueOf(dataModel));
+        this.keyDirectoryBucketsMap.put(store, keyDirectoryBuckets);
+        this.rowCacheBytesMap.put(store, rowCacheBytes);
+        this.rowCacheStalenessMap.put(store, rowCacheStaleness);
+        this.sliceCacheBytesMap.put(store, sliceCacheBytes);
+        this.sliceCacheStalenessMap.put(store, sliceCacheStaleness);
+        this.negativeCacheKeysMap.put(store, negativeCacheKeys);
+        this.negativeCacheTtlMap.put(store, negativeCacheTtl);
+        this.writeCombiningWindowMap.put(store, writeCombiningWindow);
+        this.shardsMap.put(store, shards);
+        this.shardedKeysMap.put(store, Arrays.asList(config.get(Constants.STORES_SHARDED_KEYS, store)));
+        this.shardWriteRateMap.put(store, shardWriteRate);
+        this.shardDirectoryReloadMap.put(store, shardDirectoryReload);
+        this.streamSlicesMap.put(store, config.get(Constants.STORES_STREAM_SLICES, store));
+        this.slicePartitionsMap.put(store, slicePartitions);
+        setupTable(readRateLimit, writeRateLimit, actualTableName, readCapacity, writeCapacity, readRate, writeRate, scanLimit);
+        maxCapacityRead.put(actualTableName, maxReadCapacity);
+        maxCapacityWrite.put(actualTableName, maxWriteCapacity);
+        if (adaptiveRateLimit) {
+            adaptiveTables.add(actualTableName);
+        }
+        if (keyDirectoryBuckets > 0) {
+            // the key directory table is provisioned and throttled like the table of its store
+            setupTable(readRateLimit, writeRateLimit, actualTableName + KeyDirectory.TABLE_SUFFIX, readCapacity, writeCapacity, readRate, writeRate,
+                scanLimit);
+            maxCapacityRead.put(actualTableName + KeyDirectory.TABLE_SUFFIX, maxReadCapacity);
+            maxCapacityWrite.put(actualTableName + KeyDirectory.TABLE_SUFFIX, maxWriteCapacity);
+            if (adaptiveRateLimit) {
+                adaptiveTables.add(actualTableName + KeyDirectory.TABLE_SUFFIX);
+            }
+        }
+    }
+
+    private void setupTable(final Map<String, RateLimiter> readRateLimit, final Map<String, RateLimiter> writeRateLimit, final String actualTableName,
+        final long readCapacity, final long writeCapacity, final double readRate, final double writeRate, final int scanLimit) {
         this.capacityRead.put(actualTableName, readCapacity);
         this.capacityWrite.put(actualTableName, writeCapacity);
         readRateLimit.put(actualTableName, RateLimiterCreator.createBurstingLimiter(readRate, DEFAULT_BURST_BUCKET_SIZE_IN_SECONDS));
@@ -166,6 +319,44 @@ public class Client {
         this.scanLimitMap.put(actualTableName, scanLimit);
     }
 
+    private static Path createScanCheckpointDirectory(final String directory) {
+        if (Strings.isNullOrEmpty(directory)) {
+            return null;
+        }
+        final Path path = Paths.get(directory);
+        try {
+            Files.createDirectories(path);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot create scan checkpoint directory " + directory, e);
+        }
+        return path;
+    }
+
+    /**
+     * @return true if full scans are segmented, either in parallel or in segment order
+     */
+    boolean isSegmentedScan() {
+        return enableParallelScan || orderedParallelScanSegments > 0;
+    }
+
+    /**
+     * @return the directory of the checkpoints of full scans, if scan checkpoints are enabled
+     */
+    Optional<Path> getScanCheckpointDirectory() {
+        if (scanCheckpointName.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(scanCheckpointDirectory);
+    }
+
+    /**
+     * @return the name of the scan job the checkpoints of full scans belong to, or an empty string if scan
+     * checkpoints are disabled
+     */
+    String getScanCheckpointName() {
+        return scanCheckpointName;
+    }
+
     long readCapacity(@NonNull final String tableName) {
         return capacityRead.get(tableName);
     }
@@ -174,10 +365,148 @@ public class Client {
         return capacityWrite.get(tableName);
     }
 
+    /**
+     * @return the names of the tables of all the stores that are configured for this graph, including the tables of
+     * their key directories
+     */
+    Set<String> getTableNames() {
+        return capacityRead.keySet();
+    }
+
+    /**
+     * @param tableName the name of a table
+     * @return the read capacity up to which the table may be scaled, or 0 if its read capacity is not scaled
+     */
+    long maxReadCapacity(@NonNull final String tableName) {
+        return maxCapacityRead.getOrDefault(tableName, 0L);
+    }
+
+    /**
+     * @param tableName the name of a table
+     * @return the write capacity up to which the table may be scaled, or 0 if its write capacity is not scaled
+     */
+    long maxWriteCapacity(@NonNull final String tableName) {
+        return maxCapacityWrite.getOrDefault(tableName, 0L);
+    }
+
+    /**
+     * @param storeName the name of a store
+     * @return the number of buckets of the key directory of the store, or 0 if the store has no key directory
+     */
+    int keyDirectoryBuckets(final String storeName) {
+        return keyDirectoryBucketsMap.getOrDefault(storeName, 0);
+    }
+
+    /**
+     * @param storeName the name of a store
+     * @return the maximum size in bytes of the row cache of the store, or 0 if the store does not cache rows
+     */
+    long rowCacheBytes(final String storeName) {
+        return rowCacheBytesMap.getOrDefault(storeName, 0L);
+    }
+
+    long rowCacheStalenessMillis(final String storeName) {
+        return rowCacheStalenessMap.get(storeName);
+    }
+
+    /**
+     * @param storeName the name of a store
+     * @return the maximum size in bytes of the slice cache of the store, or 0 if the store does not cache slices
+     */
+    long sliceCacheBytes(final String storeName) {
+        return sliceCacheBytesMap.getOrDefault(storeName, 0L);
+    }
+
+    long sliceCacheStalenessMillis(final String storeName) {
+        return sliceCacheStalenessMap.get(storeName);
+    }
+
+    /**
+     * @param storeName the name of a store
+     * @return the maximum number of keys in the negative lookup cache of the store, or 0 if the store does not cache
+     * absent keys
+     */
+    long negativeCacheKeys(final String storeName) {
+        return negativeCacheKeysMap.getOrDefault(storeName, 0L);
+    }
+
+    long negativeCacheTtlMillis(final String storeName) {
+        return negativeCacheTtlMap.get(storeName);
+    }
+
+    /**
+     * @param storeName the name of a store
+     * @return the time (in milliseconds) updates of the same item of the store are combined for, or 0 if updates are
+     * not combined
+     */
+    long writeCombiningWindowMillis(final String storeName) {
+        return writeCombiningWindowMap.getOrDefault(storeName, 0L);
+    }
+
+    /**
+     * @param storeName the name of a store
+     * @return the number of hash keys the columns of a hot key of the store are spread over, or 0 if the store does not
+     * shard keys
+     */
+    int shards(final String storeName) {
+        return shardsMap.getOrDefault(storeName, 0);
+    }
+
+    List<String> shardedKeys(final String storeName) {
+        return shardedKeysMap.get(storeName);
+    }
+
+    double shardWriteRate(final String storeName) {
+        return shardWriteRateMap.get(storeName);
+    }
+
+    long shardDirectoryReloadMillis(final String storeName) {
+        return shardDirectoryReloadMap.get(storeName);
+    }
+
+    /**
+     * @param storeName the name of a store
+     * @return true if slices of a single key of the store are queried a page at a time as they are consumed
+     */
+    boolean streamSlices(final String storeName) {
+        return streamSlicesMap.getOrDefault(storeName, false);
+    }
+
+    /**
+     * @param storeName the name of a store
+     * @return the number of sub-ranges the slices of wide keys of the store are split into, or 0 if slices are not split
+     */
+    int slicePartitions(final String storeName) {
+        return slicePartitionsMap.getOrDefault(storeName, 0);
+    }
+
+    /**
+     * @return true if every store has a key directory, so that all stores support key range queries
+     */
+    boolean isKeyDirectoryEnabledForAllStores() {
+        return keyDirectoryBucketsMap.values().stream().allMatch(buckets -> buckets > 0);
+    }
+
+    /**
+     * @return true if TTL is enabled and the stores JanusGraph writes cell TTLs to use the MULTI data model
+     */
+    boolean isCellTtlSupported() {
+        return enableTtl
+            && dataModel(Backend.EDGESTORE_NAME) == BackendDataModel.MULTI
+            && dataModel(Backend.INDEXSTORE_NAME) == BackendDataModel.MULTI;
+    }
+
     BackendDataModel dataModel(final String storeName) {
         return dataModelMap.get(storeName);
     }
 
+    /**
+     * @return the names of all the stores that are configured for this graph, in alphabetical order
+     */
+    SortedSet<String> getStoreNames() {
+        return new TreeSet<>(dataModelMap.keySet());
+    }
+
     int scanLimit(final String tableName) {
         return scanLimitMap.get(tableName);
     }
@@ -45,6 +45,11 @@ public final class Constants {
     public static final String JANUSGRAPH_RANGE_KEY = "rk";
 //end adaptation of
 //https://github.com/buka/titan/blob/master/src/main/java/com/thinkaurelius/titan/diskstorage/dynamodb/DynamoDBClient.java#L26
+    /**
+     * The attribute that holds the expiry time of an item, in seconds since the epoch, when TTL is enabled.
+     * It is not a hex string, so it cannot collide with the column attributes of SINGLE items.
+     */
+    public static final String JANUSGRAPH_EXPIRY = "ex";
     public static final String HEX_PREFIX = "0x";
     public static final String JANUSGRAPH_USER_AGENT = "dynamodb-janusgraph010-storage-backend_1.0.0";
 
@@ -86,9 +91,59 @@ public final class Constants {
         new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "enable-parallel-scans",
         "This feature enables scans to run in parallel, which should decrease the total blocking time "
             + "spent when iterating over large sets of vertices. "
-            + "WARNING: while this feature is enabled JanusGraph's OLAP libraries are NOT supported."
+            + "WARNING: while this feature is enabled JanusGraph's OLAP libraries are NOT supported. "
             + "The JanusGraph-Hadoop implementations of OLAP rely on consistent scan orders across multiple scans, "
-            + "which cannot be guaranteed when scans are run in parallel",
+            + "which cannot be guaranteed when scans are run in parallel. Use ordered-parallel-scan-segments "
+            + "for parallel scans that are compatible with OLAP",
+        LOCAL, false);
+    public static final ConfigOption<Integer> DYNAMODB_ORDERED_PARALLEL_SCAN_SEGMENTS =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "ordered-parallel-scan-segments",
+        "When greater than 0, full scans are divided into this fixed number of segments and return the segments one "
+            + "after the other in segment order, while the following segments are read ahead in the background. Scans "
+            + "of a table that has not changed then return keys in the same order every time, as JanusGraph's OLAP "
+            + "libraries require. Takes precedence over enable-parallel-scans. Keep this value fixed between the scans "
+            + "that must return keys in the same order.",
+        LOCAL, 0);
+    public static final ConfigOption<Long> DYNAMODB_PARALLEL_SCAN_SEGMENT_SIZE =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "parallel-scan-segment-size",
+        "The target size (in bytes) of each segment of a parallel scan. The total number of segments is derived from "
+            + "the table size reported by DescribeTable divided by this value.",
+        LOCAL, 1073741824L);
+    public static final ConfigOption<Integer> DYNAMODB_PARALLEL_SCAN_OVERPARTITION_FACTOR =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "parallel-scan-overpartition-factor",
+        "The minimum number of segments of a parallel scan per scan worker. Segments are handed out to the workers "
+            + "from a queue, so over-partitioning lets idle workers pick up the remaining segments instead of waiting on "
+            + "a skewed segment.",
+        LOCAL, 4);
+    public static final ConfigOption<Integer> DYNAMODB_PARALLEL_SCAN_MAX_SEGMENTS =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "parallel-scan-max-segments",
+        "The maximum number of segments of a parallel scan.",
+        LOCAL, 4096);
+    public static final ConfigOption<String> DYNAMODB_SCAN_CHECKPOINT_DIRECTORY =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "scan-checkpoint-directory",
+        "A local directory in which full table scans periodically save their progress, one checkpoint file per "
+            + "scan-checkpoint-name and table. Scan checkpoints are disabled unless both this and scan-checkpoint-name are set.",
+        LOCAL, "", Predicates.alwaysTrue());
+    public static final ConfigOption<String> DYNAMODB_SCAN_CHECKPOINT_NAME =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "scan-checkpoint-name",
+        "The name of the scan job whose full table scans save checkpoints in scan-checkpoint-directory, made of letters, "
+            + "digits, dots, dashes and underscores. A scan of a table resumes from the checkpoint that an earlier scan "
+            + "with the same name left behind when it stopped before the end, provided that it has the same filter and "
+            + "slice, and may return some keys a second time. Checkpoints are saved every scan-checkpoint-interval while "
+            + "a scan runs, not when a scan is closed early, and deleted when a scan completes. Only one scan of a table "
+            + "should run at a time under a name. Leave empty to disable scan checkpoints.",
+        LOCAL, "", Predicates.alwaysTrue());
+    public static final ConfigOption<Long> DYNAMODB_SCAN_CHECKPOINT_INTERVAL =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "scan-checkpoint-interval",
+        "The minimum time (in milliseconds) between two saves of the checkpoint of a scan. The progress made since the "
+            + "last save is lost when a scan is closed or fails before the end.",
+        LOCAL, 30000L);
+    public static final ConfigOption<Boolean> DYNAMODB_ENABLE_TTL =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "enable-ttl",
+        "Implements JanusGraph's store TTL and cell TTL with DynamoDB's native item expiry. Items written with a TTL get "
+            + "an expiry attribute, TTL is enabled on that attribute for every table, and items that have expired but that "
+            + "DynamoDB has not deleted yet are filtered out on read. Cell TTL is only supported when the edgestore and "
+            + "graphindex stores use the MULTI data model.",
         LOCAL, false);
     public static final ConfigOption<String> STORES_DATA_MODEL =
         new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "data-model",
@@ -110,6 +165,62 @@ public final class Constants {
             + "values up to the limit, and a key in LastEvaluatedKey to apply in a subsequent operation to continue "
             + "the operation.",
         LOCAL, 10000);
+    public static final ConfigOption<Integer> STORES_KEY_DIRECTORY_BUCKETS =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "key-directory-buckets",
+        "When greater than 0, the store maintains a directory of its keys in a separate table with the suffix "
+            + "_keys, spread over this number of hash keys with the key bytes as range key. The directory supports "
+            + "getKeys with key ranges through parallel queries of the buckets merged in key order, at the cost of an "
+            + "extra write for each key that gets new columns. More buckets spread the directory writes over more "
+            + "partitions. The number of buckets is recorded in the directory, and opening the store with a different "
+            + "number fails. The orderedScan feature is advertised when all stores have a key directory.",
+        FIXED, 0);
+    public static final ConfigOption<Long> STORES_ROW_CACHE_BYTES =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "row-cache-bytes",
+        "When greater than 0, a SINGLE store keeps whole decoded rows in a local cache of at most this many bytes, and "
+            + "answers slice queries of cached rows without reading DynamoDB. Rows enter the cache when they are read "
+            + "and when they are written through this instance, subject to a frequency based admission policy once the "
+            + "cache is full. Ignored for MULTI stores and for stores with a store TTL.",
+        LOCAL, 0L);
+    public static final ConfigOption<Long> STORES_ROW_CACHE_STALENESS =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "row-cache-staleness",
+        "The maximum time (in milliseconds) a row stays in the row cache after it was read or written. This bounds how "
+            + "long writes made through other instances can go unseen.",
+        LOCAL, 10000L);
+    public static final ConfigOption<Long> STORES_SLICE_CACHE_BYTES =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "slice-cache-bytes",
+        "When greater than 0, a MULTI store keeps the column ranges of each key it has read in a local cache of at most "
+            + "this many bytes. Slices that overlap the cached ranges of a key only query the ranges that are missing. "
+            + "The cached ranges of a key are dropped when the key is written through this instance. Ignored for SINGLE "
+            + "stores and when TTL is enabled.",
+        LOCAL, 0L);
+    public static final ConfigOption<Long> STORES_SLICE_CACHE_STALENESS =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "slice-cache-staleness",
+        "The maximum time (in milliseconds) the cached ranges of a key are used after the oldest of them was read. This "
+            + "bounds how long writes made through other instances can go unseen.",
+        LOCAL, 10000L);
+    public static final ConfigOption<Long> STORES_NEGATIVE_CACHE_KEYS =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "negative-cache-keys",
+        "When greater than 0, a MULTI store remembers up to this many keys whose slices were recently read empty, and "
+            + "answers the same or narrower slices of those keys without querying DynamoDB. A key is forgotten when it "
+            + "is written through this instance. Ignored for SINGLE stores.",
+        LOCAL, 0L);
+    public static final ConfigOption<Long> STORES_NEGATIVE_CACHE_TTL =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "negative-cache-ttl",
+        "The time (in milliseconds) a key stays in the negative lookup cache after its slice was read empty. This "
+            + "bounds how long writes made through other instances can go unseen.",
+        LOCAL, 1000L);
+    public static final ConfigOption<Long> STORES_WRITE_COMBINING_WINDOW =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "write-combining-window",
+        "When greater than 0, unconditional updates of the same item of a SINGLE store that different transactions "
+            + "make within this many milliseconds are written with one UpdateItem call. Each update waits up to this "
+            + "long before it is written. Ignored for MULTI stores. Cannot be set together with row-cache-bytes.",
+        LOCAL, 0L);
+    public static final ConfigOption<Boolean> DYNAMODB_BOOTSTRAP_STORES =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "bootstrap-stores",
+        "Whether to create or find the tables of all configured stores concurrently when the graph is opened, instead "
+            + "of one at a time as JanusGraph opens each store. This creates the tables of stores the graph may never "
+            + "open, and needs permission to create them.",
+        LOCAL, false);
     public static final ConfigOption<Boolean> DYNAMODB_USE_NATIVE_LOCKING = new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE,
         "native-locking", "Set this to false if you need to use JanusGraph's locking mechanism for remote lock expiry.",
         FIXED, true);
@@ -128,6 +239,16 @@ public final class Constants {
         new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "initial-capacity-write",
         "Define the initial write capacity for a given dynamodb table.",
         LOCAL, 4L);
+    public static final ConfigOption<Long> STORES_MAX_CAPACITY_READ =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "max-capacity-read",
+        "The read capacity up to which the capacity autoscaler may raise the table of a store. The initial read capacity "
+            + "is the lowest capacity the autoscaler sets. When 0, the read capacity of the table is not scaled.",
+        LOCAL, 0L);
+    public static final ConfigOption<Long> STORES_MAX_CAPACITY_WRITE =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "max-capacity-write",
+        "The write capacity up to which the capacity autoscaler may raise the table of a store. The initial write "
+            + "capacity is the lowest capacity the autoscaler sets. When 0, the write capacity of the table is not scaled.",
+        LOCAL, 0L);
     public static final ConfigOption<Double> STORES_READ_RATE_LIMIT =
         new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "read-rate",
         "The max number of reads per second.",
@@ -136,6 +257,50 @@ public final class Constants {
         new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "write-rate",
         "Used to throttle write rate of given table. The max number of writes per second.",
         LOCAL, 4.0);
+    public static final ConfigOption<Integer> STORES_SHARDS =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "shards",
+        "When at least 2, the columns of the hot keys of the given MULTI store are spread over this many hash keys, so that writes "
+            + "to a hot key are not limited to the throughput of one partition. Reads of a sharded key query every shard in parallel. "
+            + "When 0, keys are not sharded.",
+        LOCAL, 0);
+    public static final ConfigOption<String[]> STORES_SHARDED_KEYS =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "sharded-keys",
+        "Hex encoded keys of the given store to shard, as reported by the HotWriteKeys metrics. Requires shards.",
+        LOCAL, new String[0], Predicates.alwaysTrue());
+    public static final ConfigOption<Double> STORES_SHARD_WRITE_RATE =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "shard-write-rate",
+        "When greater than 0, keys of the given store that consume more than this many write capacity units per second are "
+            + "sharded. Requires shards and hot-keys.",
+        LOCAL, 0.0);
+    public static final ConfigOption<Long> STORES_SHARD_DIRECTORY_RELOAD =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "shard-directory-reload",
+        "The number of milliseconds between reloads of the directory of the sharded keys of the given store. Writers start "
+            + "spreading the columns of a newly sharded key two reloads after it was sharded.",
+        LOCAL, 60000L);
+    public static final ConfigOption<Boolean> STORES_STREAM_SLICES =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "stream-slices",
+        "Whether slices of a single key of the given store are queried a page at a time as they are consumed, instead of "
+            + "all at once. Applies to MULTI stores that do not cache slices.",
+        LOCAL, false);
+    public static final ConfigOption<Integer> STORES_SLICE_PARTITIONS =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "slice-partitions",
+        "When greater than 0, slices of keys of the given store that took more than a page to read are split into this many "
+            + "sub-ranges, which are queried in parallel. Slices with a limit that fits in a page are not split. Applies to MULTI "
+            + "stores that do not cache or stream slices.",
+        LOCAL, 0);
+    public static final ConfigOption<Boolean> STORES_ADAPTIVE_RATE_LIMIT =
+        new ConfigOption<>(Constants.DYNAMODB_STORES_NAMESPACE, "adaptive-rate-limit",
+        "Adapt the read and write rate limits of the given table to the throughput DynamoDB accepts, instead of keeping them fixed. "
+            + "The limits start at read-rate and write-rate, rise while requests wait for them and halve when DynamoDB throttles a request. "
+            + "Use this for on-demand tables, and for tables whose capacity is managed outside of the graph.",
+        LOCAL, false);
+    public static final ConfigOption<Boolean> DYNAMODB_CLIENT_SHARED =
+        new ConfigOption<>(DYNAMODB_CLIENT_NAMESPACE, "shared",
+        "Share the DynamoDB client (and its HTTP connection pool) and the client executor with the other graphs in this "
+            + "JVM that set this option and configure the same endpoint, credentials, connection, proxy and executor "
+            + "options. Rate limits and metrics stay per graph. The client and executor shut down with the last graph "
+            + "that uses them.",
+        LOCAL, false);
     public static final ConfigOption<Integer> DYNAMODB_CLIENT_CONN_TIMEOUT =
         new ConfigOption<>(DYNAMODB_CLIENT_NAMESPACE, "connection-timeout",
         "The amount of time to wait (in milliseconds) when initially establishing a connection before giving up and timing out.", //
@@ -236,6 +401,28 @@ public final class Constants {
         new ConfigOption<>(DYNAMODB_CLIENT_EXECUTOR_NAMESPACE, "max-queue-length",
         "The maximum size of the executor queue before requests start getting run in the caller.",
         LOCAL, 1024);
+    public static final ConfigOption<Integer> DYNAMODB_CLIENT_EXECUTOR_WRITE_POOL_SIZE =
+        new ConfigOption<>(DYNAMODB_CLIENT_EXECUTOR_NAMESPACE, "write-pool-size",
+        "When greater than 0, writes run on a dedicated pool of this many threads, so that large commits do not queue "
+            + "ahead of reads. When 0, writes share the client executor.",
+        LOCAL, 0);
+    public static final ConfigOption<Integer> DYNAMODB_CLIENT_EXECUTOR_SCAN_POOL_SIZE =
+        new ConfigOption<>(DYNAMODB_CLIENT_EXECUTOR_NAMESPACE, "scan-pool-size",
+        "When greater than 0, scan pages run on a dedicated pool of this many threads, so that background scans do not "
+            + "queue ahead of reads. This pool also bounds the number of segments scanned concurrently. When 0, scans "
+            + "share the client executor.",
+        LOCAL, 0);
+    public static final ConfigOption<String> DYNAMODB_CLIENT_EXECUTOR_REJECTION_POLICY =
+        new ConfigOption<>(DYNAMODB_CLIENT_EXECUTOR_NAMESPACE, "rejection-policy",
+        "What happens to requests when the executor queue is full. CALLER_RUNS runs them in the calling thread. REJECT "
+            + "fails them with a TemporaryBackendException, so that overload surfaces as retriable errors instead of latency.",
+        LOCAL, "CALLER_RUNS");
+    public static final ConfigOption<Long> DYNAMODB_CLIENT_EXECUTOR_MAX_QUEUE_WAIT =
+        new ConfigOption<>(DYNAMODB_CLIENT_EXECUTOR_NAMESPACE, "max-queue-wait",
+        "When greater than 0, requests that are expected to wait in the executor queue for longer than this many "
+            + "milliseconds, judging by the depth of the queue and the observed run time of requests, fail right away "
+            + "with a TemporaryBackendException instead of being queued.",
+        LOCAL, 0L);
     public static final ConfigOption<Long> DYNAMODB_MAX_SELF_THROTTLED_RETRIES =
         new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "max-self-throttled-retries",
         "The max number of retries to use when DynamoDB throws temporary failure exceptions",
@@ -244,6 +431,22 @@ public final class Constants {
         new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "initial-retry-millis",
         "The initial retry time (in milliseconds) to use during exponential backoff between DynamoDB requests",
         LOCAL, 25L);
+    public static final ConfigOption<Long> DYNAMODB_AUTOSCALE_INTERVAL =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "autoscale-interval",
+        "When greater than 0, every this many milliseconds the capacity autoscaler adjusts the provisioned throughput of "
+            + "the tables of the stores that set a max capacity to the capacity they consumed, and sets the read and write "
+            + "rate limits of every table to its provisioned throughput.",
+        LOCAL, 0L);
+    public static final ConfigOption<Double> DYNAMODB_AUTOSCALE_TARGET_UTILIZATION =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "autoscale-target-utilization",
+        "The fraction of the provisioned throughput of a table that the capacity autoscaler aims for the consumed "
+            + "capacity to be.",
+        LOCAL, 0.7);
+    public static final ConfigOption<Integer> DYNAMODB_HOT_KEYS =
+        new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "hot-keys",
+        "The number of hash keys of each table to report as the hottest by consumed capacity, separately for reads, writes "
+            + "and failed conditional writes. Tracking adds work to every request. When 0, hot keys are not tracked.",
+        LOCAL, 0);
     public static final ConfigOption<Double> DYNAMODB_CONTROL_PLANE_RATE =
         new ConfigOption<>(DYNAMODB_CONFIGURATION_NAMESPACE, "control-plane-rate",
         "The maximum rate at which control plane requests (CreateTable, UpdateTable, DeleteTable, ListTables, "
@@ -17,16 +17,25 @@ package com.amazon.janusgraph.diskstorage.dynamodb;
 import java.io.IOException;
 import java.net.URL;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.ListTablesRequest;
 import org.janusgraph.diskstorage.BackendException;
 import org.janusgraph.diskstorage.BaseTransactionConfig;
 import org.janusgraph.diskstorage.PermanentBackendException;
 import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.StoreMetaData;
 import org.janusgraph.diskstorage.StoreMetaData.Container;
 import org.janusgraph.diskstorage.common.DistributedStoreManager;
 import org.janusgraph.diskstorage.configuration.Configuration;
@@ -47,7 +56,9 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -74,6 +85,24 @@ public class DynamoDBStoreManager extends DistributedStoreManager implements Key
     private final String prefixAndMutateManyKeys;
     private final String prefixAndMutateManyStores;
     private final Duration lockExpiryTime;
+    /**
+     * The store TTLs (in seconds) that stores were opened with.
+     */
+    private final Map<String, Integer> storeTtls = new ConcurrentHashMap<>();
+    /**
+     * Combines the updates of SINGLE items that concurrent transactions make, for the stores that enable it.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final WriteCombiner writeCombiner;
+    /**
+     * Runs the periodic maintenance of the stores, like removing expired local locks and autoscaling capacity.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final ScheduledExecutorService scheduler;
+    /**
+     * Whether a ListTables call already succeeded.
+     */
+    private volatile boolean exists;
 
     private static int getPort(final Configuration config) throws BackendException {
         final String endpoint = JanusGraphConfigUtil.getNullableConfigValue(config, Constants.DYNAMODB_CLIENT_ENDPOINT);
@@ -94,19 +123,78 @@ public class DynamoDBStoreManager extends DistributedStoreManager implements Key
 
     public DynamoDBStoreManager(final Configuration backendConfig) throws BackendException {
         super(backendConfig, getPort(backendConfig));
+        // validated before the client starts its executors, so that a bad option does not leak them
+        final long autoscaleInterval = backendConfig.get(Constants.DYNAMODB_AUTOSCALE_INTERVAL);
+        final double targetUtilization = backendConfig.get(Constants.DYNAMODB_AUTOSCALE_TARGET_UTILIZATION);
+        Preconditions.checkArgument(autoscaleInterval <= 0 || targetUtilization > 0 && targetUtilization <= 1,
+            Constants.DYNAMODB_AUTOSCALE_TARGET_UTILIZATION.getName() + " must be greater than 0 and at most 1");
         try {
             client = new Client(backendConfig);
         } catch (IllegalArgumentException e) {
             throw new PermanentBackendException("Bad configuration used: " + backendConfig.toString(), e);
         }
         prefix = client.getPrefix();
-        factory = new TableNameDynamoDbStoreFactory();
-        features = initializeFeatures(backendConfig);
-        prefixAndMutateMany = String.format("%s_mutateMany", prefix);
-        prefixAndMutateManyUpdateOrDeleteItemCalls = String.format("%s_mutateManyUpdateOrDeleteItemCalls", prefix);
-        prefixAndMutateManyKeys = String.format("%s_mutateManyKeys", prefix);
-        prefixAndMutateManyStores = String.format("%s_mutateManyStores", prefix);
-        lockExpiryTime = backendConfig.get(GraphDatabaseConfiguration.LOCK_EXPIRE);
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat(prefix + "-maintenance").setDaemon(true).build());
+        try {
+            writeCombiner = new WriteCombiner(client.getDelegate(), scheduler);
+            factory = new TableNameDynamoDbStoreFactory();
+            features = initializeFeatures(backendConfig);
+            prefixAndMutateMany = String.format("%s_mutateMany", prefix);
+            prefixAndMutateManyUpdateOrDeleteItemCalls = String.format("%s_mutateManyUpdateOrDeleteItemCalls", prefix);
+            prefixAndMutateManyKeys = String.format("%s_mutateManyKeys", prefix);
+            prefixAndMutateManyStores = String.format("%s_mutateManyStores", prefix);
+            lockExpiryTime = backendConfig.get(GraphDatabaseConfiguration.LOCK_EXPIRE);
+            if (backendConfig.get(Constants.DYNAMODB_BOOTSTRAP_STORES)) {
+                bootstrapTables();
+            }
+            if (autoscaleInterval > 0) {
+                scheduler.scheduleWithFixedDelay(new CapacityAutoscaler(client, targetUtilization), autoscaleInterval, autoscaleInterval,
+                    TimeUnit.MILLISECONDS);
+            }
+        } catch (BackendException | RuntimeException e) {
+            scheduler.shutdownNow();
+            client.getDelegate().shutdown();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates or finds the tables of all configured stores concurrently, so that the stores JanusGraph opens one at
+     * a time afterwards find their tables already active. Only the tables are created, because the stores JanusGraph
+     * opens may depend on store metadata that is not known yet.
+     * @throws BackendException if a table could not be created
+     */
+    private void bootstrapTables() throws BackendException {
+        final DynamoDbDelegate delegate = client.getDelegate();
+        final List<Callable<Void>> workers = new ArrayList<>();
+        for (CreateTableRequest table : getTableSchemas(client)) {
+            workers.add(() -> {
+                delegate.createTableAndWaitForActive(table);
+                if (client.isEnableTtl()) {
+                    delegate.enableTimeToLive(table.getTableName(), Constants.JANUSGRAPH_EXPIRY);
+                }
+                return null;
+            });
+        }
+        delegate.parallelControlPlane(workers);
+    }
+
+    /**
+     * @param client the client of the graph
+     * @return the schemas of the tables of all configured stores and of their key directories
+     */
+    @VisibleForTesting
+    static List<CreateTableRequest> getTableSchemas(final Client client) {
+        final List<CreateTableRequest> tables = new ArrayList<>();
+        for (String name : client.getStoreNames()) {
+            final String tableName = client.getPrefix() + "_" + name;
+            tables.add(client.dataModel(name).createTableSchema(client, tableName));
+            if (client.keyDirectoryBuckets(name) > 0) {
+                tables.add(BackendDataModel.MULTI.createTableSchema(client, tableName + KeyDirectory.TABLE_SUFFIX));
+            }
+        }
+        return tables;
     }
 
     @Override
@@ -118,15 +206,23 @@ public class DynamoDBStoreManager extends DistributedStoreManager implements Key
     @Override
     public void clearStorage() throws BackendException {
         log.debug("Entering clearStorage");
+        final List<Callable<Void>> workers = new ArrayList<>();
         for (AwsStore store : factory.getAllStores()) {
-            store.deleteStore();
+            workers.add(() -> {
+                store.deleteStore();
+                return null;
+            });
         }
+        client.getDelegate().parallelControlPlane(workers);
         log.debug("Exiting clearStorage returning:void");
     }
 
     @Override
     public boolean exists() throws BackendException {
-        return client.getDelegate().listTables(new ListTablesRequest()) != null;
+        if (!exists) {
+            exists = client.getDelegate().listTables(new ListTablesRequest()) != null;
+        }
+        return exists;
     }
 
     @Override
@@ -135,6 +231,7 @@ public class DynamoDBStoreManager extends DistributedStoreManager implements Key
         for (AwsStore store : factory.getAllStores()) {
             store.close();
         }
+        scheduler.shutdownNow();
         client.getDelegate().shutdown();
         log.debug("Exiting close returning:void");
     }
@@ -150,16 +247,16 @@ public class DynamoDBStoreManager extends DistributedStoreManager implements Key
     private StandardStoreFeatures initializeFeatures(final Configuration config) {
         final Builder builder = new StandardStoreFeatures.Builder();
         return builder.batchMutation(true)
-                      .cellTTL(false)
+                      .cellTTL(client.isCellTtlSupported())
                       .distributed(true)
                       .keyConsistent(config)
                       .keyOrdered(false)
                       .localKeyPartition(false)
                       .locking(config.get(Constants.DYNAMODB_USE_NATIVE_LOCKING))
                       .multiQuery(true)
-                      .orderedScan(false)
+                      .orderedScan(client.isKeyDirectoryEnabledForAllStores())
                       .preferredTimestamps(TimestampProviders.MILLI) //ignored because timestamps is false
-                      .storeTTL(false)
+                      .storeTTL(client.isEnableTtl())
                       .timestamps(false)
                       .transactional(false)
                       .supportsInterruption(false)
@@ -177,6 +274,7 @@ public class DynamoDBStoreManager extends DistributedStoreManager implements Key
             final DynamoDbStoreTransaction tx = DynamoDbStoreTransaction.getTx(txh);
 
             final List<MutateWorker> mutationWorkers = Lists.newLinkedList();
+            final List<CompletableFuture<Void>> combinedWrites = new ArrayList<>();
 
             // one pass to create tasks
             long updateOrDeleteItemCalls = 0;
@@ -189,7 +287,14 @@ public class DynamoDBStoreManager extends DistributedStoreManager implements Key
                 final Collection<MutateWorker> storeWorkers = store.createMutationWorkers(storeMutations, tx);
                 updateOrDeleteItemCalls += storeWorkers.size();
 
-                mutationWorkers.addAll(storeWorkers);
+                for (MutateWorker worker : storeWorkers) {
+                    if (worker instanceof WriteCombiner.CombinedUpdate) {
+                        // combined updates wait for their window on the scheduler, not on a thread of the write lane
+                        combinedWrites.add(((WriteCombiner.CombinedUpdate) worker).start());
+                    } else {
+                        mutationWorkers.add(worker);
+                    }
+                }
             }
 
             // shuffle the list of MutationWorkers so writes to edgestore and graphindex happen in parallel
@@ -202,6 +307,7 @@ public class DynamoDBStoreManager extends DistributedStoreManager implements Key
             client.getDelegate().getMeter(client.getDelegate().getMeterName(this.prefixAndMutateManyStores, null /*tableName*/))
                 .mark(mutations.size());
             client.getDelegate().parallelMutate(mutationWorkers);
+            WriteCombiner.awaitAll(combinedWrites);
         } finally {
             ctxt.stop();
         }
@@ -227,10 +333,20 @@ public class DynamoDBStoreManager extends DistributedStoreManager implements Key
     }
 
     @Override
-    public KeyColumnValueStore openDatabase(final String name, final Container arg1) throws BackendException {
-        // TODO revisit for TTL
-        // https://github.com/awslabs/dynamodb-titan-storage-backend/issues/70
-        return factory.create(this /*manager*/, prefix, name);
+    public KeyColumnValueStore openDatabase(final String name, final Container metaData) throws BackendException {
+        if (metaData.contains(StoreMetaData.TTL)) {
+            // stores read their TTL when they are created, so this must happen before the store is opened
+            storeTtls.putIfAbsent(name, metaData.get(StoreMetaData.TTL));
+        }
+        return openDatabase(name);
+    }
+
+    /**
+     * @param name the name of a store
+     * @return the TTL (in seconds) of every item written to the store, or 0 if the items of the store do not expire
+     */
+    int getStoreTtlSeconds(final String name) {
+        return storeTtls.getOrDefault(name, 0);
     }
 
     public Duration getLockExpiresDuration() {
@@ -28,27 +28,35 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.janusgraph.diskstorage.BackendException;
 import org.janusgraph.diskstorage.PermanentBackendException;
-import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.TemporaryBackendException;
 import org.janusgraph.diskstorage.configuration.Configuration;
 import org.janusgraph.diskstorage.locking.PermanentLockingException;
 import org.janusgraph.util.stats.MetricManager;
 
 import com.amazon.janusgraph.diskstorage.dynamodb.ExponentialBackoff.Scan;
+import com.amazon.janusgraph.diskstorage.dynamodb.builder.ConditionExpressionBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ParallelScanner;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ScanCheckpoint;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ScanSegmentWorker;
 import com.amazon.janusgraph.diskstorage.dynamodb.mutation.MutateWorker;
 import com.amazonaws.AmazonClientException;
@@ -75,12 +83,16 @@ import com.amazonaws.services.dynamodbv2.model.DeleteTableRequest;
 import com.amazonaws.services.dynamodbv2.model.DeleteTableResult;
 import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
 import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTimeToLiveRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTimeToLiveResult;
 import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
 import com.amazonaws.services.dynamodbv2.model.GetItemResult;
 import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
 import com.amazonaws.services.dynamodbv2.model.ListTablesRequest;
 import com.amazonaws.services.dynamodbv2.model.ListTablesResult;
 import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
 import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
 import com.amazonaws.services.dynamodbv2.model.PutItemResult;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
@@ -90,19 +102,27 @@ import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
 import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveDescription;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveStatus;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
 import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.amazonaws.util.AwsHostNameUtils;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.RateLimiter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -125,9 +145,17 @@ public class DynamoDbDelegate  {
     private static final String HASH_RANGE_KEY_SIZE_LIMIT = "Hash primary key values must be under 2048 bytes, and range primary key values must be under 1024 bytes";
     private static final String UPDATE_ITEM_SIZE_LIMIT = "Item size to update has exceeded the maximum allowed size";
     private static final String USER_AGENT = "x-amz-user-agent";
-    private static final String PUT_ITEM = "PutItem";
-    private static final String BATCH_WRITE_ITEM = "BatchWriteItem";
+    static final String PUT_ITEM = "PutItem";
+    static final String BATCH_WRITE_ITEM = "BatchWriteItem";
     private static final String DESCRIBE_TABLE = "DescribeTable";
+    private static final String UPDATE_TABLE = "UpdateTable";
+    private static final String DESCRIBE_TIME_TO_LIVE = "DescribeTimeToLive";
+    /**
+     * DynamoDB refreshes the item count and size of a table about every six hours, so descriptions used to size
+     * parallel scans may be reused for a while instead of calling DescribeTable for every scan.
+     */
+    private static final long SCAN_TABLE_DESCRIPTION_EXPIRY_MINUTES = 5L;
+    private static final String UPDATE_TIME_TO_LIVE = "UpdateTimeToLive";
     static final String UPDATE_ITEM = "UpdateItem";
     static final String DELETE_ITEM = "DeleteItem";
     static final String QUERY = "Query";
@@ -142,15 +170,68 @@ public class DynamoDbDelegate  {
 
     private static final int ONE_KILOBYTE = 1024;
     private static final long CONTROL_PLANE_RETRY_DELAY_MS = 1000;
+    private static final long CONTROL_PLANE_MIN_POLL_DELAY_MS = 50;
+    private static final String CONTROL_PLANE = "ControlPlane";
+    /**
+     * The number of tables that control plane work creates or deletes at the same time.
+     */
+    private static final int CONTROL_PLANE_THREADS = 10;
+    private static final String THROTTLED = "Throttled";
+    private static final String READ_REQUEST_UNITS = "ReadRequestUnits";
+    private static final String WRITE_REQUEST_UNITS = "WriteRequestUnits";
+    private static final String HOT_READ_KEYS = "HotReadKeys";
+    private static final String HOT_WRITE_KEYS = "HotWriteKeys";
+    private static final String HOT_CONDITION_FAILURE_KEYS = "HotConditionFailureKeys";
+    private static final String TOP_SHARE = "TopShare";
+    /**
+     * The error codes of requests that DynamoDB throttled other than ProvisionedThroughputExceededException.
+     */
+    private static final Set<String> THROTTLING_ERROR_CODES = ImmutableSet.of("ThrottlingException", "RequestLimitExceeded");
     private static final String LIST_TABLES = "ListTables";
+    static final String CALLER_RUNS = "CALLER_RUNS";
+    static final String REJECT = "REJECT";
     public static final int BATCH_WRITE_MAX_NUMBER_OF_ITEMS = 25;
+    // the largest TotalSegments value that DynamoDB accepts in a parallel Scan
+    private static final int MAX_TOTAL_SEGMENTS = 1000000;
 
     private final AmazonDynamoDB client;
     private final ThreadPoolExecutor clientThreadPool;
+    /**
+     * The tables that this delegate created or found accepting writes, and the tables on which it enabled TTL. A
+     * table is forgotten when this delegate deletes it.
+     */
+    private final Set<String> activeTables = ConcurrentHashMap.newKeySet();
+    private final Set<String> ttlEnabledTables = ConcurrentHashMap.newKeySet();
+    /**
+     * The recent descriptions of the tables that were scanned in parallel, used to size their scans.
+     */
+    private final Cache<String, TableDescription> scanTableDescriptions = CacheBuilder.newBuilder()
+        .expireAfterWrite(SCAN_TABLE_DESCRIPTION_EXPIRY_MINUTES, TimeUnit.MINUTES)
+        .build();
+    /**
+     * Shuts down the client and the client executor, or releases them if they are shared with other graphs.
+     */
+    private final Runnable release;
+    private final ExecutorLane readLane;
+    private final ExecutorLane writeLane;
+    private final ExecutorLane scanLane;
     private final Map<String, RateLimiter> readRateLimit;
     private final Map<String, RateLimiter> writeRateLimit;
+    /**
+     * The rate limit adjustments of the tables whose rate limits adapt to throttling instead of being fixed.
+     */
+    private final Map<String, AdaptiveRateLimit> adaptiveReadRateLimit = new HashMap<>();
+    private final Map<String, AdaptiveRateLimit> adaptiveWriteRateLimit = new HashMap<>();
     private final RateLimiter controlPlaneRateLimiter;
     private final int maxConcurrentUsers;
+    private final long scanSegmentSizeBytes;
+    private final int scanOverPartitionFactor;
+    private final int maxScanSegments;
+    /**
+     * The number of hot keys reported per table, or 0 if hot keys are not tracked.
+     */
+    private final int hotKeys;
+    private final Map<String, HotKeySketch> hotKeySketches = new ConcurrentHashMap<>();
     @Getter
     private final long maxRetries;
     @Getter
@@ -166,7 +247,7 @@ public class DynamoDbDelegate  {
         final ClientConfiguration clientConfig, final Configuration titanConfig,
         final Map<String, RateLimiter> readRateLimit, final Map<String, RateLimiter> writeRateLimit,
         final long maxRetries, final long retryMillis, final String prefix, final String metricsPrefix,
-        final RateLimiter controlPlaneRateLimiter) {
+        final RateLimiter controlPlaneRateLimiter, final List<Object> sharedClientKey, final Set<String> adaptiveTables) {
         if (prefix == null) {
             throw new IllegalArgumentException("prefix must be set");
         }
@@ -175,18 +256,42 @@ public class DynamoDbDelegate  {
         }
         this.metricsPrefix = metricsPrefix;
         executorGaugeName = String.format("%s.%s_executor-queue-size", this.metricsPrefix, prefix);
-        clientThreadPool = getPoolFromNs(titanConfig);
-        if (!MetricManager.INSTANCE.getRegistry().getNames().contains(executorGaugeName)) {
-            MetricManager.INSTANCE.getRegistry().register(executorGaugeName, (Gauge<Integer>) () -> clientThreadPool.getQueue().size());
-        }
-
-        client = AmazonDynamoDBClientBuilder.standard()
+        final Supplier<AmazonDynamoDB> clientFactory = () -> AmazonDynamoDBClientBuilder.standard()
                 .withCredentials(provider)
                 .withClientConfiguration(clientConfig)
                 .withEndpointConfiguration(getEndpointConfiguration(Optional.ofNullable(endpoint), region))
             .build();
+        if (sharedClientKey == null) {
+            client = clientFactory.get();
+            clientThreadPool = getPoolFromNs(titanConfig);
+            release = () -> {
+                client.shutdown();
+                clientThreadPool.shutdown();
+            };
+        } else {
+            final SharedClientRegistry.Resources resources = SharedClientRegistry.acquire(sharedClientKey, clientFactory,
+                () -> getPoolFromNs(titanConfig));
+            client = resources.getClient();
+            clientThreadPool = resources.getPool();
+            release = () -> SharedClientRegistry.release(sharedClientKey);
+        }
+        if (!MetricManager.INSTANCE.getRegistry().getNames().contains(executorGaugeName)) {
+            MetricManager.INSTANCE.getRegistry().register(executorGaugeName, (Gauge<Integer>) () -> clientThreadPool.getQueue().size());
+        }
+        final long maxQueueWaitMillis = titanConfig.get(Constants.DYNAMODB_CLIENT_EXECUTOR_MAX_QUEUE_WAIT);
+        Preconditions.checkArgument(maxQueueWaitMillis >= 0, "max-queue-wait must be at least 0");
+        readLane = createLane(titanConfig, prefix, "read", 0 /*threads*/, maxQueueWaitMillis);
+        writeLane = createLane(titanConfig, prefix, "write", titanConfig.get(Constants.DYNAMODB_CLIENT_EXECUTOR_WRITE_POOL_SIZE),
+            maxQueueWaitMillis);
+        scanLane = createLane(titanConfig, prefix, "scan", titanConfig.get(Constants.DYNAMODB_CLIENT_EXECUTOR_SCAN_POOL_SIZE),
+            maxQueueWaitMillis);
+
         this.readRateLimit = readRateLimit;
         this.writeRateLimit = writeRateLimit;
+        for (String tableName : adaptiveTables) {
+            adaptiveReadRateLimit.put(tableName, new AdaptiveRateLimit(readRateLimit.get(tableName)));
+            adaptiveWriteRateLimit.put(tableName, new AdaptiveRateLimit(writeRateLimit.get(tableName)));
+        }
         this.controlPlaneRateLimiter = controlPlaneRateLimiter;
         this.maxConcurrentUsers = titanConfig.get(Constants.DYNAMODB_CLIENT_EXECUTOR_MAX_CONCURRENT_OPERATIONS);
         this.maxRetries = maxRetries;
@@ -194,19 +299,40 @@ public class DynamoDbDelegate  {
         if (maxConcurrentUsers < 1) {
             throw new IllegalArgumentException("need at least one user otherwise wont make progress on scan");
         }
+        this.scanSegmentSizeBytes = titanConfig.get(Constants.DYNAMODB_PARALLEL_SCAN_SEGMENT_SIZE);
+        this.scanOverPartitionFactor = titanConfig.get(Constants.DYNAMODB_PARALLEL_SCAN_OVERPARTITION_FACTOR);
+        this.maxScanSegments = titanConfig.get(Constants.DYNAMODB_PARALLEL_SCAN_MAX_SEGMENTS);
+        Preconditions.checkArgument(scanSegmentSizeBytes > 0, "parallel-scan-segment-size must be positive");
+        Preconditions.checkArgument(scanOverPartitionFactor > 0, "parallel-scan-overpartition-factor must be positive");
+        Preconditions.checkArgument(maxScanSegments > 0 && maxScanSegments <= MAX_TOTAL_SEGMENTS,
+            "parallel-scan-max-segments must be between 1 and " + MAX_TOTAL_SEGMENTS);
+        this.hotKeys = titanConfig.get(Constants.DYNAMODB_HOT_KEYS);
+        Preconditions.checkArgument(hotKeys >= 0, Constants.DYNAMODB_HOT_KEYS.getName() + " must be at least 0");
         this.listTablesApiName = String.format("%s_ListTables", prefix);
     }
 
     static ThreadPoolExecutor getPoolFromNs(final Configuration ns) {
+        return createPool(ns, ns.get(Constants.DYNAMODB_CLIENT_EXECUTOR_CORE_POOL_SIZE), ns.get(Constants.DYNAMODB_CLIENT_EXECUTOR_MAX_POOL_SIZE),
+            "getDelegate-%d");
+    }
+
+    private static ThreadPoolExecutor createPool(final Configuration ns, final int corePoolSize, final int maxPoolSize, final String nameFormat) {
         final int maxQueueSize = ns.get(Constants.DYNAMODB_CLIENT_EXECUTOR_QUEUE_MAX_LENGTH);
-        final ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat("getDelegate-%d").build();
+        final String rejectionPolicy = ns.get(Constants.DYNAMODB_CLIENT_EXECUTOR_REJECTION_POLICY);
+        final RejectedExecutionHandler rejectionHandler;
+        if (REJECT.equals(rejectionPolicy)) {
+            rejectionHandler = new ThreadPoolExecutor.AbortPolicy();
+        } else if (CALLER_RUNS.equals(rejectionPolicy)) {
+            rejectionHandler = new ThreadPoolExecutor.CallerRunsPolicy();
+        } else {
+            throw new IllegalArgumentException("rejection-policy must be " + CALLER_RUNS + " or " + REJECT);
+        }
+        final ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat(nameFormat).build();
         //begin adaptation of constructor at
         //https://github.com/buka/titan/blob/master/src/main/java/com/thinkaurelius/titan/diskstorage/dynamodb/DynamoDBClient.java#L104
-        final int maxPoolSize = ns.get(Constants.DYNAMODB_CLIENT_EXECUTOR_MAX_POOL_SIZE);
-        final int corePoolSize = ns.get(Constants.DYNAMODB_CLIENT_EXECUTOR_CORE_POOL_SIZE);
         final long keepAlive = ns.get(Constants.DYNAMODB_CLIENT_EXECUTOR_KEEP_ALIVE);
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(corePoolSize, maxPoolSize, keepAlive,
-            TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxQueueSize), factory, new ThreadPoolExecutor.CallerRunsPolicy());
+            TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxQueueSize), factory, rejectionHandler);
         //end adaptation of constructor at
         //https://github.com/buka/titan/blob/master/src/main/java/com/thinkaurelius/titan/diskstorage/dynamodb/DynamoDBClient.java#L104
         executor.allowCoreThreadTimeOut(false);
@@ -214,6 +340,25 @@ public class DynamoDbDelegate  {
         return executor;
     }
 
+    /**
+     * @param ns the configuration of the client executor
+     * @param prefix the prefix of the tables of the graph
+     * @param lane the name of the lane
+     * @param threads the number of threads of the dedicated pool of the lane, or 0 to share the client executor
+     * @param maxQueueWaitMillis the time (in milliseconds) after which tasks that did not start yet are shed, or 0
+     * @return the lane
+     */
+    private ExecutorLane createLane(final Configuration ns, final String prefix, final String lane, final int threads,
+        final long maxQueueWaitMillis) {
+        Preconditions.checkArgument(threads >= 0, lane + "-pool-size must be at least 0");
+        final String metricName = String.format("%s.%s_%s-executor", metricsPrefix, prefix, lane);
+        if (threads == 0) {
+            return new ExecutorLane(lane, clientThreadPool, false /*dedicated*/, metricName, maxQueueWaitMillis);
+        }
+        return new ExecutorLane(lane, createPool(ns, threads, threads, lane + "Delegate-%d"), true /*dedicated*/, metricName,
+            maxQueueWaitMillis);
+    }
+
     @VisibleForTesting
     static AwsClientBuilder.EndpointConfiguration getEndpointConfiguration(final Optional<String> endpoint, final String signingRegion) {
         Preconditions.checkArgument(endpoint != null, "must provide an optional endpoint and not null");
@@ -244,6 +389,9 @@ public class DynamoDbDelegate  {
             prefix = String.format("%s_%s", apiName, tableName);
         }
         final String message = String.format("%s %s", prefix, e.getMessage());
+        if (tableName != null && isThrottlingException(e)) {
+            onThrottled(apiName, tableName);
+        }
         if (e instanceof ResourceNotFoundException) {
             return new BackendNotFoundException(String.format("%s; table not found", message), e);
         } else if (e instanceof ConditionalCheckFailedException) {
@@ -264,6 +412,33 @@ public class DynamoDbDelegate  {
         return new PermanentBackendException(message, e);
     }
 
+    private static boolean isThrottlingException(final Throwable e) {
+        return e instanceof ProvisionedThroughputExceededException
+            || e instanceof AmazonServiceException && THROTTLING_ERROR_CODES.contains(((AmazonServiceException) e).getErrorCode());
+    }
+
+    private static boolean isReadApi(final String apiName) {
+        return GET_ITEM.equals(apiName) || QUERY.equals(apiName) || SCAN.equals(apiName);
+    }
+
+    /**
+     * Counts a request that DynamoDB throttled, and lowers the rate limit of the table if it adapts to throttling.
+     * @param apiName the API of the request
+     * @param tableName the table of the request
+     */
+    private void onThrottled(final String apiName, final String tableName) {
+        getMeter(getMeterName(apiName + THROTTLED, tableName)).mark();
+        final AdaptiveRateLimit adaptiveLimit;
+        if (isReadApi(apiName)) {
+            adaptiveLimit = adaptiveReadRateLimit.get(tableName);
+        } else {
+            adaptiveLimit = adaptiveWriteRateLimit.get(tableName);
+        }
+        if (adaptiveLimit != null) {
+            adaptiveLimit.onThrottled();
+        }
+    }
+
     public ScanResult scan(final ScanRequest request, final int permitsToConsume) throws BackendException {
         setUserAgent(request);
         ScanResult result;
@@ -283,22 +458,116 @@ public class DynamoDbDelegate  {
     }
 
     ParallelScanner getParallelScanCompletionService(final ScanRequest initialRequest) throws BackendException {
-        final int segments = Math.max(1, clientThreadPool.getMaximumPoolSize() / maxConcurrentUsers);
-        final ParallelScanner completion = new ParallelScanner(clientThreadPool, segments, this);
+        return getParallelScanCompletionService(initialRequest, Optional.empty());
+    }
+
+    /**
+     * Starts a parallel scan, or resumes the parallel scan recorded in a checkpoint. Resumed scans keep the
+     * number of segments of the checkpoint, skip the segments that were finished and start the remaining
+     * segments after the last page that was consumed.
+     * @param initialRequest a fresh ScanRequest
+     * @param resumeFrom the checkpoint of the scan to resume, if any
+     * @return a scanner over all the segments of the table
+     * @throws BackendException if the table could not be described
+     */
+    ParallelScanner getParallelScanCompletionService(final ScanRequest initialRequest, final Optional<ScanCheckpoint> resumeFrom)
+        throws BackendException {
+        final int scanWorkers = getScanWorkers();
+        final int segments;
+        if (resumeFrom.isPresent()) {
+            segments = resumeFrom.get().getTotalSegments();
+        } else {
+            segments = getParallelScanSegments(initialRequest.getTableName());
+        }
+        log.debug("Scanning {} in {} segments with {} workers", initialRequest.getTableName(), segments, scanWorkers);
+        final ParallelScanner completion = new ParallelScanner(scanLane, segments, scanWorkers, this);
 
         for (int segment = 0; segment < segments; segment++) {
+            Map<String, AttributeValue> exclusiveStartKey = null;
+            if (resumeFrom.isPresent()) {
+                if (resumeFrom.get().isFinished(segment)) {
+                    completion.finishSegment(segment);
+                    continue;
+                }
+                exclusiveStartKey = resumeFrom.get().getExclusiveStartKey(segment);
+            }
             // dont need to set user agent here because ExponentialBackoff.Scan
             // calls DynamoDbDelegate.scan which sets it
-            final ScanRequest scanSegment = copyScanRequest(initialRequest).withTotalSegments(segments).withSegment(segment);
+            final ScanRequest scanSegment = copyScanRequest(initialRequest).withTotalSegments(segments).withSegment(segment)
+                .withExclusiveStartKey(exclusiveStartKey);
             completion.addWorker(new ScanSegmentWorker(this, scanSegment), segment);
         }
 
         return completion;
     }
 
+    /**
+     * Describes a table to work out how many segments a parallel scan of it should have. The description is reused
+     * by the scans of the table that start within a few minutes.
+     * @param tableName the table to scan
+     * @return the TotalSegments to use for a parallel scan of the table
+     * @throws BackendException if the table could not be described
+     */
+    int getParallelScanSegments(final String tableName) throws BackendException {
+        TableDescription td = scanTableDescriptions.getIfPresent(tableName);
+        if (td == null) {
+            td = describeTable(tableName);
+            scanTableDescriptions.put(tableName, td);
+        }
+        return computeTotalSegments(Optional.ofNullable(td.getItemCount()).orElse(0L),
+            Optional.ofNullable(td.getTableSizeBytes()).orElse(0L), getScanWorkers(), scanOverPartitionFactor, scanSegmentSizeBytes,
+            maxScanSegments);
+    }
+
+    /**
+     * The number of segments of a parallel scan that may have a page in flight at the same time.
+     * @return the number of scan workers available to one user of this delegate
+     */
+    int getScanWorkers() {
+        return Math.max(1, scanLane.getMaximumPoolSize() / maxConcurrentUsers);
+    }
+
+    /**
+     * Derives the total number of segments of a parallel scan from the size of the table. The table is
+     * split into segments of roughly parallel-scan-segment-size bytes, and into at least
+     * parallel-scan-overpartition-factor segments per worker so that a skewed segment does not leave the
+     * other workers idle at the end of the scan. There is no point in over-partitioning a table into more segments
+     * than items, but the item count may be stale or 0 for a table that was loaded recently, so it never lowers the
+     * number of segments below the size-based estimate.
+     * @param itemCount the approximate number of items in the table, as reported by DescribeTable
+     * @param tableSizeBytes the approximate size of the table, as reported by DescribeTable
+     * @param scanWorkers the number of segments that may be scanned concurrently
+     * @param overPartitionFactor the minimum number of segments per scan worker
+     * @param segmentSizeBytes the target size of a segment
+     * @param maxSegments the upper bound on the number of segments
+     * @return the TotalSegments to use for a parallel scan of the table
+     */
+    @VisibleForTesting
+    static int computeTotalSegments(final long itemCount, final long tableSizeBytes, final int scanWorkers,
+        final int overPartitionFactor, final long segmentSizeBytes, final int maxSegments) {
+        long segments = (long) scanWorkers * overPartitionFactor;
+        if (itemCount > 0) {
+            segments = Math.min(segments, itemCount);
+        }
+        segments = Math.max(segments, (tableSizeBytes + segmentSizeBytes - 1) / segmentSizeBytes);
+        return (int) Math.max(1L, Math.min(segments, maxSegments));
+    }
 
     public Future<ScanResult> scanAsync(final ScanRequest request, final int permitsToConsume) {
-        return clientThreadPool.submit(() -> {
+        return scanLane.submit(() -> {
+            final Scan backoff = new Scan(request, this, permitsToConsume);
+            return backoff.runWithBackoff();
+        });
+    }
+
+    /**
+     * Scans a page on the scan executor, like scanAsync, but returns a future that the next page can be chained on.
+     * @param request the request of the page
+     * @param permitsToConsume the read capacity units to acquire from the rate limiter of the table
+     * @return the future of the page
+     */
+    public CompletableFuture<ScanResult> scanPageAsync(final ScanRequest request, final int permitsToConsume) {
+        return scanLane.submitCompletable(() -> {
             final Scan backoff = new Scan(request, this, permitsToConsume);
             return backoff.runWithBackoff();
         });
@@ -321,101 +590,113 @@ public class DynamoDbDelegate  {
     }
 
     void parallelMutate(final List<MutateWorker> workers) throws BackendException {
-        final CompletionService<Void> completion = new ExecutorCompletionService<>(clientThreadPool);
-        final List<Future<Void>> futures = Lists.newLinkedList();
-        for (MutateWorker worker : workers) {
-            futures.add(completion.submit(worker));
-        }
+        runInParallel(workers, MUTATE_ITEM);
+    }
 
-        //block on the futures all getting or throwing instead of using a latch as i need to check future status anyway
-        boolean interrupted = false;
+    /**
+     * @param write a write
+     * @return the future of the write, which runs on the write lane
+     */
+    CompletableFuture<Void> submitWrite(final Callable<Void> write) {
+        return writeLane.submitCompletable(write);
+    }
+
+    /**
+     * Runs control plane work, such as creating or deleting the tables of several stores, concurrently. The work
+     * runs on threads of its own instead of the write lane, so that it neither waits behind writes nor is rejected or
+     * shed by the admission control of the lane, and it is rate limited by the control plane rate limiter.
+     * @param workers the work to run
+     * @throws BackendException if any of the work failed
+     */
+    void parallelControlPlane(final List<? extends Callable<Void>> workers) throws BackendException {
+        if (workers.isEmpty()) {
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers.size(), CONTROL_PLANE_THREADS),
+            new ThreadFactoryBuilder().setNameFormat("controlPlane-%d").setDaemon(true).build());
         try {
-            for (int i = 0; i < workers.size(); i++) {
-                try {
-                    completion.take().get(); //Void
-                } catch (InterruptedException e) {
-                    interrupted = true;
-                    // fail out because janusgraph does not poll this thread for interrupted anywhere
-                    throw new BackendRuntimeException("was interrupted during parallelMutate");
-                } catch (ExecutionException e) {
-                    throw unwrapExecutionException(e, MUTATE_ITEM);
-                }
+            final CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            final List<Future<Void>> futures = new ArrayList<>(workers.size());
+            for (Callable<Void> worker : workers) {
+                futures.add(completion.submit(worker));
             }
+            awaitAll(completion, futures, CONTROL_PLANE);
         } finally {
-            for (Future<Void> future : futures) {
-                if (!future.isDone()) {
-                    future.cancel(interrupted /* mayInterruptIfRunning */);
-                }
-            }
-            if (interrupted) {
-                // set interrupted on this thread
-                Thread.currentThread().interrupt();
-            }
+            executor.shutdown();
         }
     }
 
-    List<QueryResultWrapper> parallelQuery(final List<QueryWorker> queryWorkers) throws BackendException {
-        final CompletionService<QueryResultWrapper> completionService = new ExecutorCompletionService<>(clientThreadPool);
-
-        final List<Future<QueryResultWrapper>> futures = Lists.newLinkedList();
-        for (QueryWorker worker : queryWorkers) {
-            futures.add(completionService.submit(worker));
-        }
+    private void runInParallel(final List<? extends Callable<Void>> workers, final String apiName) throws BackendException {
+        final CompletionService<Void> completion = new ExecutorCompletionService<>(writeLane);
+        awaitAll(completion, writeLane.submitAll(completion, workers), apiName);
+    }
 
+    /**
+     * Waits for tasks of a completion service, and cancels the tasks that did not finish if one of them failed.
+     * @param completion the completion service the tasks were submitted to
+     * @param futures the futures of the tasks
+     * @param apiName the API the tasks call, to translate their exceptions
+     * @throws BackendException if any of the tasks failed
+     */
+    private void awaitAll(final CompletionService<Void> completion, final List<Future<Void>> futures, final String apiName)
+        throws BackendException {
+        //block on the futures all getting or throwing instead of using a latch as i need to check future status anyway
         boolean interrupted = false;
-        final List<QueryResultWrapper> results = Lists.newLinkedList();
         try {
-            for (int i = 0; i < queryWorkers.size(); i++) {
+            for (int i = 0; i < futures.size(); i++) {
                 try {
-                    final QueryResultWrapper result = completionService.take().get();
-                    results.add(result);
+                    completion.take().get(); //Void
                 } catch (InterruptedException e) {
                     interrupted = true;
                     // fail out because janusgraph does not poll this thread for interrupted anywhere
-                    throw new BackendRuntimeException("was interrupted during parallelQuery");
+                    throw new BackendRuntimeException("was interrupted during " + apiName);
                 } catch (ExecutionException e) {
-                    throw unwrapExecutionException(e, QUERY);
+                    throw unwrapExecutionException(e, apiName);
                 }
             }
         } finally {
-            for (Future<QueryResultWrapper> future : futures) {
+            for (Future<Void> future : futures) {
                 if (!future.isDone()) {
                     future.cancel(interrupted /* mayInterruptIfRunning */);
                 }
             }
-
             if (interrupted) {
-                // set interrupted on this thread and fail out
+                // set interrupted on this thread
                 Thread.currentThread().interrupt();
             }
         }
-        return results;
     }
 
-    Map<StaticBuffer, GetItemResult> parallelGetItem(final List<GetItemWorker> workers) throws BackendException {
-        final CompletionService<GetItemResultWrapper> completionService = new ExecutorCompletionService<>(clientThreadPool);
+    /**
+     * Runs read tasks in parallel on the read executor, so that each task can decode its response on the worker
+     * thread as soon as the response arrives.
+     * @param tasks the tasks to run
+     * @param apiName the API the tasks call, to translate their exceptions
+     * @param <T> the result type of the tasks
+     * @return the result of each task, in the order of the tasks
+     * @throws BackendException if any of the tasks failed
+     */
+    <T> List<T> parallelRead(final List<? extends Callable<T>> tasks, final String apiName) throws BackendException {
+        final CompletionService<T> completionService = new ExecutorCompletionService<>(readLane);
 
-        final List<Future<GetItemResultWrapper>> futures = Lists.newLinkedList();
-        for (GetItemWorker worker : workers) {
-            futures.add(completionService.submit(worker));
-        }
+        final List<Future<T>> futures = readLane.submitAll(completionService, tasks);
 
         boolean interrupted = false;
-        final Map<StaticBuffer, GetItemResult> results = Maps.newHashMap();
+        final List<T> results = new ArrayList<>(tasks.size());
         try {
-            for (int i = 0; i < workers.size(); i++) {
+            for (Future<T> future : futures) {
                 try {
-                    final GetItemResultWrapper result = completionService.take().get();
-                    results.put(result.getJanusGraphKey(), result.getDynamoDBResult());
+                    results.add(future.get());
                 } catch (InterruptedException e) {
                     interrupted = true;
-                    throw new BackendRuntimeException("was interrupted during parallelGet");
+                    // fail out because janusgraph does not poll this thread for interrupted anywhere
+                    throw new BackendRuntimeException("was interrupted during parallel " + apiName);
                 } catch (ExecutionException e) {
-                    throw unwrapExecutionException(e, GET_ITEM);
+                    throw unwrapExecutionException(e, apiName);
                 }
             }
         } finally {
-            for (Future<GetItemResultWrapper> future : futures) {
+            for (Future<T> future : futures) {
                 if (!future.isDone()) {
                     future.cancel(interrupted /* mayInterruptIfRunning */);
                 }
@@ -452,6 +733,7 @@ public class DynamoDbDelegate  {
             apiTimerContext.stop();
         }
         meterConsumedCapacity(GET_ITEM, result.getConsumedCapacity());
+        recordHotKey(HOT_READ_KEYS, request.getTableName(), request.getKey(), result.getConsumedCapacity());
         return result;
     }
 
@@ -479,6 +761,11 @@ public class DynamoDbDelegate  {
                     wcu = estimateCapacityUnits(apiName, tableName);
                 }
                 timedWriteThrottle(apiName, tableName, wcu);
+                if (request.getPutRequest() != null) {
+                    recordHotKey(HOT_WRITE_KEYS, tableName, request.getPutRequest().getItem(), wcu);
+                } else {
+                    recordHotKey(HOT_WRITE_KEYS, tableName, request.getDeleteRequest().getKey(), wcu);
+                }
             }
         }
 
@@ -513,6 +800,10 @@ public class DynamoDbDelegate  {
             apiTimerContext.stop();
         }
         meterConsumedCapacity(QUERY, result.getConsumedCapacity());
+        if (request.getExpressionAttributeValues() != null) {
+            recordHotKey(HOT_READ_KEYS, request.getTableName(), request.getExpressionAttributeValues().get(ConditionExpressionBuilder.K),
+                getCapacityUnits(result.getConsumedCapacity()));
+        }
         measureItemCount(QUERY, request.getTableName(), result.getCount());
         return result;
     }
@@ -529,11 +820,15 @@ public class DynamoDbDelegate  {
         try {
             result = client.putItem(request);
         } catch (Exception e) {
+            if (e instanceof ConditionalCheckFailedException) {
+                recordHotKey(HOT_CONDITION_FAILURE_KEYS, request.getTableName(), request.getItem(), 1.0);
+            }
             throw processDynamoDbApiException(e, PUT_ITEM, request.getTableName());
         } finally {
             apiTimerContext.stop();
         }
         meterConsumedCapacity(PUT_ITEM, result.getConsumedCapacity());
+        recordHotKey(HOT_WRITE_KEYS, request.getTableName(), request.getItem(), result.getConsumedCapacity());
 
         return result;
     }
@@ -555,11 +850,15 @@ public class DynamoDbDelegate  {
         try {
             result = client.updateItem(request);
         } catch (Exception e) {
+            if (e instanceof ConditionalCheckFailedException) {
+                recordHotKey(HOT_CONDITION_FAILURE_KEYS, request.getTableName(), request.getKey(), 1.0);
+            }
             throw processDynamoDbApiException(e, UPDATE_ITEM, request.getTableName());
         } finally {
             apiTimerContext.stop();
         }
         meterConsumedCapacity(UPDATE_ITEM, result.getConsumedCapacity());
+        recordHotKey(HOT_WRITE_KEYS, request.getTableName(), request.getKey(), result.getConsumedCapacity());
 
         return result;
     }
@@ -592,11 +891,15 @@ public class DynamoDbDelegate  {
         try {
             result = client.deleteItem(request);
         } catch (Exception e) {
+            if (e instanceof ConditionalCheckFailedException) {
+                recordHotKey(HOT_CONDITION_FAILURE_KEYS, request.getTableName(), request.getKey(), 1.0);
+            }
             throw processDynamoDbApiException(e, DELETE_ITEM, request.getTableName());
         } finally {
             apiTimerContext.stop();
         }
         meterConsumedCapacity(DELETE_ITEM, result.getConsumedCapacity());
+        recordHotKey(HOT_WRITE_KEYS, request.getTableName(), request.getKey(), result.getConsumedCapacity());
 
         return result;
     }
@@ -612,6 +915,51 @@ public class DynamoDbDelegate  {
         return cu;
     }
 
+    /**
+     * @param apiName the data plane API
+     * @param tableName the table
+     * @return the capacity units per second the API consumed on the table, averaged over the last minute
+     */
+    double getConsumedCapacityRate(final String apiName, final String tableName) {
+        return getConsumedCapacityMeter(apiName, tableName).getOneMinuteRate();
+    }
+
+    /**
+     * @param apiName the data plane API
+     * @param tableName the table
+     * @return the timer of the time calls of the API spent waiting for the rate limiter of the table
+     */
+    Timer getThrottleTimer(final String apiName, final String tableName) {
+        return getTimer(String.format("%sThrottling", apiName), tableName);
+    }
+
+    /**
+     * Sets the rates of the rate limiters of a table, for example to the provisioned throughput of the table. The rate
+     * limiters of tables whose rate limits adapt to throttling are left alone, so that their adjustments are kept.
+     * @param tableName the table
+     * @param readRate the read capacity units per second
+     * @param writeRate the write capacity units per second
+     */
+    void setRateLimits(final String tableName, final double readRate, final double writeRate) {
+        if (adaptiveReadRateLimit.containsKey(tableName)) {
+            return;
+        }
+        readRateLimit(tableName).setRate(readRate);
+        writeRateLimit(tableName).setRate(writeRate);
+    }
+
+    void updateProvisionedThroughput(final String tableName, final ProvisionedThroughput throughput) throws BackendException {
+        controlPlaneRateLimiter.acquire();
+        final Timer.Context apiTimerContext = getTimerContext(UPDATE_TABLE, tableName);
+        try {
+            client.updateTable(new UpdateTableRequest().withTableName(tableName).withProvisionedThroughput(throughput));
+        } catch (final Exception e) {
+            throw processDynamoDbApiException(e, UPDATE_TABLE, tableName);
+        } finally {
+            apiTimerContext.stop();
+        }
+    }
+
     private RateLimiter readRateLimit(final String tableName) {
         return readRateLimit.get(tableName);
     }
@@ -621,20 +969,25 @@ public class DynamoDbDelegate  {
     }
 
     private void timedWriteThrottle(final String apiName, final String tableName, final int permits) {
-        timedThrottle(apiName, writeRateLimit(tableName), tableName, permits);
+        timedThrottle(apiName, writeRateLimit(tableName), adaptiveWriteRateLimit.get(tableName), tableName, permits);
     }
 
     private void timedReadThrottle(final String apiName, final String tableName, final int permits) {
-        timedThrottle(apiName, readRateLimit(tableName), tableName, permits);
+        timedThrottle(apiName, readRateLimit(tableName), adaptiveReadRateLimit.get(tableName), tableName, permits);
     }
 
-    private void timedThrottle(final String apiName, final RateLimiter limiter, final String tableName, final int permits) {
+    private void timedThrottle(final String apiName, final RateLimiter limiter, final AdaptiveRateLimit adaptiveLimit, final String tableName,
+        final int permits) {
         if (limiter == null) {
             throw new IllegalArgumentException("limiter for " + apiName + " on table " + tableName + " was null");
         }
         final Timer.Context throttleTimerCtxt = getTimerContext(String.format("%sThrottling", apiName), tableName);
         try {
-            limiter.acquire(permits);
+            if (adaptiveLimit == null) {
+                limiter.acquire(permits);
+            } else {
+                adaptiveLimit.acquire(permits);
+            }
         } finally {
             throttleTimerCtxt.stop();
         }
@@ -660,7 +1013,7 @@ public class DynamoDbDelegate  {
         return worker.getMergedPages();
     }
 
-    private TableDescription describeTable(final String tableName) throws BackendException {
+    TableDescription describeTable(final String tableName) throws BackendException {
         return describeTable(new DescribeTableRequest().withTableName(tableName)).getTable();
     }
 
@@ -679,6 +1032,9 @@ public class DynamoDbDelegate  {
     }
 
     public DeleteTableResult deleteTable(final DeleteTableRequest request) throws BackendException {
+        activeTables.remove(request.getTableName());
+        ttlEnabledTables.remove(request.getTableName());
+        scanTableDescriptions.invalidate(request.getTableName());
         controlPlaneRateLimiter.acquire();
         final Timer.Context apiTimerContext = getTimerContext(DELETE_TABLE, request.getTableName());
         DeleteTableResult result;
@@ -705,9 +1061,25 @@ public class DynamoDbDelegate  {
         }
     }
 
+    /**
+     * Sleeps between two polls of the status of a table. Polls start out frequent, so that tables that become ready
+     * quickly, like tables of DynamoDB Local, are noticed quickly, and back off to one poll per second.
+     * @param delay the time (in milliseconds) to sleep
+     * @return the time (in milliseconds) to sleep before the next poll
+     */
+    private long sleepBeforeNextPoll(final long delay) {
+        interruptibleSleep(delay);
+        return Math.min(delay * 2, CONTROL_PLANE_RETRY_DELAY_MS);
+    }
+
+    private long getControlPlaneDeadline() {
+        return System.currentTimeMillis() + CONTROL_PLANE_RETRY_DELAY_MS * maxRetries;
+    }
+
     boolean ensureTableDeleted(final String tableName) throws BackendException {
         boolean successFlag = false;
-        int retryCount = 0;
+        final long deadline = getControlPlaneDeadline();
+        long delay = CONTROL_PLANE_MIN_POLL_DELAY_MS;
         do {
             try {
                 this.describeTable(tableName);
@@ -716,9 +1088,8 @@ public class DynamoDbDelegate  {
                 break;
             }
 
-            interruptibleSleep(CONTROL_PLANE_RETRY_DELAY_MS);
-            retryCount++;
-        } while (!successFlag && retryCount < maxRetries);
+            delay = sleepBeforeNextPoll(delay);
+        } while (!successFlag && System.currentTimeMillis() < deadline);
         if (!successFlag) {
             throw new PermanentBackendException("Table deletion not completed after retrying " + maxRetries + " times");
         }
@@ -754,8 +1125,9 @@ public class DynamoDbDelegate  {
     public void waitForTableCreation(final String tableName, final boolean verifyIndexesList,
         final List<LocalSecondaryIndexDescription> expectedLsiList, final List<GlobalSecondaryIndexDescription> expectedGsiList) throws BackendException {
         boolean successFlag = false;
-        int retryCount = 0;
-        while (!successFlag && retryCount < maxRetries) {
+        final long deadline = getControlPlaneDeadline();
+        long delay = CONTROL_PLANE_MIN_POLL_DELAY_MS;
+        while (!successFlag && System.currentTimeMillis() < deadline) {
             try {
                 boolean areAllGsisActive = true;
                 final TableDescription td = describeTable(tableName);
@@ -796,14 +1168,14 @@ public class DynamoDbDelegate  {
             }
 
             if (!successFlag) {
-                interruptibleSleep(CONTROL_PLANE_RETRY_DELAY_MS);
+                delay = sleepBeforeNextPoll(delay);
             }
-            retryCount++;
         }
         if (!successFlag) {
-            throw new PermanentBackendException("Table creation not completed for table " + tableName + " after retrying "
-                    + this.maxRetries + " times for a duration of " + CONTROL_PLANE_RETRY_DELAY_MS * this.maxRetries + " ms");
+            throw new PermanentBackendException("Table creation not completed for table " + tableName + " after polling "
+                    + "for a duration of " + CONTROL_PLANE_RETRY_DELAY_MS * this.maxRetries + " ms");
         }
+        activeTables.add(tableName);
     }
 
     private static boolean areGsisSameConfiguration(final List<GlobalSecondaryIndexDescription> g1,
@@ -858,10 +1230,14 @@ public class DynamoDbDelegate  {
     void createTableAndWaitForActive(final CreateTableRequest request) throws BackendException {
         final String tableName = request.getTableName();
         Preconditions.checkArgument(!Strings.isNullOrEmpty(tableName), "Table name was null or empty");
+        if (activeTables.contains(tableName)) {
+            return; //store was already ensured
+        }
         final TableDescription desc;
         try {
             desc = this.describeTable(tableName);
             if (null != desc && isTableAcceptingWrites(desc.getTableStatus())) {
+                activeTables.add(tableName);
                 return; //store existed
             }
         } catch (BackendNotFoundException e) {
@@ -872,11 +1248,55 @@ public class DynamoDbDelegate  {
         waitForTableCreation(tableName, false /*verifyIndexesList*/, null /*expectedLsiList*/, null /*expectedGsiList*/);
     }
 
+    /**
+     * Enables DynamoDB's item expiry on an attribute of a table, unless it is already enabled on that attribute.
+     * @param tableName the name of the table
+     * @param attributeName the attribute that holds the expiry time of an item, in seconds since the epoch
+     * @throws BackendException if the TTL of the table could not be described or updated
+     */
+    void enableTimeToLive(final String tableName, final String attributeName) throws BackendException {
+        if (ttlEnabledTables.contains(tableName)) {
+            return;
+        }
+        controlPlaneRateLimiter.acquire();
+        final Timer.Context describeTimerContext = getTimerContext(DESCRIBE_TIME_TO_LIVE, tableName);
+        final DescribeTimeToLiveResult description;
+        try {
+            description = client.describeTimeToLive(new DescribeTimeToLiveRequest().withTableName(tableName));
+        } catch (final Exception e) {
+            throw processDynamoDbApiException(e, DESCRIBE_TIME_TO_LIVE, tableName);
+        } finally {
+            describeTimerContext.stop();
+        }
+        final TimeToLiveDescription ttl = description.getTimeToLiveDescription();
+        if (ttl != null && attributeName.equals(ttl.getAttributeName())
+            && (TimeToLiveStatus.ENABLED.toString().equals(ttl.getTimeToLiveStatus())
+                || TimeToLiveStatus.ENABLING.toString().equals(ttl.getTimeToLiveStatus()))) {
+            ttlEnabledTables.add(tableName);
+            return;
+        }
+
+        controlPlaneRateLimiter.acquire();
+        final Timer.Context updateTimerContext = getTimerContext(UPDATE_TIME_TO_LIVE, tableName);
+        try {
+            client.updateTimeToLive(new UpdateTimeToLiveRequest().withTableName(tableName)
+                .withTimeToLiveSpecification(new TimeToLiveSpecification().withAttributeName(attributeName).withEnabled(true)));
+        } catch (final Exception e) {
+            throw processDynamoDbApiException(e, UPDATE_TIME_TO_LIVE, tableName);
+        } finally {
+            updateTimerContext.stop();
+        }
+        ttlEnabledTables.add(tableName);
+    }
+
     public void shutdown() {
         MetricManager.INSTANCE.getRegistry().remove(executorGaugeName);
-        // TODO(amcp) figure out a way to make the thread pool not be static
-        // https://github.com/awslabs/dynamodb-titan-storage-backend/issues/48
-        client.shutdown();
+        hotKeySketches.keySet().forEach(name -> MetricManager.INSTANCE.getRegistry().remove(name));
+        hotKeySketches.keySet().forEach(name -> MetricManager.INSTANCE.getRegistry().remove(name + TOP_SHARE));
+        readLane.shutdown();
+        writeLane.shutdown();
+        scanLane.shutdown();
+        release.run();
     }
 
     private Timer getTimer(final String apiName, final String tableName) {
@@ -900,8 +1320,72 @@ public class DynamoDbDelegate  {
     }
     private void meterConsumedCapacity(final String apiName, final ConsumedCapacity ccu) {
         if (ccu != null) {
-            getConsumedCapacityMeter(apiName, ccu.getTableName()).mark(Math.round(ccu.getCapacityUnits()));
+            final long units = Math.round(ccu.getCapacityUnits());
+            getConsumedCapacityMeter(apiName, ccu.getTableName()).mark(units);
+            // the request units of a table, which is what an on-demand table is billed for
+            if (isReadApi(apiName)) {
+                getMeter(getMeterName(READ_REQUEST_UNITS, ccu.getTableName())).mark(units);
+            } else {
+                getMeter(getMeterName(WRITE_REQUEST_UNITS, ccu.getTableName())).mark(units);
+            }
+        }
+    }
+    private static double getCapacityUnits(final ConsumedCapacity ccu) {
+        if (ccu == null || ccu.getCapacityUnits() == null) {
+            return 1.0;
+        }
+        return ccu.getCapacityUnits();
+    }
+    private void recordHotKey(final String sketchName, final String tableName, final Map<String, AttributeValue> item,
+        final ConsumedCapacity ccu) {
+        recordHotKey(sketchName, tableName, item, getCapacityUnits(ccu));
+    }
+    private void recordHotKey(final String sketchName, final String tableName, final Map<String, AttributeValue> item, final double weight) {
+        if (item != null) {
+            recordHotKey(sketchName, tableName, item.get(Constants.JANUSGRAPH_HASH_KEY), weight);
+        }
+    }
+    /**
+     * Adds the weight of a hash key to the hot key sketch of a table. The top keys of the sketch are reported by a gauge
+     * named after the sketch, and the share of the top key by a gauge with the TopShare suffix.
+     */
+    private void recordHotKey(final String sketchName, final String tableName, final AttributeValue hashKey, final double weight) {
+        if (hotKeys == 0 || hashKey == null || hashKey.getS() == null) {
+            return;
+        }
+        final String gaugeName = getMeterName(sketchName, tableName);
+        HotKeySketch sketch = hotKeySketches.get(gaugeName);
+        if (sketch == null) {
+            final HotKeySketch created = new HotKeySketch(hotKeys);
+            sketch = hotKeySketches.putIfAbsent(gaugeName, created);
+            if (sketch == null) {
+                sketch = created;
+                final MetricRegistry registry = MetricManager.INSTANCE.getRegistry();
+                if (!registry.getNames().contains(gaugeName)) {
+                    registry.register(gaugeName, (Gauge<String>) () -> created.getTopKeys().toString());
+                    registry.register(gaugeName + TOP_SHARE, (Gauge<Double>) created::getTopShare);
+                }
+            }
+        }
+        sketch.add(hashKey.getS(), weight);
+    }
+    /**
+     * @param tableName the table
+     * @return the hottest keys of the table by consumed write capacity, or an empty list if none were recorded
+     */
+    List<HotKeySketch.HotKey> getHotWriteKeys(final String tableName) {
+        final HotKeySketch sketch = hotKeySketches.get(getMeterName(HOT_WRITE_KEYS, tableName));
+        if (sketch == null) {
+            return Collections.emptyList();
         }
+        return sketch.getTopKeys();
+    }
+    /**
+     * @param tableName the table
+     * @return the write request units per second the table consumed, averaged over the last minute
+     */
+    double getWriteRequestUnitsRate(final String tableName) {
+        return getMeter(getMeterName(WRITE_REQUEST_UNITS, tableName)).getOneMinuteRate();
     }
     private String getQuantityName(final String apiName, final String tableName, final String quantity) {
         return getMeterName(String.format("%s%s", apiName, quantity), tableName);
@@ -16,8 +16,11 @@ package com.amazon.janusgraph.diskstorage.dynamodb;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.janusgraph.diskstorage.BackendException;
@@ -26,7 +29,6 @@ import org.janusgraph.diskstorage.EntryList;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.keycolumnvalue.KCVMutation;
 import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
-import org.janusgraph.diskstorage.keycolumnvalue.KeyRangeQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.KeySliceQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
@@ -36,9 +38,9 @@ import com.amazon.janusgraph.diskstorage.dynamodb.builder.EntryBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.ItemBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.SingleExpectedAttributeValueBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.SingleUpdateBuilder;
+import com.amazon.janusgraph.diskstorage.dynamodb.cache.SingleRowCache;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ScanBackedKeyIterator;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.Scanner;
-import com.amazon.janusgraph.diskstorage.dynamodb.iterator.SequentialScanner;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.SingleRowScanInterpreter;
 import com.amazon.janusgraph.diskstorage.dynamodb.mutation.MutateWorker;
 import com.amazon.janusgraph.diskstorage.dynamodb.mutation.SingleUpdateWithCleanupWorker;
@@ -57,6 +59,7 @@ import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -78,14 +81,42 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class DynamoDbSingleRowStore extends AbstractDynamoDbStore {
+    /**
+     * The cache of whole rows of this store, or null if the store does not cache rows.
+     */
+    private final SingleRowCache rowCache;
+    private final WriteCombiner writeCombiner;
+    /**
+     * The time (in milliseconds) unconditional updates of the same item are combined for, or 0 if they are not combined.
+     */
+    private final long writeCombiningWindowMillis;
 
     DynamoDbSingleRowStore(final DynamoDBStoreManager manager, final String prefix, final String storeName) {
         super(manager, prefix, storeName);
+        final long rowCacheBytes = client.rowCacheBytes(storeName);
+        // cached rows would outlive the expiry of the items of stores with a TTL
+        if (rowCacheBytes > 0 && getStoreTtlSeconds() == 0) {
+            this.rowCache = new SingleRowCache(rowCacheBytes, client.rowCacheStalenessMillis(storeName),
+                metric -> client.getDelegate().getMeterName(metric, getTableName()));
+        } else {
+            this.rowCache = null;
+        }
+        this.writeCombiner = manager.getWriteCombiner();
+        this.writeCombiningWindowMillis = client.writeCombiningWindowMillis(storeName);
     }
 
     @Override
     public CreateTableRequest getTableSchema() {
-        return super.getTableSchema()
+        return createTableSchema(client, getTableName());
+    }
+
+    /**
+     * @param client the client of the store
+     * @param tableName the table of the store
+     * @return the create table request of the table of a SINGLE store, whose items are keyed by the hash key alone
+     */
+    static CreateTableRequest createTableSchema(final Client client, final String tableName) {
+        return createBaseTableSchema(client, tableName)
             .withAttributeDefinitions(
                 new AttributeDefinition()
                     .withAttributeName(Constants.JANUSGRAPH_HASH_KEY)
@@ -96,16 +127,65 @@ public class DynamoDbSingleRowStore extends AbstractDynamoDbStore {
                     .withKeyType(KeyType.HASH));
     }
 
-    @Override
-    public KeyIterator getKeys(final KeyRangeQuery query, final StoreTransaction txh) throws BackendException {
-        throw new UnsupportedOperationException("Keys are not byte ordered.");
-    }
-
     private GetItemWorker createGetItemWorker(final StaticBuffer hashKey) {
         final GetItemRequest request = super.createGetItemRequest().withKey(new ItemBuilder().hashKey(hashKey).build());
         return new GetItemWorker(hashKey, request, client.getDelegate());
     }
 
+    /**
+     * @param hashKey the key of a row
+     * @param decoder decodes the result of the GetItem of the row
+     * @return a task that reads the row, and decodes it on the worker thread as soon as the response arrives
+     */
+    private Callable<Map.Entry<StaticBuffer, EntryList>> decodeOnWorker(final StaticBuffer hashKey,
+        final Function<GetItemResult, EntryList> decoder) {
+        final GetItemWorker worker = createGetItemWorker(hashKey);
+        return () -> Maps.immutableEntry(hashKey, decoder.apply(worker.call().getDynamoDBResult()));
+    }
+
+    private static EntryList decodeRow(final Map<String, AttributeValue> item) {
+        if (null == item) {
+            return EntryList.EMPTY_LIST;
+        }
+        return StaticArrayEntryList.of(new EntryBuilder(item).buildAll());
+    }
+
+    private static EntryList sliceRow(final EntryList row, final SliceQuery query) {
+        return StaticArrayEntryList.of(row.stream()
+            .filter(entry -> entry.getColumn().compareTo(query.getSliceStart()) >= 0 && entry.getColumn().compareTo(query.getSliceEnd()) < 0)
+            .limit(query.getLimit())
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * Reads whole rows through the row cache, with one GetItem for each row that is not cached.
+     * @param keys the keys of the rows
+     * @return the rows by key
+     * @throws BackendException if a row could not be read
+     */
+    private Map<StaticBuffer, EntryList> getCachedRows(final List<StaticBuffer> keys) throws BackendException {
+        final Map<StaticBuffer, EntryList> rows = new HashMap<>();
+        final Map<StaticBuffer, Long> readVersions = new HashMap<>();
+        for (StaticBuffer key : keys) {
+            final EntryList row = rowCache.getIfPresent(key);
+            if (row == null) {
+                readVersions.put(key, rowCache.startRead(key));
+            } else {
+                rows.put(key, row);
+            }
+        }
+        if (!readVersions.isEmpty()) {
+            final List<Map.Entry<StaticBuffer, EntryList>> results = client.getDelegate().parallelRead(readVersions.keySet().stream()
+                .map(key -> decodeOnWorker(key, result -> decodeRow(result.getItem())))
+                .collect(Collectors.toList()), DynamoDbDelegate.GET_ITEM);
+            for (Map.Entry<StaticBuffer, EntryList> result : results) {
+                rowCache.putAfterRead(result.getKey(), result.getValue(), readVersions.get(result.getKey()));
+                rows.put(result.getKey(), result.getValue());
+            }
+        }
+        return rows;
+    }
+
     private EntryList extractEntriesFromGetItemResult(final GetItemResult result, final StaticBuffer sliceStart, final StaticBuffer sliceEnd, final int limit) {
         final Map<String, AttributeValue> item = result.getItem();
         List<Entry> filteredEntries = Collections.emptyList();
@@ -125,12 +205,7 @@ public class DynamoDbSingleRowStore extends AbstractDynamoDbStore {
 
         final ScanRequest scanRequest = super.createScanRequest();
 
-        final Scanner scanner;
-        if (client.isEnableParallelScan()) {
-            scanner = client.getDelegate().getParallelScanCompletionService(scanRequest);
-        } else {
-            scanner = new SequentialScanner(client.getDelegate(), scanRequest);
-        }
+        final Scanner scanner = createScanner(scanRequest, query);
         // Because SINGLE records cannot be split across scan results, we can use the same interpreter for both
         // sequential and parallel scans.
         final KeyIterator result = new ScanBackedKeyIterator(scanner, new SingleRowScanInterpreter(query));
@@ -139,9 +214,23 @@ public class DynamoDbSingleRowStore extends AbstractDynamoDbStore {
         return result;
     }
 
+    @Override
+    public List<KeyIterator> getKeySegments(final SliceQuery query, final StoreTransaction txh) throws BackendException {
+        log.debug("Entering getKeySegments table:{} query:{} txh:{}", getTableName(), encodeForLog(query), txh);
+        final List<KeyIterator> result = createSegmentKeyIterators(super.createScanRequest(), new SingleRowScanInterpreter(query));
+        log.debug("Exiting getKeySegments table:{} query:{} txh:{} returning:{} segments", getTableName(), encodeForLog(query), txh, result.size());
+        return result;
+    }
+
     @Override
     public EntryList getSlice(final KeySliceQuery query, final StoreTransaction txh) throws BackendException {
         log.debug("Entering getSliceKeySliceQuery table:{} query:{} txh:{}", getTableName(), encodeForLog(query), txh);
+        if (rowCache != null) {
+            final EntryList cachedEntries = sliceRow(getCachedRows(Collections.singletonList(query.getKey())).get(query.getKey()), query);
+            log.debug("Exiting getSliceKeySliceQuery table:{} query:{} txh:{} returning:{}", getTableName(), encodeForLog(query), txh,
+                      cachedEntries.size());
+            return cachedEntries;
+        }
         final GetItemRequest request = super.createGetItemRequest().withKey(new ItemBuilder().hashKey(query.getKey()).build());
         final GetItemResult result = new ExponentialBackoff.GetItem(request, client.getDelegate()).runWithBackoff();
 
@@ -155,13 +244,21 @@ public class DynamoDbSingleRowStore extends AbstractDynamoDbStore {
     public Map<StaticBuffer, EntryList> getSlice(final List<StaticBuffer> keys, final SliceQuery query, final StoreTransaction txh) throws BackendException {
         log.debug("Entering getSliceMultiSliceQuery table:{} keys:{} query:{} txh:{}", getTableName(), encodeForLog(keys), encodeForLog(query),
                 txh);
+        if (rowCache != null) {
+            final Map<StaticBuffer, EntryList> cachedEntries = getCachedRows(keys).entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> sliceRow(entry.getValue(), query)));
+            log.debug("Exiting getSliceMultiSliceQuery table:{} keys:{} query:{} txh:{} returning:{}", getTableName(), encodeForLog(keys),
+                encodeForLog(query), txh, cachedEntries.size());
+            return cachedEntries;
+        }
         final Map<StaticBuffer, EntryList> entries =
-                //convert keys to get item workers and get the items
-                client.getDelegate().parallelGetItem(keys.stream().map(this::createGetItemWorker).collect(Collectors.toList()))
-                        .entrySet()
+                //convert keys to get item workers that decode the items, and collect the decoded entries
+                client.getDelegate().parallelRead(keys.stream()
+                        .map(key -> decodeOnWorker(key, result -> extractEntriesFromGetItemResult(result, query.getSliceStart(),
+                                query.getSliceEnd(), query.getLimit())))
+                        .collect(Collectors.toList()), DynamoDbDelegate.GET_ITEM)
                         .stream()
-                            .collect(Collectors.toMap(Map.Entry::getKey, entry -> extractEntriesFromGetItemResult(entry.getValue(),
-                                    query.getSliceStart(), query.getSliceEnd(), query.getLimit())));
+                            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (first, second) -> first));
 
         log.debug("Exiting getSliceMultiSliceQuery table:{} keys:{} query:{} txh:{} returning:{}",
                 getTableName(),
@@ -207,10 +304,14 @@ public class DynamoDbSingleRowStore extends AbstractDynamoDbStore {
             final Map<String, ExpectedAttributeValue> expected =
                 new SingleExpectedAttributeValueBuilder(this, txh, hashKey).build(mutation);
 
-            final Map<String, AttributeValueUpdate> attributeValueUpdates =
-                new SingleUpdateBuilder().deletions(mutation.getDeletions())
-                    .additions(mutation.getAdditions())
-                    .build();
+            final SingleUpdateBuilder updateBuilder = new SingleUpdateBuilder().deletions(mutation.getDeletions())
+                    .additions(mutation.getAdditions());
+            // SINGLE items only support the TTL of the store, which every write with additions renews
+            final Long expiry = getExpiry(null /*entry*/);
+            if (expiry != null && mutation.hasAdditions()) {
+                updateBuilder.expiry(expiry);
+            }
+            final Map<String, AttributeValueUpdate> attributeValueUpdates = updateBuilder.build();
 
             final UpdateItemRequest request = super.createUpdateItemRequest()
                    .withKey(key)
@@ -219,14 +320,52 @@ public class DynamoDbSingleRowStore extends AbstractDynamoDbStore {
                    .withExpected(expected);
 
             final MutateWorker worker;
-            if (mutation.hasDeletions() && !mutation.hasAdditions()) {
+            if (rowCache != null) {
+                // the cleanup worker keeps the row returned by the update, so that it can be written through the row cache
+                worker = createWriteThroughWorker(hashKey, new SingleUpdateWithCleanupWorker(request, client.getDelegate()));
+            } else if (writeCombiningWindowMillis > 0 && expected.isEmpty() && mutation.hasAdditions()) {
+                // updates with additions never leave the item empty, so the combined update needs no cleanup
+                worker = writeCombiner.combine(hashKey, request, writeCombiningWindowMillis);
+            } else if (mutation.hasDeletions() && !mutation.hasAdditions()) {
                 worker = new SingleUpdateWithCleanupWorker(request, client.getDelegate());
             } else {
                 worker = new UpdateItemWorker(request, client.getDelegate());
             }
             workers.add(worker);
         }
+        workers.addAll(createKeyDirectoryMutationWorkers(mutationMap, txh));
         return workers;
     }
 
+    private MutateWorker createWriteThroughWorker(final StaticBuffer hashKey, final SingleUpdateWithCleanupWorker worker) {
+        return () -> {
+            final long version = rowCache.startWrite(hashKey);
+            EntryList updatedRow = null;
+            try {
+                worker.call();
+                if (worker.getUpdatedItem() != null) {
+                    updatedRow = decodeRow(worker.getUpdatedItem());
+                }
+            } finally {
+                rowCache.completeWrite(hashKey, updatedRow, version);
+            }
+            return null;
+        };
+    }
+
+    @Override
+    protected void invalidateCaches() {
+        if (rowCache != null) {
+            rowCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void close() throws BackendException {
+        if (rowCache != null) {
+            rowCache.close();
+        }
+        super.close();
+    }
+
 }
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.PermanentBackendException;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ScanSegmentWorker;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exports the tables of a graph to local snapshot files and imports them back, below the JanusGraph
+ * transaction layer. Exports run a segmented parallel scan of every store table and write each segment
+ * to its own gzip-compressed file of length-prefixed items, in a directory named after the store. Imports
+ * replay each file with BatchWriteItem, one file per writer thread. Both directions go through the read and
+ * write rate limiters of the stores, so throughput is bounded by the read-rate and write-rate configuration.
+ * Because files are keyed by store name, a snapshot can be imported into a graph with a different prefix.
+ * Neither direction is transactional, so the source graph should not be written to while it is exported.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Slf4j
+public class DynamoDbSnapshotTool {
+    private static final String SNAPSHOT = "Snapshot";
+    private static final String SEGMENT_FILE_FORMAT = "segment-%05d" + DynamoDbSnapshotTool.SEGMENT_FILE_SUFFIX;
+    private static final String SEGMENT_FILE_SUFFIX = ".snapshot.gz";
+    // "JGSS"
+    private static final int MAGIC = 0x4a475353;
+    private static final int FORMAT_VERSION = 1;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int BUFFER_SIZE = 65536;
+    private static final byte STRING = 'S';
+    private static final byte BINARY = 'B';
+    private static final byte NUMBER = 'N';
+
+    private final DynamoDBStoreManager manager;
+    private final Client client;
+    private final DynamoDbDelegate delegate;
+
+    public DynamoDbSnapshotTool(final DynamoDBStoreManager manager) {
+        this.manager = manager;
+        this.client = manager.getClient();
+        this.delegate = client.getDelegate();
+    }
+
+    /**
+     * Exports every configured store table that exists to the directory.
+     * @param directory the directory to write the snapshot to
+     * @return the number of items exported
+     * @throws BackendException if a table could not be scanned or a file could not be written
+     */
+    public long exportTo(final Path directory) throws BackendException {
+        final List<Callable<Long>> tasks = new ArrayList<>();
+        for (String store : getSnapshotNames()) {
+            final String tableName = client.getPrefix() + "_" + store;
+            final int segments;
+            try {
+                segments = delegate.getParallelScanSegments(tableName);
+            } catch (BackendNotFoundException e) {
+                log.info("Not exporting {} because the table does not exist", tableName);
+                continue;
+            }
+            final Path storeDirectory = directory.resolve(store);
+            createDirectories(storeDirectory);
+            log.info("Exporting {} in {} segments to {}", tableName, segments, storeDirectory);
+            for (int segment = 0; segment < segments; segment++) {
+                final ScanRequest request = new ScanRequest().withTableName(tableName)
+                    .withConsistentRead(client.isForceConsistentRead())
+                    .withLimit(client.scanLimit(tableName))
+                    .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                    .withTotalSegments(segments)
+                    .withSegment(segment);
+                final Path file = storeDirectory.resolve(String.format(SEGMENT_FILE_FORMAT, segment));
+                tasks.add(() -> exportSegment(request, file));
+            }
+        }
+        return runAll(tasks);
+    }
+
+    /**
+     * Imports a snapshot into the configured stores, creating their tables if necessary.
+     * @param directory the directory an export wrote the snapshot to
+     * @return the number of items imported
+     * @throws BackendException if a store in the snapshot is not configured, a file could not be read or an item could not be written
+     */
+    public long importFrom(final Path directory) throws BackendException {
+        final List<Callable<Long>> tasks = new ArrayList<>();
+        for (Path storeDirectory : list(directory, "*")) {
+            if (!Files.isDirectory(storeDirectory)) {
+                continue;
+            }
+            final String store = storeDirectory.getFileName().toString();
+            // opening the store creates its tables, including its key directory, if they do not exist yet
+            manager.openDatabase(getStoreOf(store));
+            final String tableName = client.getPrefix() + "_" + store;
+            log.info("Importing {} from {}", tableName, storeDirectory);
+            for (Path file : list(storeDirectory, "*" + SEGMENT_FILE_SUFFIX)) {
+                tasks.add(() -> importSegment(tableName, file));
+            }
+        }
+        return runAll(tasks);
+    }
+
+    /**
+     * @return the names of the stores, and of the key directories of the stores that have one
+     */
+    private List<String> getSnapshotNames() {
+        final List<String> names = new ArrayList<>();
+        for (String store : client.getStoreNames()) {
+            names.add(store);
+            if (client.keyDirectoryBuckets(store) > 0) {
+                names.add(store + KeyDirectory.TABLE_SUFFIX);
+            }
+        }
+        return names;
+    }
+
+    private String getStoreOf(final String snapshotName) throws BackendException {
+        if (client.dataModel(snapshotName) != null) {
+            return snapshotName;
+        }
+        final String store = snapshotName.substring(0, Math.max(0, snapshotName.length() - KeyDirectory.TABLE_SUFFIX.length()));
+        if (snapshotName.endsWith(KeyDirectory.TABLE_SUFFIX) && client.keyDirectoryBuckets(store) > 0) {
+            return store;
+        }
+        throw new PermanentBackendException("The snapshot contains " + snapshotName + ", which is not a configured store");
+    }
+
+    private long runAll(final List<Callable<Long>> tasks) throws BackendException {
+        final ExecutorService executor = Executors.newFixedThreadPool(delegate.getScanWorkers(),
+            new ThreadFactoryBuilder().setNameFormat("snapshot-%d").setDaemon(true).build());
+        final List<Future<Long>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<Long> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            long items = 0;
+            for (Future<Long> future : futures) {
+                items += future.get();
+            }
+            return items;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendRuntimeException("was interrupted during snapshot");
+        } catch (ExecutionException e) {
+            throw delegate.unwrapExecutionException(e, SNAPSHOT);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long exportSegment(final ScanRequest request, final Path file) throws BackendException {
+        final ScanSegmentWorker worker = new ScanSegmentWorker(delegate, request);
+        long items = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            while (worker.hasNext()) {
+                for (Map<String, AttributeValue> item : worker.next().getItems()) {
+                    final byte[] record = serialize(item);
+                    out.writeInt(record.length);
+                    out.write(record);
+                    items++;
+                }
+            }
+            out.writeInt(END_OF_SEGMENT);
+        } catch (IOException e) {
+            throw new PermanentBackendException("Unable to write snapshot file " + file, e);
+        } catch (BackendRuntimeException e) {
+            throw e.getBackendException();
+        }
+        log.debug("Exported {} items of segment {} of {} to {}", items, request.getSegment(), request.getTableName(), file);
+        return items;
+    }
+
+    private long importSegment(final String tableName, final Path file) throws BackendException {
+        long items = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new PermanentBackendException(file + " is not a snapshot file");
+            }
+            final List<WriteRequest> batch = new ArrayList<>(DynamoDbDelegate.BATCH_WRITE_MAX_NUMBER_OF_ITEMS);
+            for (int length = in.readInt(); length != END_OF_SEGMENT; length = in.readInt()) {
+                final byte[] record = new byte[length];
+                in.readFully(record);
+                batch.add(new WriteRequest().withPutRequest(new PutRequest().withItem(deserialize(record))));
+                if (batch.size() == DynamoDbDelegate.BATCH_WRITE_MAX_NUMBER_OF_ITEMS) {
+                    items += writeBatch(tableName, batch);
+                }
+            }
+            items += writeBatch(tableName, batch);
+        } catch (IOException e) {
+            throw new PermanentBackendException("Unable to read snapshot file " + file, e);
+        } catch (BackendRuntimeException e) {
+            throw e.getBackendException();
+        }
+        log.debug("Imported {} items from {} to {}", items, file, tableName);
+        return items;
+    }
+
+    private int writeBatch(final String tableName, final List<WriteRequest> batch) throws BackendException {
+        final int size = batch.size();
+        if (size > 0) {
+            final BatchWriteItemRequest request = new BatchWriteItemRequest()
+                .withRequestItems(Collections.singletonMap(tableName, new ArrayList<>(batch)))
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            new ExponentialBackoff.BatchWriteItem(request, delegate).runWithBackoff();
+            batch.clear();
+        }
+        return size;
+    }
+
+    @VisibleForTesting
+    static byte[] serialize(final Map<String, AttributeValue> item) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(item.size());
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            writeBytes(out, attribute.getKey().getBytes(StandardCharsets.UTF_8));
+            final AttributeValue value = attribute.getValue();
+            if (value.getS() != null) {
+                out.writeByte(STRING);
+                writeBytes(out, value.getS().getBytes(StandardCharsets.UTF_8));
+            } else if (value.getB() != null) {
+                out.writeByte(BINARY);
+                final ByteBuffer buffer = value.getB().duplicate();
+                final byte[] binary = new byte[buffer.remaining()];
+                buffer.get(binary);
+                writeBytes(out, binary);
+            } else if (value.getN() != null) {
+                out.writeByte(NUMBER);
+                writeBytes(out, value.getN().getBytes(StandardCharsets.UTF_8));
+            } else {
+                throw new IOException("Unsupported type of attribute " + attribute.getKey() + ": " + value);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @VisibleForTesting
+    static Map<String, AttributeValue> deserialize(final byte[] record) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        final int attributes = in.readInt();
+        final Map<String, AttributeValue> item = new HashMap<>(attributes * 2);
+        for (int i = 0; i < attributes; i++) {
+            final String name = new String(readBytes(in), StandardCharsets.UTF_8);
+            final byte type = in.readByte();
+            final byte[] value = readBytes(in);
+            if (type == STRING) {
+                item.put(name, new AttributeValue().withS(new String(value, StandardCharsets.UTF_8)));
+            } else if (type == BINARY) {
+                item.put(name, new AttributeValue().withB(ByteBuffer.wrap(value)));
+            } else if (type == NUMBER) {
+                item.put(name, new AttributeValue().withN(new String(value, StandardCharsets.UTF_8)));
+            } else {
+                throw new IOException("Unknown type " + type + " of attribute " + name);
+            }
+        }
+        return item;
+    }
+
+    private static void writeBytes(final DataOutputStream out, final byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void createDirectories(final Path directory) throws BackendException {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new PermanentBackendException("Unable to create snapshot directory " + directory, e);
+        }
+    }
+
+    private static List<Path> list(final Path directory, final String glob) throws BackendException {
+        final List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            stream.forEach(paths::add);
+        } catch (IOException e) {
+            throw new PermanentBackendException("Unable to list snapshot directory " + directory, e);
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+}
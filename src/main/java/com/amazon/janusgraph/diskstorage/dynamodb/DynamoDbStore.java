@@ -16,10 +16,16 @@ package com.amazon.janusgraph.diskstorage.dynamodb;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import org.janusgraph.diskstorage.BackendException;
@@ -28,25 +34,32 @@ import org.janusgraph.diskstorage.EntryList;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.keycolumnvalue.KCVMutation;
 import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
-import org.janusgraph.diskstorage.keycolumnvalue.KeyRangeQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.KeySliceQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
 import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.util.RecordIterator;
 import org.janusgraph.diskstorage.util.StaticArrayEntryList;
 
+import com.amazon.janusgraph.diskstorage.dynamodb.builder.AbstractBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.ConditionExpressionBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.EntryBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.FilterExpressionBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.ItemBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.MultiUpdateExpressionBuilder;
+import com.amazon.janusgraph.diskstorage.dynamodb.cache.ColumnIntervals;
+import com.amazon.janusgraph.diskstorage.dynamodb.cache.NegativeLookupCache;
+import com.amazon.janusgraph.diskstorage.dynamodb.cache.SliceCache;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.MultiRecordIterator;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.MultiRowParallelScanInterpreter;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.MultiRowSequentialScanInterpreter;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ScanBackedKeyIterator;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.ScanContextInterpreter;
 import com.amazon.janusgraph.diskstorage.dynamodb.iterator.Scanner;
-import com.amazon.janusgraph.diskstorage.dynamodb.iterator.SequentialScanner;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.StaticRecordIterator;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.StreamingEntryList;
 import com.amazon.janusgraph.diskstorage.dynamodb.mutation.DeleteItemWorker;
 import com.amazon.janusgraph.diskstorage.dynamodb.mutation.MutateWorker;
+import com.amazon.janusgraph.diskstorage.dynamodb.mutation.ShardedColumnWorker;
 import com.amazon.janusgraph.diskstorage.dynamodb.mutation.UpdateItemWorker;
 import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
@@ -58,9 +71,10 @@ import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryResult;
 import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
-import com.google.common.collect.Lists;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.google.common.collect.Maps;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -82,9 +96,57 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class DynamoDbStore extends AbstractDynamoDbStore {
+    /**
+     * The cache of the column ranges of the keys of this store, or null if the store does not cache slices.
+     */
+    private final SliceCache sliceCache;
+    /**
+     * The cache of the keys of this store whose slices were read empty, or null if the store does not cache them.
+     */
+    private final NegativeLookupCache negativeCache;
+    /**
+     * Spreads the columns of the hot keys of this store over several hash keys, or null if the store does not shard keys.
+     */
+    private final KeySharding sharding;
+    /**
+     * True if slices of a single key are queried a page at a time as they are consumed.
+     */
+    private final boolean streamSlices;
+    /**
+     * Splits the slices of wide keys into sub-ranges that are queried in parallel, or null if the store queries each
+     * slice with one query.
+     */
+    private final SlicePartitioner partitioner;
 
     public DynamoDbStore(final DynamoDBStoreManager manager, final String prefix, final String storeName) {
         super(manager, prefix, storeName);
+        final long sliceCacheBytes = client.sliceCacheBytes(storeName);
+        // cached columns would outlive the expiry of columns with a TTL
+        if (sliceCacheBytes > 0 && !client.isEnableTtl()) {
+            this.sliceCache = new SliceCache(sliceCacheBytes, client.sliceCacheStalenessMillis(storeName),
+                metric -> client.getDelegate().getMeterName(metric, getTableName()));
+        } else {
+            this.sliceCache = null;
+        }
+        final long negativeCacheKeys = client.negativeCacheKeys(storeName);
+        if (negativeCacheKeys > 0) {
+            this.negativeCache = new NegativeLookupCache(negativeCacheKeys, client.negativeCacheTtlMillis(storeName),
+                metric -> client.getDelegate().getMeterName(metric, getTableName()));
+        } else {
+            this.negativeCache = null;
+        }
+        if (client.shards(storeName) > 0) {
+            this.sharding = new KeySharding(this, client, manager.getScheduler());
+        } else {
+            this.sharding = null;
+        }
+        this.streamSlices = client.streamSlices(storeName);
+        final int slicePartitions = client.slicePartitions(storeName);
+        if (slicePartitions > 0 && !streamSlices) {
+            this.partitioner = new SlicePartitioner(slicePartitions);
+        } else {
+            this.partitioner = null;
+        }
     }
 
     private EntryList createEntryListFromItems(final List<Map<String, AttributeValue>> items, final SliceQuery sliceQuery) {
@@ -99,29 +161,72 @@ public class DynamoDbStore extends AbstractDynamoDbStore {
         return StaticArrayEntryList.of(entries);
     }
 
-    @Override
-    public KeyIterator getKeys(final KeyRangeQuery query, final StoreTransaction txh) throws BackendException {
-        throw new UnsupportedOperationException("Byteorder is not maintained.");
+    /**
+     * The columns of a key that one query returned, decoded on the thread that ran the query.
+     */
+    @RequiredArgsConstructor
+    private static final class DecodedSlice {
+        private final StaticBuffer key;
+        /**
+         * True if the columns were read from a salted hash key of a sharded key.
+         */
+        private final boolean salted;
+        private final EntryList entries;
+        private final double consumedCapacity;
+    }
+
+    private DecodedSlice decode(final StaticBuffer key, final boolean salted, final QueryResult result, final SliceQuery sliceQuery) {
+        double consumedCapacity = 0.0;
+        if (result.getConsumedCapacity() != null) {
+            consumedCapacity = result.getConsumedCapacity().getCapacityUnits();
+        }
+        return new DecodedSlice(key, salted, createEntryListFromItems(result.getItems(), sliceQuery), consumedCapacity);
+    }
+
+    /**
+     * @param worker the worker that queries a slice of a key
+     * @param key the key
+     * @param salted true if the worker queries a salted hash key of the key
+     * @param sliceQuery the slice
+     * @return a task that runs the worker and decodes its result
+     */
+    private Callable<DecodedSlice> decodeOnWorker(final QueryWorker worker, final StaticBuffer key, final boolean salted,
+        final SliceQuery sliceQuery) {
+        return () -> decode(key, salted, worker.call().getDynamoDBResult(), sliceQuery);
+    }
+
+    /**
+     * Merges the columns of the shards of a sharded key. A column that was written to a salted hash key shadows the
+     * copy that the unsalted hash key kept from before the key was sharded. Writes of locked columns delete that copy,
+     * and deletes of any column delete it, so it only survives behind a newer copy written without a lock.
+     * @param shards the columns of every shard of the key
+     * @param sliceQuery the slice that was queried
+     * @return the columns of the key in column order
+     */
+    private static EntryList mergeShards(final List<DecodedSlice> shards, final SliceQuery sliceQuery) {
+        final SortedMap<StaticBuffer, Entry> columns = new TreeMap<>();
+        for (DecodedSlice shard : shards) {
+            for (Entry entry : shard.entries) {
+                if (shard.salted || !columns.containsKey(entry.getColumn())) {
+                    columns.put(entry.getColumn(), entry);
+                }
+            }
+        }
+        final List<Entry> entries = new ArrayList<>(columns.values());
+        if (sliceQuery.hasLimit() && entries.size() > sliceQuery.getLimit()) {
+            return StaticArrayEntryList.of(entries.subList(0, sliceQuery.getLimit()));
+        }
+        return StaticArrayEntryList.of(entries);
     }
 
     @Override
     public KeyIterator getKeys(final SliceQuery query, final StoreTransaction txh) throws BackendException {
         log.debug("Entering getKeys table:{} query:{} txh:{}", getTableName(), encodeForLog(query), txh);
-        final Expression filterExpression = new FilterExpressionBuilder().rangeKey()
-                                                                         .range(query)
-                                                                         .build();
-
-        final ScanRequest scanRequest = super.createScanRequest()
-                 .withFilterExpression(filterExpression.getConditionExpression())
-                 .withExpressionAttributeValues(filterExpression.getAttributeValues());
-
-        final Scanner scanner;
+        final Scanner scanner = createScanner(createKeysScanRequest(query), query);
         final ScanContextInterpreter interpreter;
-        if (client.isEnableParallelScan()) {
-            scanner = client.getDelegate().getParallelScanCompletionService(scanRequest);
+        if (client.isSegmentedScan()) {
             interpreter = new MultiRowParallelScanInterpreter(this, query);
         } else {
-            scanner = new SequentialScanner(client.getDelegate(), scanRequest);
             interpreter = new MultiRowSequentialScanInterpreter(this, query);
         }
 
@@ -130,18 +235,96 @@ public class DynamoDbStore extends AbstractDynamoDbStore {
         return result;
     }
 
+    @Override
+    public List<KeyIterator> getKeySegments(final SliceQuery query, final StoreTransaction txh) throws BackendException {
+        log.debug("Entering getKeySegments table:{} query:{} txh:{}", getTableName(), encodeForLog(query), txh);
+        // A hash key can span segments, so the segments share the interpreter that tracks their boundary keys
+        final List<KeyIterator> result = createSegmentKeyIterators(createKeysScanRequest(query), new MultiRowParallelScanInterpreter(this, query));
+        log.debug("Exiting getKeySegments table:{} query:{} txh:{} returning:{} segments", getTableName(), encodeForLog(query), txh, result.size());
+        return result;
+    }
+
+    private ScanRequest createKeysScanRequest(final SliceQuery query) {
+        final Expression filterExpression = new FilterExpressionBuilder().rangeKey()
+                                                                         .range(query)
+                                                                         .build();
+
+        if (sharding == null) {
+            return super.createScanRequest()
+                     .withFilterExpression(filterExpression.getConditionExpression())
+                     .withExpressionAttributeValues(filterExpression.getAttributeValues());
+        }
+        // the items of salted hash keys are read through the unsalted hash keys of their keys, which sharded keys
+        // keep a marker item in even if all their columns are in salted hash keys
+        final Map<String, AttributeValue> attributeValues = new HashMap<>(filterExpression.getAttributeValues());
+        attributeValues.put(KeySharding.SALT_SEPARATOR_VALUE, new AttributeValue(KeySharding.SALT_SEPARATOR));
+        attributeValues.put(KeySharding.MARKER_RANGE_KEY_VALUE, new AttributeValue(KeySharding.MARKER_RANGE_KEY));
+        return super.createScanRequest()
+                 .withFilterExpression(String.format("((%s) OR %s = %s) AND NOT contains(%s, %s)", filterExpression.getConditionExpression(),
+                     Constants.JANUSGRAPH_RANGE_KEY, KeySharding.MARKER_RANGE_KEY_VALUE, Constants.JANUSGRAPH_HASH_KEY,
+                     KeySharding.SALT_SEPARATOR_VALUE))
+                 .withExpressionAttributeValues(attributeValues);
+    }
+
     private EntryList getKeysRangeQuery(final StaticBuffer hashKey, final SliceQuery query,
             final StoreTransaction txh)
             throws BackendException {
 
         log.debug("Range query for hashKey:{} txh:{}", encodeKeyForLog(hashKey), txh);
+        if (sliceCache != null || negativeCache != null || sharding != null && sharding.isSharded(hashKey)) {
+            return readSlices(Collections.singletonList(hashKey), query).get(hashKey);
+        }
+
+        if (partitioner != null) {
+            return getPartitionedRangeQuery(hashKey, query);
+        }
 
         final QueryWorker worker = buildQueryWorker(hashKey, query);
+        if (streamSlices) {
+            return new StreamingEntryList(worker, query);
+        }
         final QueryResultWrapper result = worker.call();
 
         return createEntryListFromItems(result.getDynamoDBResult().getItems(), query);
     }
 
+    /**
+     * Queries the sub-ranges of the slice of a wide key in parallel, and concatenates their columns in column order.
+     * Whole slices are sampled, so that the partitioner learns which keys are wide and where to split them.
+     * @param hashKey the key
+     * @param query the slice
+     * @return the columns of the key in the slice, at most as many as the limit of the slice
+     * @throws BackendException if a sub-range could not be queried
+     */
+    private EntryList getPartitionedRangeQuery(final StaticBuffer hashKey, final SliceQuery query) throws BackendException {
+        final List<SliceQuery> subRanges = partitioner.partition(hashKey, query);
+        final List<DecodedSlice> results;
+        if (subRanges.size() == 1) {
+            results = Collections.singletonList(decode(hashKey, false /*salted*/, buildQueryWorker(hashKey, query).call().getDynamoDBResult(),
+                query));
+        } else {
+            final List<Callable<DecodedSlice>> tasks = new ArrayList<>(subRanges.size());
+            for (SliceQuery subRange : subRanges) {
+                tasks.add(decodeOnWorker(buildQueryWorker(hashKey, subRange), hashKey, false /*salted*/, subRange));
+            }
+            results = client.getDelegate().parallelRead(tasks, DynamoDbDelegate.QUERY);
+        }
+
+        final List<Entry> entries = new ArrayList<>();
+        double consumedCapacity = 0.0;
+        for (DecodedSlice result : results) {
+            consumedCapacity += result.consumedCapacity;
+            entries.addAll(result.entries);
+        }
+        if (query.hasLimit() && entries.size() > query.getLimit()) {
+            return StaticArrayEntryList.of(entries.subList(0, query.getLimit()));
+        }
+        if (!query.hasLimit()) {
+            partitioner.record(hashKey, query, entries, consumedCapacity);
+        }
+        return StaticArrayEntryList.of(entries);
+    }
+
     public QueryWorker buildQueryWorker(final StaticBuffer hashKey, final SliceQuery query) {
         final QueryRequest request = createQueryRequest(hashKey, query);
         // Only enforce a limit when Titan tells us to
@@ -154,7 +337,45 @@ public class DynamoDbStore extends AbstractDynamoDbStore {
         return new QueryWorker(client.getDelegate(), request, hashKey);
     }
 
+    /**
+     * @param titanKey the key of the store
+     * @param hashKey the unsalted or salted hash key to query
+     * @param query the slice to query
+     * @return the worker that queries the slice of the hash key, whose results are labeled with the key of the store
+     */
+    private QueryWorker buildQueryWorker(final StaticBuffer titanKey, final String hashKey, final SliceQuery query) {
+        final QueryRequest request = createQueryRequest(hashKey, query);
+        if (query.hasLimit()) {
+            final int limit = query.getLimit();
+            request.setLimit(limit);
+            return new QueryWithLimitWorker(client.getDelegate(), request, titanKey, limit);
+        }
+        return new QueryWorker(client.getDelegate(), request, titanKey);
+    }
+
+    /**
+     * Builds the iterator over the columns of a key in a slice, which pages through a query of the key, or merges
+     * the queries of its shards if the key is sharded.
+     * @param hashKey the key
+     * @param query the slice
+     * @return the columns of the key in the slice
+     */
+    public RecordIterator<Entry> buildRecordIterator(final StaticBuffer hashKey, final SliceQuery query) {
+        try {
+            if (sharding != null && sharding.isSharded(hashKey)) {
+                return new StaticRecordIterator(querySlices(Collections.singletonMap(hashKey, query)).get(hashKey));
+            }
+        } catch (BackendException e) {
+            throw new BackendRuntimeException(e);
+        }
+        return new MultiRecordIterator(buildQueryWorker(hashKey, query), query);
+    }
+
     private QueryRequest createQueryRequest(final StaticBuffer hashKey, final SliceQuery rangeQuery) {
+        return createQueryRequest(AbstractBuilder.encodeKeyBuffer(hashKey), rangeQuery);
+    }
+
+    private QueryRequest createQueryRequest(final String hashKey, final SliceQuery rangeQuery) {
         final Expression keyConditionExpression = new ConditionExpressionBuilder().hashKey(hashKey)
                 .rangeKey(rangeQuery.getSliceStart(), rangeQuery.getSliceEnd())
                 .build();
@@ -182,31 +403,182 @@ public class DynamoDbStore extends AbstractDynamoDbStore {
                   encodeForLog(query),
                   txh);
 
+        final Map<StaticBuffer, EntryList> resultMap = readSlices(keys, query);
+
+        log.debug("Exiting getSliceMultiSliceQuery table:{} keys:{} query:{} txh:{} returning:{}",
+                  getTableName(),
+                  encodeForLog(keys),
+                  encodeForLog(query),
+                  txh,
+                  resultMap.size());
+        return resultMap;
+    }
+
+    /**
+     * Reads slices through the negative lookup cache, if this store has one. Keys whose slice is known to be empty
+     * are not queried, and keys whose slice is read empty are remembered.
+     * @param keys the keys
+     * @param query the slice to read for each key
+     * @return the slices by key
+     * @throws BackendException if a slice could not be read
+     */
+    private Map<StaticBuffer, EntryList> readSlices(final List<StaticBuffer> keys, final SliceQuery query) throws BackendException {
+        if (negativeCache == null) {
+            return readStoredSlices(keys, query);
+        }
         final Map<StaticBuffer, EntryList> resultMap = Maps.newHashMapWithExpectedSize(keys.size());
+        final Map<StaticBuffer, Long> readVersions = new HashMap<>();
+        for (StaticBuffer hashKey : keys) {
+            if (negativeCache.isEmpty(hashKey, query)) {
+                resultMap.put(hashKey, EntryList.EMPTY_LIST);
+            } else {
+                readVersions.put(hashKey, negativeCache.startRead(hashKey));
+            }
+        }
+        if (!readVersions.isEmpty()) {
+            for (Map.Entry<StaticBuffer, EntryList> entry : readStoredSlices(new ArrayList<>(readVersions.keySet()), query).entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    negativeCache.putEmpty(entry.getKey(), query, readVersions.get(entry.getKey()));
+                }
+                resultMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return resultMap;
+    }
 
-        final List<QueryWorker> queryWorkers = Lists.newLinkedList();
+    /**
+     * Reads slices through the slice cache, if this store has one, or from DynamoDB.
+     * @param keys the keys
+     * @param query the slice to read for each key
+     * @return the slices by key
+     * @throws BackendException if a slice could not be read
+     */
+    private Map<StaticBuffer, EntryList> readStoredSlices(final List<StaticBuffer> keys, final SliceQuery query) throws BackendException {
+        if (sliceCache != null) {
+            return getCachedSlices(keys, query);
+        }
+        final Map<StaticBuffer, SliceQuery> slices = Maps.newHashMapWithExpectedSize(keys.size());
         for (StaticBuffer hashKey : keys) {
-            final QueryWorker queryWorker = buildQueryWorker(hashKey, query);
-            queryWorkers.add(queryWorker);
+            slices.put(hashKey, query);
+        }
+        return querySlices(slices);
+    }
 
-            resultMap.put(hashKey, EntryList.EMPTY_LIST);
+    /**
+     * Queries a slice of each of several keys in parallel, and decodes the columns of each query on the worker that ran
+     * it. The shards of sharded keys are queried in parallel too, and merged.
+     * @param slices the slice to query by key
+     * @return the slices by key
+     * @throws BackendException if a slice could not be queried
+     */
+    private Map<StaticBuffer, EntryList> querySlices(final Map<StaticBuffer, SliceQuery> slices) throws BackendException {
+        final Map<StaticBuffer, List<SliceQuery>> ranges = Maps.newHashMapWithExpectedSize(slices.size());
+        for (Map.Entry<StaticBuffer, SliceQuery> slice : slices.entrySet()) {
+            ranges.put(slice.getKey(), Collections.singletonList(slice.getValue()));
+        }
+        final Map<StaticBuffer, EntryList> resultMap = Maps.newHashMapWithExpectedSize(slices.size());
+        for (Map.Entry<StaticBuffer, List<EntryList>> result : queryRanges(ranges).entrySet()) {
+            resultMap.put(result.getKey(), result.getValue().get(0));
         }
+        return resultMap;
+    }
 
-        final List<QueryResultWrapper> results = client.getDelegate().parallelQuery(queryWorkers);
-        for (QueryResultWrapper resultWrapper : results) {
-            final StaticBuffer titanKey = resultWrapper.getTitanKey();
+    /**
+     * Queries several ranges of each of several keys in parallel, and decodes the columns of each query on the worker
+     * that ran it. The shards of sharded keys are queried in parallel too, and merged.
+     * @param ranges the ranges to query by key
+     * @return the columns of each range, in the order of the ranges, by key
+     * @throws BackendException if a range could not be queried
+     */
+    private Map<StaticBuffer, List<EntryList>> queryRanges(final Map<StaticBuffer, List<SliceQuery>> ranges) throws BackendException {
+        final Map<StaticBuffer, List<String>> shardHashKeys = new HashMap<>();
+        final List<Callable<DecodedSlice>> tasks = new ArrayList<>(ranges.size());
+        for (Map.Entry<StaticBuffer, List<SliceQuery>> keyRanges : ranges.entrySet()) {
+            final StaticBuffer hashKey = keyRanges.getKey();
+            if (sharding != null && sharding.isSharded(hashKey)) {
+                shardHashKeys.put(hashKey, sharding.getHashKeys(hashKey));
+            }
+            for (SliceQuery range : keyRanges.getValue()) {
+                if (shardHashKeys.containsKey(hashKey)) {
+                    for (String shardHashKey : shardHashKeys.get(hashKey)) {
+                        tasks.add(decodeOnWorker(buildQueryWorker(hashKey, shardHashKey, range), hashKey, KeySharding.isSalted(shardHashKey),
+                            range));
+                    }
+                } else {
+                    tasks.add(decodeOnWorker(buildQueryWorker(hashKey, range), hashKey, false /*salted*/, range));
+                }
+            }
+        }
 
-            final QueryResult dynamoDBResult = resultWrapper.getDynamoDBResult();
-            final EntryList entryList = createEntryListFromItems(dynamoDBResult.getItems(), query);
-            resultMap.put(titanKey, entryList);
+        // the workers decode the columns, so this thread only collects them, in the order the tasks were created
+        final Iterator<DecodedSlice> decoded = client.getDelegate().parallelRead(tasks, DynamoDbDelegate.QUERY).iterator();
+        final Map<StaticBuffer, List<EntryList>> resultMap = Maps.newHashMapWithExpectedSize(ranges.size());
+        for (Map.Entry<StaticBuffer, List<SliceQuery>> keyRanges : ranges.entrySet()) {
+            final List<String> shardKeys = shardHashKeys.get(keyRanges.getKey());
+            final List<EntryList> results = new ArrayList<>(keyRanges.getValue().size());
+            for (SliceQuery range : keyRanges.getValue()) {
+                if (shardKeys == null) {
+                    results.add(decoded.next().entries);
+                } else {
+                    final List<DecodedSlice> shards = new ArrayList<>(shardKeys.size());
+                    for (int shard = 0; shard < shardKeys.size(); shard++) {
+                        shards.add(decoded.next());
+                    }
+                    results.add(mergeShards(shards, range));
+                }
+            }
+            resultMap.put(keyRanges.getKey(), results);
         }
+        return resultMap;
+    }
 
-        log.debug("Exiting getSliceMultiSliceQuery table:{} keys:{} query:{} txh:{} returning:{}",
-                  getTableName(),
-                  encodeForLog(keys),
-                  encodeForLog(query),
-                  txh,
-                  resultMap.size());
+    /**
+     * Reads slices through the slice cache. Each round queries the ranges of the slice of every key that the cached
+     * and already queried ranges of the key cannot answer, in parallel. Slices without a limit query all of their
+     * missing ranges in the first round, while slices with a limit query only their first missing range per round,
+     * because the columns of that range may satisfy the limit.
+     * @param keys the keys
+     * @param query the slice to read for each key
+     * @return the slices by key
+     * @throws BackendException if a range could not be queried
+     */
+    private Map<StaticBuffer, EntryList> getCachedSlices(final List<StaticBuffer> keys, final SliceQuery query) throws BackendException {
+        final Map<StaticBuffer, EntryList> resultMap = Maps.newHashMapWithExpectedSize(keys.size());
+        final Map<StaticBuffer, Long> readVersions = new HashMap<>();
+        final Map<StaticBuffer, ColumnIntervals> pending = new HashMap<>();
+        for (StaticBuffer hashKey : keys) {
+            readVersions.put(hashKey, sliceCache.startRead(hashKey));
+            pending.put(hashKey, sliceCache.get(hashKey));
+        }
+        boolean firstRound = true;
+        while (!pending.isEmpty()) {
+            final Map<StaticBuffer, List<SliceQuery>> gaps = new HashMap<>();
+            for (Map.Entry<StaticBuffer, ColumnIntervals> entry : pending.entrySet()) {
+                final List<SliceQuery> keyGaps = entry.getValue().gaps(query);
+                if (firstRound) {
+                    sliceCache.recordSlice(keyGaps.isEmpty());
+                }
+                if (keyGaps.isEmpty()) {
+                    resultMap.put(entry.getKey(), entry.getValue().slice(query));
+                } else {
+                    gaps.put(entry.getKey(), keyGaps);
+                }
+            }
+            pending.keySet().retainAll(gaps.keySet());
+            firstRound = false;
+            if (!gaps.isEmpty()) {
+                for (Map.Entry<StaticBuffer, List<EntryList>> result : queryRanges(gaps).entrySet()) {
+                    final StaticBuffer hashKey = result.getKey();
+                    final List<SliceQuery> keyGaps = gaps.get(hashKey);
+                    ColumnIntervals intervals = pending.get(hashKey);
+                    for (int i = 0; i < keyGaps.size(); i++) {
+                        intervals = intervals.merge(keyGaps.get(i), result.getValue().get(i));
+                        sliceCache.merge(hashKey, keyGaps.get(i), result.getValue().get(i), readVersions.get(hashKey));
+                    }
+                    pending.put(hashKey, intervals);
+                }
+            }
+        }
         return resultMap;
     }
 
@@ -249,63 +621,216 @@ public class DynamoDbStore extends AbstractDynamoDbStore {
                 .filter(del -> !add.contains(del))
                 .collect(Collectors.toList());
 
+            final int writeShards = getWriteShards(hashKey);
+            final List<MutateWorker> keyWorkers = new LinkedList<>();
             if (mutation.hasAdditions()) {
-                workers.addAll(createWorkersForAdditions(hashKey, mutation.getAdditions(), txh));
+                keyWorkers.addAll(createWorkersForAdditions(hashKey, mutation.getAdditions(), writeShards, txh));
             }
             if (!mutableDeletions.isEmpty()) {
-                workers.addAll(createWorkersForDeletions(hashKey, mutableDeletions, txh));
+                keyWorkers.addAll(createWorkersForDeletions(hashKey, mutableDeletions, writeShards, txh));
             }
+            workers.addAll(invalidateCachesOnWrite(hashKey, keyWorkers));
         }
+        workers.addAll(createKeyDirectoryMutationWorkers(mutationMap, txh));
 
         return workers;
     }
 
-    private Collection<MutateWorker> createWorkersForAdditions(final StaticBuffer hashKey, final List<Entry> additions, final DynamoDbStoreTransaction txh) {
-        return additions.stream().map(addition -> {
-                final StaticBuffer rangeKey = addition.getColumn();
-                final Map<String, AttributeValue> keys = new ItemBuilder().hashKey(hashKey)
-                    .rangeKey(rangeKey)
-                    .build();
+    /**
+     * Makes workers drop the cached state of their key when they start and when they complete, if this store caches
+     * slices or empty keys.
+     * @param hashKey the key the workers write
+     * @param keyWorkers the workers
+     * @return the workers that invalidate the caches
+     */
+    private Collection<MutateWorker> invalidateCachesOnWrite(final StaticBuffer hashKey, final List<MutateWorker> keyWorkers) {
+        if (sliceCache == null && negativeCache == null) {
+            return keyWorkers;
+        }
+        return keyWorkers.stream().<MutateWorker>map(worker -> () -> {
+            invalidateKey(hashKey);
+            try {
+                return worker.call();
+            } finally {
+                invalidateKey(hashKey);
+            }
+        }).collect(Collectors.toList());
+    }
 
-                final Expression updateExpression = new MultiUpdateExpressionBuilder(this, txh).hashKey(hashKey)
+    private void invalidateKey(final StaticBuffer hashKey) {
+        if (sliceCache != null) {
+            sliceCache.invalidate(hashKey);
+        }
+        if (negativeCache != null) {
+            negativeCache.invalidate(hashKey);
+        }
+    }
+
+    @Override
+    protected void invalidateCaches() {
+        if (sliceCache != null) {
+            sliceCache.invalidateAll();
+        }
+        if (sharding != null) {
+            sharding.invalidate();
+        }
+        if (partitioner != null) {
+            partitioner.invalidateAll();
+        }
+        if (negativeCache != null) {
+            negativeCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void close() throws BackendException {
+        if (sliceCache != null) {
+            sliceCache.close();
+        }
+        if (negativeCache != null) {
+            negativeCache.close();
+        }
+        if (sharding != null) {
+            sharding.close();
+        }
+        super.close();
+    }
+
+    private int getWriteShards(final StaticBuffer hashKey) {
+        if (sharding == null) {
+            return 1;
+        }
+        try {
+            return sharding.getWriteShards(hashKey);
+        } catch (BackendException e) {
+            throw new BackendRuntimeException(e);
+        }
+    }
+
+    /**
+     * @param hashKey the key
+     * @param rangeKey the column
+     * @param saltedHashKey the salted hash key of the column, or null for the unsalted hash key
+     * @return the primary key of the item of the column
+     */
+    private static Map<String, AttributeValue> createItemKeys(final StaticBuffer hashKey, final StaticBuffer rangeKey,
+        final String saltedHashKey) {
+        final Map<String, AttributeValue> keys = new ItemBuilder().hashKey(hashKey)
+                                                                  .rangeKey(rangeKey)
+                                                                  .build();
+        if (saltedHashKey != null) {
+            keys.put(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue(saltedHashKey));
+        }
+        return keys;
+    }
+
+    private MutateWorker createUpdateItemWorker(final Map<String, AttributeValue> keys, final Expression updateExpression) {
+        final UpdateItemRequest request = super.createUpdateItemRequest()
+            .withUpdateExpression(updateExpression.getUpdateExpression())
+            .withConditionExpression(updateExpression.getConditionExpression())
+            .withExpressionAttributeValues(updateExpression.getAttributeValues())
+            .withKey(keys);
+        return new UpdateItemWorker(request, client.getDelegate());
+    }
+
+    private MutateWorker createDeleteItemWorker(final Map<String, AttributeValue> keys, final Expression conditionExpression) {
+        final DeleteItemRequest request = super.createDeleteItemRequest().withKey(keys)
+            .withConditionExpression(conditionExpression.getConditionExpression())
+            .withExpressionAttributeValues(conditionExpression.getAttributeValues());
+        return new DeleteItemWorker(request, client.getDelegate());
+    }
+
+    /**
+     * Builds the worker that writes or deletes a column of a sharded key that the transaction locked. The column is
+     * written to its salted hash key, and the expected value is checked against the copy of the column that readers
+     * see, which may still be in the unsalted hash key if it was written before the key was sharded.
+     * @param hashKey the key
+     * @param rangeKey the column
+     * @param shardMutation writes or deletes the column in its salted hash key, on condition of the expected value
+     * @param shardMutationIfMissing writes or deletes the column in its salted hash key, on condition that it is missing
+     * @param txh the transaction that locked the column
+     * @return the worker
+     */
+    private MutateWorker createShardedColumnWorker(final StaticBuffer hashKey, final StaticBuffer rangeKey, final MutateWorker shardMutation,
+        final MutateWorker shardMutationIfMissing, final DynamoDbStoreTransaction txh) {
+        final Map<String, AttributeValue> keys = createItemKeys(hashKey, rangeKey, null /*saltedHashKey*/);
+        final Expression conditionExpression = new MultiUpdateExpressionBuilder(this, txh).hashKey(hashKey)
+                                                                                          .rangeKey(rangeKey)
+                                                                                          .build();
+        return new ShardedColumnWorker(shardMutation, shardMutationIfMissing, createDeleteItemWorker(keys, conditionExpression),
+            new DeleteItemWorker(super.createDeleteItemRequest().withKey(keys), client.getDelegate()),
+            txh.getIfPresent(this, hashKey, rangeKey).getValue() != null);
+    }
+
+    private Collection<MutateWorker> createWorkersForAdditions(final StaticBuffer hashKey, final List<Entry> additions, final int writeShards,
+        final DynamoDbStoreTransaction txh) {
+        final List<MutateWorker> workers = new LinkedList<>();
+        for (Entry addition : additions) {
+            final StaticBuffer rangeKey = addition.getColumn();
+            final String saltedHashKey = KeySharding.getSaltedHashKey(hashKey, rangeKey, writeShards);
+            final Map<String, AttributeValue> keys = createItemKeys(hashKey, rangeKey, saltedHashKey);
+            final Expression updateExpression = new MultiUpdateExpressionBuilder(this, txh).hashKey(hashKey)
+                .rangeKey(rangeKey)
+                .value(addition.getValue())
+                .expiry(getExpiry(addition))
+                .build();
+
+            if (saltedHashKey == null || !txh.contains(this, hashKey, rangeKey)) {
+                workers.add(createUpdateItemWorker(keys, updateExpression));
+            } else {
+                final Expression ifMissingExpression = new MultiUpdateExpressionBuilder(this, txh).hashKey(hashKey)
                     .rangeKey(rangeKey)
                     .value(addition.getValue())
+                    .expiry(getExpiry(addition))
+                    .expectMissingValue(true)
                     .build();
-
-                return super.createUpdateItemRequest()
-                    .withUpdateExpression(updateExpression.getUpdateExpression())
-                    .withConditionExpression(updateExpression.getConditionExpression())
-                    .withExpressionAttributeValues(updateExpression.getAttributeValues())
-                    .withKey(keys);
-            })
-            .map(request -> new UpdateItemWorker(request, client.getDelegate()))
-            .collect(Collectors.toList());
+                workers.add(createShardedColumnWorker(hashKey, rangeKey, createUpdateItemWorker(keys, updateExpression),
+                    createUpdateItemWorker(keys, ifMissingExpression), txh));
+            }
+        }
+        return workers;
     }
 
-    private Collection<MutateWorker> createWorkersForDeletions(final StaticBuffer hashKey, final List<StaticBuffer> deletions, final DynamoDbStoreTransaction txh) {
+    private Collection<MutateWorker> createWorkersForDeletions(final StaticBuffer hashKey, final List<StaticBuffer> deletions, final int writeShards,
+        final DynamoDbStoreTransaction txh) {
         final List<MutateWorker> workers = new LinkedList<>();
         for (StaticBuffer rangeKey : deletions) {
-            final Map<String, AttributeValue> keys = new ItemBuilder().hashKey(hashKey)
-                                                                      .rangeKey(rangeKey)
-                                                                      .build();
-
+            final String saltedHashKey = KeySharding.getSaltedHashKey(hashKey, rangeKey, writeShards);
             final Expression updateExpression = new MultiUpdateExpressionBuilder(this, txh).hashKey(hashKey)
                                                                                   .rangeKey(rangeKey)
                                                                                   .build();
 
-            final DeleteItemRequest request = super.createDeleteItemRequest().withKey(keys)
-                     .withConditionExpression(updateExpression.getConditionExpression())
-                     .withExpressionAttributeValues(updateExpression.getAttributeValues());
-
-
-            workers.add(new DeleteItemWorker(request, client.getDelegate()));
+            if (saltedHashKey == null) {
+                workers.add(createDeleteItemWorker(createItemKeys(hashKey, rangeKey, null /*saltedHashKey*/), updateExpression));
+            } else if (!txh.contains(this, hashKey, rangeKey)) {
+                // the unsalted hash key may keep a copy of the column from before the key was sharded
+                workers.add(createDeleteItemWorker(createItemKeys(hashKey, rangeKey, null /*saltedHashKey*/), updateExpression));
+                workers.add(createDeleteItemWorker(createItemKeys(hashKey, rangeKey, saltedHashKey), updateExpression));
+            } else {
+                final Map<String, AttributeValue> saltedKeys = createItemKeys(hashKey, rangeKey, saltedHashKey);
+                final Expression ifMissingExpression = new MultiUpdateExpressionBuilder(this, txh).hashKey(hashKey)
+                                                                                                  .rangeKey(rangeKey)
+                                                                                                  .expectMissingValue(true)
+                                                                                                  .build();
+                workers.add(createShardedColumnWorker(hashKey, rangeKey, createDeleteItemWorker(saltedKeys, updateExpression),
+                    createDeleteItemWorker(saltedKeys, ifMissingExpression), txh));
+            }
         }
         return workers;
     }
 
     @Override
     public CreateTableRequest getTableSchema() {
-        return super.getTableSchema()
+        return createTableSchema(client, getTableName());
+    }
+
+    /**
+     * @param client the client of the store
+     * @param tableName the table of the store
+     * @return the create table request of the table of a MULTI store, whose items are keyed by hash key and range key
+     */
+    static CreateTableRequest createTableSchema(final Client client, final String tableName) {
+        return createBaseTableSchema(client, tableName)
             .withAttributeDefinitions(
                 new AttributeDefinition()
                     .withAttributeName(Constants.JANUSGRAPH_HASH_KEY)
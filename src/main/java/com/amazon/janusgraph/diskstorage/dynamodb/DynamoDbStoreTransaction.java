@@ -14,9 +14,6 @@
  */
 package com.amazon.janusgraph.diskstorage.dynamodb;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.janusgraph.diskstorage.BackendException;
@@ -26,7 +23,6 @@ import org.janusgraph.diskstorage.common.AbstractStoreTransaction;
 import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Maps;
 
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -52,7 +48,7 @@ public class DynamoDbStoreTransaction extends AbstractStoreTransaction {
      * This is only used for toString for debugging purposes.
      */
     private final String id;
-    private final Map<AbstractDynamoDbStore, Map<StaticBuffer, Map<StaticBuffer, StaticBuffer>>> expectedValues = Maps.newHashMap();
+    private final ExpectedValueIndex expectedValues = new ExpectedValueIndex();
 
     /**
      * Creates a DynamoDB Store transaction.
@@ -73,9 +69,7 @@ public class DynamoDbStoreTransaction extends AbstractStoreTransaction {
     }
 
     private void releaseLocks() {
-        expectedValues.forEach((store, kcMap) -> kcMap.forEach((key, columnValueMap) -> {
-            columnValueMap.forEach((column, valueIgnored) -> store.releaseLock(key, column));
-        }));
+        expectedValues.forEach(expected -> expected.getStore().releaseLock(expected.getKey(), expected.getColumn()));
     }
 
     /**
@@ -85,9 +79,19 @@ public class DynamoDbStoreTransaction extends AbstractStoreTransaction {
      * @return true if both the key and column combination are in this transaction and false otherwise.
      */
     public boolean contains(final AbstractDynamoDbStore store, final StaticBuffer key, final StaticBuffer column) {
-        return expectedValues.containsKey(store)
-            && expectedValues.get(store).containsKey(key)
-            && expectedValues.get(store).get(key).containsKey(column);
+        return expectedValues.getIfPresent(store, key, column) != null;
+    }
+
+    /**
+     * Gets the expected value for a particular key and column with a single lookup
+     * @param store the store of the key column value
+     * @param key the key to get the expected value for
+     * @param column the column to get the expected value for
+     * @return the expected value of the given key-column pair, whose value is null if the column is expected to be
+     * absent, or null if this transaction has no expected value for the key-column pair
+     */
+    public ExpectedValueIndex.ExpectedValue getIfPresent(final AbstractDynamoDbStore store, final StaticBuffer key, final StaticBuffer column) {
+        return expectedValues.getIfPresent(store, key, column);
     }
 
     @Override
@@ -118,7 +122,7 @@ public class DynamoDbStoreTransaction extends AbstractStoreTransaction {
      */
     public StaticBuffer get(final AbstractDynamoDbStore store, final StaticBuffer key, final StaticBuffer column) {
         // This method assumes the caller has called contains(..) and received a positive response
-        return expectedValues.get(store).get(key).get(column);
+        return expectedValues.getIfPresent(store, key, column).getValue();
     }
 
     /**
@@ -130,10 +134,8 @@ public class DynamoDbStoreTransaction extends AbstractStoreTransaction {
      */
     public void putKeyColumnOnlyIfItIsNotYetChangedInTx(final AbstractDynamoDbStore store, final StaticBuffer key, final StaticBuffer column,
         final StaticBuffer expectedValue) {
-        expectedValues.computeIfAbsent(store, s -> new HashMap<>());
-        expectedValues.get(store).computeIfAbsent(key, k -> new HashMap<>());
         // Ignore any calls to putKeyColumnOnlyIfItIsNotYetChangedInTx if we already have an expected value
-        expectedValues.get(store).get(key).putIfAbsent(column, expectedValue);
+        expectedValues.putIfAbsent(store, key, column, expectedValue);
     }
 
     @Override
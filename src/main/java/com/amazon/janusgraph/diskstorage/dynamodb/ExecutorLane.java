@@ -0,0 +1,256 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.janusgraph.diskstorage.TemporaryBackendException;
+import org.janusgraph.util.stats.MetricManager;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * One kind of work of the client, such as point reads, writes or scans, and the thread pool it runs on. A lane
+ * either has a dedicated pool, so that its work does not queue behind the work of other lanes, or shares the pool of
+ * the client executor. Every lane reports the depth of the queue of its pool, the active threads of its pool, the
+ * time its tasks waited before they ran, and the tasks it rejected or shed. A lane with a maximum queue wait sheds
+ * tasks when they are submitted, if the depth of the queue of its pool and the observed run time of its tasks predict
+ * that they would wait longer than that before they start.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+class ExecutorLane implements Executor {
+    /**
+     * The weight of the newest run time in the moving average of the run time of tasks is 1 / RUN_TIME_SMOOTHING.
+     */
+    private static final long RUN_TIME_SMOOTHING = 8L;
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    private final boolean dedicated;
+    private final long maxQueueWaitNanos;
+    private final String queueGaugeName;
+    private final String activeThreadsGaugeName;
+    private final String waitTimerName;
+    private final String rejectionsName;
+    private final String shedName;
+    private final Timer waitTimer;
+    private final Meter rejections;
+    private final Meter shed;
+    /**
+     * Moving average of the time (in nanoseconds) tasks of the lane ran for. Concurrent updates may lose samples,
+     * which is fine for an estimate.
+     */
+    private volatile long averageRunNanos;
+
+    /**
+     * @param name the name of the lane
+     * @param pool the pool the tasks of the lane run on
+     * @param dedicated true if the lane owns the pool and shuts it down
+     * @param metricName the prefix of the names of the metrics of the lane
+     * @param maxQueueWaitMillis the expected queue wait (in milliseconds) above which submitted tasks are shed, or 0
+     * if tasks are never shed
+     */
+    ExecutorLane(final String name, final ThreadPoolExecutor pool, final boolean dedicated, final String metricName,
+        final long maxQueueWaitMillis) {
+        this.name = name;
+        this.pool = pool;
+        this.dedicated = dedicated;
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+        final MetricRegistry registry = MetricManager.INSTANCE.getRegistry();
+        this.queueGaugeName = metricName + "-queue-size";
+        this.activeThreadsGaugeName = metricName + "-active-threads";
+        this.waitTimerName = metricName + "-wait";
+        this.rejectionsName = metricName + "-rejections";
+        this.shedName = metricName + "-shed";
+        this.waitTimer = MetricManager.INSTANCE.getTimer(waitTimerName);
+        this.rejections = registry.meter(rejectionsName);
+        this.shed = registry.meter(shedName);
+        // a lane created again under the same name reports its own pool, not the pool of the lane it replaces
+        registry.remove(queueGaugeName);
+        registry.register(queueGaugeName, (Gauge<Integer>) () -> pool.getQueue().size());
+        registry.remove(activeThreadsGaugeName);
+        registry.register(activeThreadsGaugeName, (Gauge<Integer>) pool::getActiveCount);
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        final long enqueuedNanos = System.nanoTime();
+        try {
+            pool.execute(() -> {
+                final long startedNanos = System.nanoTime();
+                waitTimer.update(startedNanos - enqueuedNanos, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } finally {
+                    recordRunTime(System.nanoTime() - startedNanos);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.mark();
+            throw e;
+        }
+    }
+
+    private void recordRunTime(final long ranNanos) {
+        final long average = averageRunNanos;
+        if (average == 0) {
+            averageRunNanos = ranNanos;
+        } else {
+            averageRunNanos = average + (ranNanos - average) / RUN_TIME_SMOOTHING;
+        }
+    }
+
+    /**
+     * @param task the task
+     * @param <T> the result type of the task
+     * @return the future of the task, which fails with a TemporaryBackendException if the pool of the lane rejected
+     * the task or the task was shed
+     */
+    <T> Future<T> submit(final Callable<T> task) {
+        final FutureTask<T> future = new FutureTask<>(task);
+        try {
+            admit();
+            execute(future);
+        } catch (TemporaryBackendException e) {
+            final CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        } catch (RejectedExecutionException e) {
+            final CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(saturated(e));
+            return rejected;
+        }
+        return future;
+    }
+
+    /**
+     * Submits a task whose future dependent actions can be chained on. Cancelling the future keeps the task from
+     * running if it has not started yet, but does not interrupt it.
+     * @param task the task
+     * @param <T> the result type of the task
+     * @return the future of the task, which fails with a TemporaryBackendException if the pool of the lane rejected
+     * the task or the task was shed
+     */
+    <T> CompletableFuture<T> submitCompletable(final Callable<T> task) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            admit();
+            execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (TemporaryBackendException e) {
+            future.completeExceptionally(e);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(saturated(e));
+        }
+        return future;
+    }
+
+    private TemporaryBackendException saturated(final RejectedExecutionException e) {
+        return new TemporaryBackendException(String.format("The %s executor is saturated", name), e);
+    }
+
+    /**
+     * Estimates how long a task submitted now would wait before it starts: the tasks queued ahead of it, times the
+     * average run time of tasks, spread over the threads of the pool.
+     * @return the expected queue wait, in nanoseconds
+     */
+    long getExpectedWaitNanos() {
+        return pool.getQueue().size() * averageRunNanos / Math.max(1, pool.getMaximumPoolSize());
+    }
+
+    /**
+     * Sheds a task before it is queued if it is expected to wait longer than the maximum queue wait of the lane.
+     * @throws TemporaryBackendException if the task is shed
+     */
+    private void admit() throws TemporaryBackendException {
+        if (maxQueueWaitNanos == 0) {
+            return;
+        }
+        final long expectedWaitNanos = getExpectedWaitNanos();
+        if (expectedWaitNanos > maxQueueWaitNanos) {
+            shed.mark();
+            throw new TemporaryBackendException(String.format("Shed a task of the %s executor that would wait %d ms", name,
+                TimeUnit.NANOSECONDS.toMillis(expectedWaitNanos)));
+        }
+    }
+
+    /**
+     * Submits tasks for a completion service that runs on this lane, all or none.
+     * @param completion the completion service
+     * @param tasks the tasks
+     * @param <T> the result type of the tasks
+     * @return the futures of the tasks
+     * @throws TemporaryBackendException if the pool of the lane rejected a task or a task was shed, in which case the
+     * tasks that were already submitted are cancelled
+     */
+    <T> List<Future<T>> submitAll(final CompletionService<T> completion, final List<? extends Callable<T>> tasks) throws TemporaryBackendException {
+        final List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                admit();
+                futures.add(completion.submit(task));
+            }
+        } catch (TemporaryBackendException e) {
+            futures.forEach(future -> future.cancel(false /*mayInterruptIfRunning*/));
+            throw e;
+        } catch (RejectedExecutionException e) {
+            futures.forEach(future -> future.cancel(false /*mayInterruptIfRunning*/));
+            throw saturated(e);
+        }
+        return futures;
+    }
+
+    int getMaximumPoolSize() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Removes the metrics of the lane, and shuts down the pool of the lane if the lane owns it.
+     */
+    void shutdown() {
+        final MetricRegistry registry = MetricManager.INSTANCE.getRegistry();
+        registry.remove(queueGaugeName);
+        registry.remove(activeThreadsGaugeName);
+        registry.remove(waitTimerName);
+        registry.remove(rejectionsName);
+        registry.remove(shedName);
+        if (dedicated) {
+            pool.shutdown();
+        }
+    }
+}
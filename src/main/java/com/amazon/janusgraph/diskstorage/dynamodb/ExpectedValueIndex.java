@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The expected values of the key-columns that a transaction locked, in one open-addressing table keyed by store, key
+ * and column. A lookup hashes the key and column once and probes the table linearly, and releasing the locks of a
+ * transaction walks a single array.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public final class ExpectedValueIndex {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int HASH_SPREAD_SHIFT = 16;
+
+    /**
+     * The expected value of a locked key-column. The value is null if the column is expected to be absent.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class ExpectedValue {
+        @Getter(AccessLevel.PACKAGE)
+        private final AbstractDynamoDbStore store;
+        @Getter(AccessLevel.PACKAGE)
+        private final StaticBuffer key;
+        @Getter(AccessLevel.PACKAGE)
+        private final StaticBuffer column;
+        private final int hash;
+        @Getter
+        private final StaticBuffer value;
+
+        private boolean matches(final AbstractDynamoDbStore otherStore, final StaticBuffer otherKey, final StaticBuffer otherColumn,
+            final int otherHash) {
+            return hash == otherHash && store == otherStore && key.equals(otherKey) && column.equals(otherColumn);
+        }
+
+        @Override
+        public String toString() {
+            return store.getName() + ":" + key + ":" + column + "=" + value;
+        }
+    }
+
+    private ExpectedValue[] slots = new ExpectedValue[INITIAL_CAPACITY];
+    private int size;
+
+    private static int hash(final AbstractDynamoDbStore store, final StaticBuffer key, final StaticBuffer column) {
+        final int hash = (store.hashCode() * HASH_MULTIPLIER + key.hashCode()) * HASH_MULTIPLIER + column.hashCode();
+        return hash ^ (hash >>> HASH_SPREAD_SHIFT);
+    }
+
+    /**
+     * @return the slot of the key-column, or the empty slot where it would be inserted
+     */
+    private int probe(final AbstractDynamoDbStore store, final StaticBuffer key, final StaticBuffer column, final int hash) {
+        final int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != null && !slots[slot].matches(store, key, column, hash)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @param store the store
+     * @param key the key
+     * @param column the column
+     * @return the expected value of the key-column, or null if the key-column has none
+     */
+    ExpectedValue getIfPresent(final AbstractDynamoDbStore store, final StaticBuffer key, final StaticBuffer column) {
+        if (size == 0) {
+            return null;
+        }
+        return slots[probe(store, key, column, hash(store, key, column))];
+    }
+
+    /**
+     * Adds the expected value of a key-column, unless the key-column already has one.
+     * @param store the store
+     * @param key the key
+     * @param column the column
+     * @param value the expected value, or null if the column is expected to be absent
+     */
+    void putIfAbsent(final AbstractDynamoDbStore store, final StaticBuffer key, final StaticBuffer column, final StaticBuffer value) {
+        final int hash = hash(store, key, column);
+        final int slot = probe(store, key, column, hash);
+        if (slots[slot] != null) {
+            return;
+        }
+        slots[slot] = new ExpectedValue(store, key, column, hash, value);
+        size++;
+        // keep the table at most half full so that probes stay short
+        if (size * 2 > slots.length) {
+            resize();
+        }
+    }
+
+    private void resize() {
+        final ExpectedValue[] old = slots;
+        slots = new ExpectedValue[old.length * 2];
+        final int mask = slots.length - 1;
+        for (ExpectedValue expected : old) {
+            if (expected != null) {
+                int slot = expected.hash & mask;
+                while (slots[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = expected;
+            }
+        }
+    }
+
+    /**
+     * @param action called with every expected value
+     */
+    void forEach(final Consumer<ExpectedValue> action) {
+        if (size == 0) {
+            return;
+        }
+        for (ExpectedValue expected : slots) {
+            if (expected != null) {
+                action.accept(expected);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(slots, null);
+            size = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("[");
+        forEach(expected -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(expected);
+        });
+        return sb.append(']').toString();
+    }
+}
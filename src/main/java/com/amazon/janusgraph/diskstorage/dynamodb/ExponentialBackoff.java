@@ -17,6 +17,8 @@ package com.amazon.janusgraph.diskstorage.dynamodb;
 import org.janusgraph.diskstorage.BackendException;
 import org.janusgraph.diskstorage.TemporaryBackendException;
 
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
 import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
 import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
 import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
@@ -43,6 +45,7 @@ public abstract class ExponentialBackoff<R, A> {
     static final String UPDATE_ITEM_RETRIES = DynamoDbDelegate.UPDATE_ITEM + RETRIES;
     static final String DELETE_ITEM_RETRIES = DynamoDbDelegate.DELETE_ITEM + RETRIES;
     static final String GET_ITEM_RETRIES = DynamoDbDelegate.GET_ITEM + RETRIES;
+    static final String BATCH_WRITE_ITEM_RETRIES = DynamoDbDelegate.BATCH_WRITE_ITEM + RETRIES;
 
     public static final class Scan extends ExponentialBackoff<ScanRequest, ScanResult> {
         private final int permits;
@@ -123,6 +126,32 @@ public abstract class ExponentialBackoff<R, A> {
 
     }
 
+    /**
+     * Retries the unprocessed items of a BatchWriteItem call until all the items of the batch are written.
+     * The request is updated to hold only the unprocessed items between attempts.
+     */
+    public static final class BatchWriteItem extends ExponentialBackoff<BatchWriteItemRequest, BatchWriteItemResult> {
+        private final String tableName;
+        public BatchWriteItem(final BatchWriteItemRequest request, final DynamoDbDelegate delegate) {
+            super(request, delegate, BATCH_WRITE_ITEM_RETRIES);
+            this.tableName = request.getRequestItems().keySet().stream().findFirst().orElse(null);
+        }
+        @Override
+        protected BatchWriteItemResult call() throws BackendException {
+            final BatchWriteItemResult batchResult = delegate.batchWriteItem(request);
+            if (batchResult.getUnprocessedItems() != null && !batchResult.getUnprocessedItems().isEmpty()) {
+                request.setRequestItems(batchResult.getUnprocessedItems());
+                throw new TemporaryBackendException("BatchWriteItem left unprocessed items on " + tableName);
+            }
+            return batchResult;
+        }
+        @Override
+        protected String getTableName() {
+            return tableName;
+        }
+
+    }
+
     private long exponentialBackoffTime;
     private long tries;
     private final String apiNameRetries;
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Finds the hash keys of a table that receive the most weight, like consumed capacity, with the Space-Saving
+ * algorithm: a fixed number of counters track the heaviest keys seen so far, and a key that has no counter takes over
+ * the counter of the lightest key. The counts are halved every minute so that the keys reflect recent traffic.
+ * Keys are spread over stripes by their hash, and each stripe is a sketch of its own with its own lock, so that
+ * requests for different keys rarely wait for each other and only the counters of one stripe are searched for the
+ * lightest key.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+class HotKeySketch {
+    /**
+     * The number of counters per reported key in each stripe. Extra counters keep keys that are heavy but not yet at
+     * the top from being evicted by the long tail of light keys.
+     */
+    static final int COUNTERS_PER_KEY = 4;
+    /**
+     * The number of stripes, which must be a power of two.
+     */
+    static final int STRIPES = 16;
+    private static final long DECAY_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final double DECAY_FACTOR = 0.5;
+    private static final double PERCENT = 100.0;
+
+    /**
+     * A reported key, and the share of the total weight it received.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    static final class HotKey {
+        private final String key;
+        private final double share;
+
+        @Override
+        public String toString() {
+            return String.format("%s=%.1f%%", key, share * PERCENT);
+        }
+    }
+
+    private static final class Counter {
+        private double count;
+    }
+
+    /**
+     * The counters of the keys whose hash picks the stripe.
+     */
+    private static final class Stripe {
+        private final Map<String, Counter> counters = new HashMap<>();
+        private double total;
+        private long lastDecayNanos = System.nanoTime();
+
+        private synchronized void add(final String key, final double weight, final int capacity) {
+            decay();
+            total += weight;
+            final Counter counter = counters.get(key);
+            if (counter != null) {
+                counter.count += weight;
+                return;
+            }
+            if (counters.size() < capacity) {
+                final Counter added = new Counter();
+                added.count = weight;
+                counters.put(key, added);
+                return;
+            }
+            // the new key inherits the count of the lightest key, which bounds how much its count is overestimated
+            Map.Entry<String, Counter> lightest = null;
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                if (lightest == null || entry.getValue().count < lightest.getValue().count) {
+                    lightest = entry;
+                }
+            }
+            final Counter reused = counters.remove(lightest.getKey());
+            reused.count += weight;
+            counters.put(key, reused);
+        }
+
+        private void decay() {
+            final long now = System.nanoTime();
+            if (now - lastDecayNanos < DECAY_INTERVAL_NANOS) {
+                return;
+            }
+            counters.values().forEach(counter -> counter.count *= DECAY_FACTOR);
+            total *= DECAY_FACTOR;
+            lastDecayNanos = now;
+        }
+
+        /**
+         * @param counts collects the counts of the keys of the stripe
+         * @return the total weight of the stripe
+         */
+        private synchronized double collect(final Map<String, Double> counts) {
+            decay();
+            counters.forEach((key, counter) -> counts.put(key, counter.count));
+            return total;
+        }
+    }
+
+    private final int topK;
+    private final int capacity;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * @param topK the number of keys to report
+     */
+    HotKeySketch(final int topK) {
+        this.topK = topK;
+        this.capacity = topK * COUNTERS_PER_KEY;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @param key the hash key
+     * @param weight the weight the key received
+     */
+    void add(final String key, final double weight) {
+        stripes[key.hashCode() & (STRIPES - 1)].add(key, weight, capacity);
+    }
+
+    /**
+     * @return the heaviest keys, heaviest first
+     */
+    List<HotKey> getTopKeys() {
+        final Map<String, Double> counts = new HashMap<>();
+        double total = 0.0;
+        for (Stripe stripe : stripes) {
+            total += stripe.collect(counts);
+        }
+        final List<HotKey> top = new ArrayList<>(counts.size());
+        if (total > 0) {
+            for (Map.Entry<String, Double> count : counts.entrySet()) {
+                top.add(new HotKey(count.getKey(), Math.min(1.0, count.getValue() / total)));
+            }
+        }
+        top.sort(Comparator.comparingDouble(HotKey::getShare).reversed());
+        if (top.size() > topK) {
+            return new ArrayList<>(top.subList(0, topK));
+        }
+        return top;
+    }
+
+    /**
+     * @return the share of the total weight that the heaviest key received
+     */
+    double getTopShare() {
+        final List<HotKey> top = getTopKeys();
+        if (top.isEmpty()) {
+            return 0.0;
+        }
+        return top.get(0).getShare();
+    }
+}
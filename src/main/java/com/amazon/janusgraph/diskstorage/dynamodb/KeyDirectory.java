@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.PermanentBackendException;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.KCVMutation;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyRangeQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.locking.PermanentLockingException;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.RecordIterator;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.KeyDirectoryIterator;
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.MultiRecordIterator;
+import com.amazon.janusgraph.diskstorage.dynamodb.mutation.MutateWorker;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+/**
+ * A directory of the keys of a store, kept in a MULTI table next to the table of the store. Each key of the store
+ * is a column of one of a fixed number of bucket hash keys, so a key range of the store can be read in key order by
+ * querying every bucket for the range and merging the results. Keys are added to the directory when they get new
+ * columns and are never removed, so directory entries of keys whose columns were all deleted are skipped when the
+ * directory is read. The number of buckets is recorded in a metadata item of the directory when the directory is
+ * created, because a directory read with a different number of buckets would miss keys.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public class KeyDirectory {
+    public static final String TABLE_SUFFIX = "_keys";
+    /**
+     * The number of keys that were recently added to the directory and do not need to be added again.
+     */
+    private static final int RECENTLY_ADDED_KEYS = 100000;
+    /**
+     * The number of keys whose slices are read from the store at a time while iterating over a key range.
+     */
+    private static final int KEY_BATCH_SIZE = 100;
+    /**
+     * The hash key of the metadata item of the directory, which hex encoded bucket keys never equal.
+     */
+    private static final String METADATA_HASH_KEY = "#metadata";
+    private static final String BUCKETS_RANGE_KEY = "buckets";
+    private static final String BUCKET_COUNT = "n";
+    private static final String NEW_METADATA_ITEM = String.format("attribute_not_exists(%s)", Constants.JANUSGRAPH_HASH_KEY);
+
+    private final DynamoDbDelegate delegate;
+    private final DynamoDbStore directory;
+    private final List<StaticBuffer> buckets;
+    private final Cache<StaticBuffer, Boolean> recentlyAdded;
+
+    KeyDirectory(final DynamoDBStoreManager manager, final String prefix, final String storeName, final int bucketCount) {
+        this.delegate = manager.getClient().getDelegate();
+        this.directory = new DynamoDbStore(manager, prefix, storeName + TABLE_SUFFIX);
+        this.buckets = new ArrayList<>(bucketCount);
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            buckets.add(BufferUtil.getIntBuffer(bucket));
+        }
+        this.recentlyAdded = CacheBuilder.newBuilder().maximumSize(RECENTLY_ADDED_KEYS).build();
+    }
+
+    void ensureStore() throws BackendException {
+        directory.ensureStore();
+        checkBucketCount(delegate, directory.getTableName(), buckets.size());
+    }
+
+    /**
+     * Records the number of buckets of a directory that does not have it recorded yet, or checks it against the
+     * recorded number of buckets.
+     * @param delegate the delegate of the directory
+     * @param tableName the table of the directory
+     * @param bucketCount the configured number of buckets
+     * @throws BackendException if the directory was created with a different number of buckets, or the metadata item
+     * of the directory could not be read or written
+     */
+    @VisibleForTesting
+    static void checkBucketCount(final DynamoDbDelegate delegate, final String tableName, final int bucketCount) throws BackendException {
+        final Map<String, AttributeValue> key = new HashMap<>();
+        key.put(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue(METADATA_HASH_KEY));
+        key.put(Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue(BUCKETS_RANGE_KEY));
+        final Map<String, AttributeValue> item = new HashMap<>(key);
+        item.put(BUCKET_COUNT, new AttributeValue().withN(Integer.toString(bucketCount)));
+        try {
+            delegate.putItem(new PutItemRequest().withTableName(tableName)
+                .withItem(item)
+                .withConditionExpression(NEW_METADATA_ITEM)
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+            return;
+        } catch (PermanentLockingException e) {
+            // the number of buckets was already recorded
+        }
+        final Map<String, AttributeValue> recorded = delegate.getItem(new GetItemRequest().withTableName(tableName)
+            .withKey(key)
+            .withConsistentRead(true)
+            .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL)).getItem();
+        final int recordedCount = Integer.parseInt(recorded.get(BUCKET_COUNT).getN());
+        if (recordedCount != bucketCount) {
+            throw new PermanentBackendException(String.format("The key directory %s was created with %d buckets, but %s is %d",
+                tableName, recordedCount, Constants.STORES_KEY_DIRECTORY_BUCKETS.getName(), bucketCount));
+        }
+    }
+
+    void deleteStore() throws BackendException {
+        recentlyAdded.invalidateAll();
+        directory.deleteStore();
+    }
+
+    private StaticBuffer getBucket(final StaticBuffer key) {
+        return buckets.get(Hashing.consistentHash(Hashing.murmur3_32().hashBytes(key.as(StaticBuffer.ARRAY_FACTORY)), buckets.size()));
+    }
+
+    /**
+     * Creates the workers that add the keys that get new columns in a mutation to the directory. A key is
+     * remembered as present in the directory once its worker succeeds.
+     * @param mutationMap the mutations of the store
+     * @param txh the transaction
+     * @return the workers that update the directory
+     */
+    Collection<MutateWorker> createMutationWorkers(final Map<StaticBuffer, KCVMutation> mutationMap, final DynamoDbStoreTransaction txh) {
+        final List<MutateWorker> workers = new ArrayList<>();
+        for (Map.Entry<StaticBuffer, KCVMutation> entry : mutationMap.entrySet()) {
+            final StaticBuffer key = entry.getKey();
+            if (entry.getValue().hasAdditions() && recentlyAdded.getIfPresent(key) == null) {
+                final KCVMutation addKey = new KCVMutation(Collections.singletonList(StaticArrayEntry.of(key, BufferUtil.emptyBuffer())),
+                    Collections.emptyList());
+                for (MutateWorker worker : directory.createMutationWorkers(Collections.singletonMap(getBucket(key), addKey), txh)) {
+                    workers.add(() -> {
+                        worker.call();
+                        recentlyAdded.put(key, Boolean.TRUE);
+                        return null;
+                    });
+                }
+            }
+        }
+        return workers;
+    }
+
+    /**
+     * Iterates over the keys of a store in a key range, in key order.
+     * @param query the key range and the slice of columns to return for each key
+     * @param store the store the directory belongs to
+     * @param txh the transaction
+     * @return the keys of the store in the range that have columns in the slice
+     */
+    KeyIterator getKeys(final KeyRangeQuery query, final KeyColumnValueStore store, final StoreTransaction txh) {
+        final SliceQuery keySlice = new SliceQuery(query.getKeyStart(), query.getKeyEnd());
+        final List<RecordIterator<Entry>> bucketIterators = buckets.stream()
+            .map(bucket -> new MultiRecordIterator(directory.buildQueryWorker(bucket, keySlice), keySlice))
+            .collect(Collectors.toList());
+        return new KeyDirectoryIterator(bucketIterators, store, new SliceQuery(query), txh, KEY_BATCH_SIZE);
+    }
+}
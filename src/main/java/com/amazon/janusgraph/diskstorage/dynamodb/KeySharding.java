@@ -0,0 +1,324 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.locking.PermanentLockingException;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.builder.AbstractBuilder;
+import com.amazon.janusgraph.diskstorage.dynamodb.builder.ConditionExpressionBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.google.common.hash.Hashing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Spreads the columns of the hot keys of a MULTI store over several hash keys. Shard 0 of a sharded key is its own
+ * hash key, and the other shards are the hash key salted with the shard number. Columns are written to the shard
+ * that the hash of the column picks, so that writes to the key are spread over partitions. The expected values of
+ * columns that a transaction locked are checked against that shard, or against the unsalted hash key if the column
+ * has not been written since the key was sharded.
+ *
+ * The shard counts of the sharded keys are kept in a directory under a reserved hash key of the table, and every
+ * instance caches the whole directory and reloads it periodically. Keys are added to the directory when they are
+ * configured as sharded, or when their share of the consumed write capacity of the table exceeds a threshold.
+ * Writers only start spreading the columns of a newly added key after every instance has had two chances to reload
+ * the directory, so readers always query every shard that may have columns. Columns written before the key was
+ * sharded stay in the unsalted hash key, and are shadowed by newer copies in the other shards until they are deleted.
+ *
+ * Salted hash keys and the reserved hash key contain a character that hex encoded keys never contain, so they never
+ * collide with the hash keys of the store. Scans skip their items, and discover a sharded key through the items of
+ * its unsalted hash key. Every sharded key keeps a marker item in its unsalted hash key, whose range key sorts after
+ * every hex encoded column, so that scans find the key even if all its columns are in other shards.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Slf4j
+public class KeySharding {
+    public static final String SALT_SEPARATOR = "#";
+    /**
+     * The placeholder of the salt separator in scan filter expressions.
+     */
+    public static final String SALT_SEPARATOR_VALUE = ":salt";
+    /**
+     * The range key of the marker item of a sharded key, which slices of hex encoded columns never contain.
+     */
+    public static final String MARKER_RANGE_KEY = "~";
+    /**
+     * The placeholder of the range key of marker items in scan filter expressions.
+     */
+    public static final String MARKER_RANGE_KEY_VALUE = ":marker";
+    private static final String DIRECTORY_HASH_KEY = SALT_SEPARATOR + "shards";
+    private static final String SHARDS = "n";
+    private static final String START = "t";
+    private static final String HASH_KEY_EQUALS = String.format("%s = %s", Constants.JANUSGRAPH_HASH_KEY, ConditionExpressionBuilder.K);
+    private static final String NEW_DIRECTORY_ENTRY = String.format("attribute_not_exists(%s)", Constants.JANUSGRAPH_RANGE_KEY);
+    /**
+     * The number of directory reloads that writers wait for before they spread the columns of a newly sharded key.
+     */
+    private static final int START_DELAY_RELOADS = 2;
+
+    /**
+     * The directory entry of a sharded key.
+     */
+    @RequiredArgsConstructor
+    private static final class Shards {
+        private final int count;
+        /**
+         * The time in milliseconds since the epoch from which writers spread the columns of the key.
+         */
+        private final long startMillis;
+    }
+
+    private final AbstractDynamoDbStore store;
+    private final DynamoDbDelegate delegate;
+    private final int shards;
+    private final List<StaticBuffer> configuredKeys;
+    private final double writeRateThreshold;
+    private final long reloadMillis;
+    private final ScheduledFuture<?> maintenance;
+    /**
+     * The cached directory, or null until it is loaded.
+     */
+    private volatile Map<StaticBuffer, Shards> directory;
+
+    /**
+     * @param store the store whose keys are sharded
+     * @param client the client of the store
+     * @param scheduler the executor that reloads the directory and adds hot keys to it
+     */
+    KeySharding(final AbstractDynamoDbStore store, final Client client, final ScheduledExecutorService scheduler) {
+        this.store = store;
+        this.delegate = client.getDelegate();
+        this.shards = client.shards(store.getName());
+        this.configuredKeys = new ArrayList<>();
+        for (String key : client.shardedKeys(store.getName())) {
+            configuredKeys.add(AbstractBuilder.decodeKey(key));
+        }
+        this.writeRateThreshold = client.shardWriteRate(store.getName());
+        this.reloadMillis = client.shardDirectoryReloadMillis(store.getName());
+        this.maintenance = scheduler.scheduleWithFixedDelay(this::maintain, reloadMillis, reloadMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param hashKey a hash key of the table
+     * @return true if the hash key is a salted hash key or the hash key of the directory
+     */
+    public static boolean isSalted(final String hashKey) {
+        return hashKey.contains(SALT_SEPARATOR);
+    }
+
+    /**
+     * @param item an item of the table
+     * @return true if the item is the marker item of a sharded key
+     */
+    public static boolean isMarker(final Map<String, AttributeValue> item) {
+        final AttributeValue rangeKey = item.get(Constants.JANUSGRAPH_RANGE_KEY);
+        return rangeKey != null && MARKER_RANGE_KEY.equals(rangeKey.getS());
+    }
+
+    /**
+     * @param hashKey a hash key of the table
+     * @return the key of the store that the hash key is, or null if the hash key is salted
+     */
+    public static StaticBuffer decodeHashKey(final AttributeValue hashKey) {
+        if (isSalted(hashKey.getS())) {
+            return null;
+        }
+        return AbstractBuilder.decodeKey(hashKey.getS());
+    }
+
+    private Map<StaticBuffer, Shards> getDirectory() throws BackendException {
+        final Map<StaticBuffer, Shards> current = directory;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (directory == null) {
+                directory = load();
+            }
+            return directory;
+        }
+    }
+
+    private Map<StaticBuffer, Shards> load() throws BackendException {
+        final Map<StaticBuffer, Shards> loaded = new HashMap<>();
+        final QueryRequest request = store.createQueryRequest()
+            .withKeyConditionExpression(HASH_KEY_EQUALS)
+            .withExpressionAttributeValues(Collections.singletonMap(ConditionExpressionBuilder.K, new AttributeValue(DIRECTORY_HASH_KEY)));
+        QueryResult result;
+        do {
+            result = delegate.query(request, 1 /*permitsToConsume*/);
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                loaded.put(AbstractBuilder.decodeKey(item.get(Constants.JANUSGRAPH_RANGE_KEY).getS()),
+                    new Shards(Integer.parseInt(item.get(SHARDS).getN()), Long.parseLong(item.get(START).getN())));
+            }
+            request.setExclusiveStartKey(result.getLastEvaluatedKey());
+        } while (result.getLastEvaluatedKey() != null && !result.getLastEvaluatedKey().isEmpty());
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    /**
+     * @param key a key of the store
+     * @return true if the columns of the key may be spread over several hash keys
+     * @throws BackendException if the directory could not be loaded
+     */
+    boolean isSharded(final StaticBuffer key) throws BackendException {
+        return getDirectory().containsKey(key);
+    }
+
+    /**
+     * @param key a key of the store
+     * @return the hash keys that hold the columns of the key
+     * @throws BackendException if the directory could not be loaded
+     */
+    List<String> getHashKeys(final StaticBuffer key) throws BackendException {
+        final String hashKey = AbstractBuilder.encodeKeyBuffer(key);
+        final Shards entry = getDirectory().get(key);
+        if (entry == null) {
+            return Collections.singletonList(hashKey);
+        }
+        final List<String> hashKeys = new ArrayList<>(entry.count);
+        hashKeys.add(hashKey);
+        for (int shard = 1; shard < entry.count; shard++) {
+            hashKeys.add(hashKey + SALT_SEPARATOR + shard);
+        }
+        return hashKeys;
+    }
+
+    /**
+     * @param key a key of the store
+     * @return the number of shards that writers spread the columns of the key over, which is 1 if the key is not
+     * sharded yet
+     * @throws BackendException if the directory could not be loaded
+     */
+    int getWriteShards(final StaticBuffer key) throws BackendException {
+        final Shards entry = getDirectory().get(key);
+        if (entry == null || System.currentTimeMillis() < entry.startMillis) {
+            return 1;
+        }
+        return entry.count;
+    }
+
+    /**
+     * @param key a key of the store
+     * @param column a column of the key
+     * @param writeShards the number of shards that writers spread the columns of the key over
+     * @return the hash key to write the column to, or null if the column belongs in the unsalted hash key
+     */
+    static String getSaltedHashKey(final StaticBuffer key, final StaticBuffer column, final int writeShards) {
+        if (writeShards <= 1) {
+            return null;
+        }
+        final int shard = Hashing.consistentHash(Hashing.murmur3_32().hashBytes(column.as(StaticBuffer.ARRAY_FACTORY)), writeShards);
+        if (shard == 0) {
+            return null;
+        }
+        return AbstractBuilder.encodeKeyBuffer(key) + SALT_SEPARATOR + shard;
+    }
+
+    /**
+     * Reloads the directory, and adds the configured keys and the keys that consume more than the write capacity
+     * threshold that are not in it yet.
+     */
+    void maintain() {
+        try {
+            Map<StaticBuffer, Shards> loaded = load();
+            boolean added = false;
+            for (StaticBuffer key : configuredKeys) {
+                if (!loaded.containsKey(key)) {
+                    added |= add(key);
+                }
+            }
+            if (writeRateThreshold > 0) {
+                final double writeRate = delegate.getWriteRequestUnitsRate(store.getTableName());
+                for (HotKeySketch.HotKey hotKey : delegate.getHotWriteKeys(store.getTableName())) {
+                    if (!isSalted(hotKey.getKey()) && hotKey.getShare() * writeRate >= writeRateThreshold
+                        && !loaded.containsKey(AbstractBuilder.decodeKey(hotKey.getKey()))) {
+                        added |= add(AbstractBuilder.decodeKey(hotKey.getKey()));
+                    }
+                }
+            }
+            if (added) {
+                loaded = load();
+            }
+            directory = loaded;
+        } catch (BackendException | RuntimeException e) {
+            log.warn("Unable to maintain the shard directory of table {}", store.getTableName(), e);
+        }
+    }
+
+    /**
+     * @param key the key to shard
+     * @return true if the key was added to the directory, and false if another instance added it first
+     * @throws BackendException if the directory entry could not be written
+     */
+    private boolean add(final StaticBuffer key) throws BackendException {
+        final long startMillis = System.currentTimeMillis() + START_DELAY_RELOADS * reloadMillis;
+        // the marker goes first, so that it exists before any column is written to a salted hash key
+        final Map<String, AttributeValue> marker = new HashMap<>();
+        marker.put(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue(AbstractBuilder.encodeKeyBuffer(key)));
+        marker.put(Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue(MARKER_RANGE_KEY));
+        delegate.putItem(new PutItemRequest().withTableName(store.getTableName())
+            .withItem(marker)
+            .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+
+        final Map<String, AttributeValue> item = new HashMap<>();
+        item.put(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue(DIRECTORY_HASH_KEY));
+        item.put(Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue(AbstractBuilder.encodeKeyBuffer(key)));
+        item.put(SHARDS, new AttributeValue().withN(Integer.toString(shards)));
+        item.put(START, new AttributeValue().withN(Long.toString(startMillis)));
+        try {
+            delegate.putItem(new PutItemRequest().withTableName(store.getTableName())
+                .withItem(item)
+                .withConditionExpression(NEW_DIRECTORY_ENTRY)
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+        } catch (PermanentLockingException e) {
+            return false;
+        }
+        log.info("Sharding key {} of table {} over {} hash keys", store.encodeKeyForLog(key), store.getTableName(), shards);
+        return true;
+    }
+
+    /**
+     * Forgets the directory, after the table was deleted.
+     */
+    void invalidate() {
+        directory = null;
+    }
+
+    /**
+     * Stops maintaining the directory.
+     */
+    void close() {
+        maintenance.cancel(false /*mayInterruptIfRunning*/);
+    }
+}
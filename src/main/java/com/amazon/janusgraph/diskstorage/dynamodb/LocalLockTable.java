@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+
+import com.codahale.metrics.Meter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maps the key-column pairs of a store to the DynamoDbStoreTransaction that first locked them in this JVM. The table
+ * is split into stripes by the hash of the key and column, so that transactions that lock different key-columns
+ * rarely contend. A lock expires a fixed time after it was acquired. Expired locks are replaced when another
+ * transaction locks the same key-column, and removed by a periodic sweep otherwise.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Slf4j
+class LocalLockTable {
+    static final String CONTENTION = "LocalLockContention";
+    static final String EXPIRED = "LocalLockExpired";
+    private static final int STRIPES_PER_PROCESSOR = 4;
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int HASH_SPREAD_SHIFT = 16;
+
+    private final Stripe[] stripes;
+    private final long expiryNanos;
+    private final Meter contention;
+    private final Meter expired;
+    private final ScheduledFuture<?> sweep;
+
+    private static final class KeyColumn {
+        private final StaticBuffer key;
+        private final StaticBuffer column;
+        private final int hash;
+
+        KeyColumn(final StaticBuffer key, final StaticBuffer column) {
+            this.key = key;
+            this.column = column;
+            this.hash = key.hashCode() * HASH_MULTIPLIER + column.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof KeyColumn)) {
+                return false;
+            }
+            final KeyColumn rhs = (KeyColumn) obj;
+            return hash == rhs.hash && key.equals(rhs.key) && column.equals(rhs.column);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return key + ":" + column;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Lock {
+        private final DynamoDbStoreTransaction tx;
+        private final long expiresAtNanos;
+
+        boolean isExpired(final long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+    }
+
+    /**
+     * The locks of the key-columns whose hashes map to one stripe, guarded by the monitor of the stripe.
+     */
+    private static final class Stripe {
+        private final Map<KeyColumn, Lock> locks = new HashMap<>();
+    }
+
+    /**
+     * @param delegate the delegate whose metrics the table reports to
+     * @param tableName the name of the table of the store
+     * @param expiry the time after which locks expire
+     * @param sweeper the executor that periodically removes expired locks
+     */
+    LocalLockTable(final DynamoDbDelegate delegate, final String tableName, final Duration expiry,
+        final ScheduledExecutorService sweeper) {
+        final int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * STRIPES_PER_PROCESSOR - 1) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.expiryNanos = expiry.toNanos();
+        this.contention = delegate.getMeter(delegate.getMeterName(CONTENTION, tableName));
+        this.expired = delegate.getMeter(delegate.getMeterName(EXPIRED, tableName));
+        final long periodMillis = Math.max(1L, expiry.toMillis());
+        this.sweep = sweeper.scheduleWithFixedDelay(this::sweep, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private Stripe stripeOf(final KeyColumn keyColumn) {
+        final int hash = keyColumn.hash ^ (keyColumn.hash >>> HASH_SPREAD_SHIFT);
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    /**
+     * Locks a key-column for a transaction, unless another transaction holds an unexpired lock on it.
+     * @param key the key
+     * @param column the column
+     * @param tx the transaction
+     * @return the transaction that holds the lock, which is tx if it acquired or already held the lock
+     */
+    DynamoDbStoreTransaction lock(final StaticBuffer key, final StaticBuffer column, final DynamoDbStoreTransaction tx) {
+        final KeyColumn keyColumn = new KeyColumn(key, column);
+        final Stripe stripe = stripeOf(keyColumn);
+        final long now = System.nanoTime();
+        synchronized (stripe) {
+            final Lock existing = stripe.locks.get(keyColumn);
+            if (existing == null || existing.isExpired(now)) {
+                if (existing != null) {
+                    expired.mark();
+                    log.trace("Expiring {} in tx {}", keyColumn, existing.tx);
+                }
+                stripe.locks.put(keyColumn, new Lock(tx, now + expiryNanos));
+                return tx;
+            }
+            if (existing.tx != tx) {
+                contention.mark();
+            }
+            return existing.tx;
+        }
+    }
+
+    /**
+     * @param key the key
+     * @param column the column
+     */
+    void release(final StaticBuffer key, final StaticBuffer column) {
+        final KeyColumn keyColumn = new KeyColumn(key, column);
+        final Stripe stripe = stripeOf(keyColumn);
+        synchronized (stripe) {
+            stripe.locks.remove(keyColumn);
+        }
+    }
+
+    /**
+     * Removes the expired locks of every stripe.
+     */
+    void sweep() {
+        final long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                final Iterator<Map.Entry<KeyColumn, Lock>> it = stripe.locks.entrySet().iterator();
+                while (it.hasNext()) {
+                    final Map.Entry<KeyColumn, Lock> entry = it.next();
+                    if (entry.getValue().isExpired(now)) {
+                        log.trace("Expiring {} in tx {}", entry.getKey(), entry.getValue().tx);
+                        it.remove();
+                        expired.mark();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops sweeping the table.
+     */
+    void close() {
+        sweep.cancel(false /*mayInterruptIfRunning*/);
+    }
+}
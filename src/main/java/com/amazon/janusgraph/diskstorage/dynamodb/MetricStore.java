@@ -15,11 +15,15 @@
 package com.amazon.janusgraph.diskstorage.dynamodb;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.janusgraph.diskstorage.BackendException;
 import org.janusgraph.diskstorage.StaticBuffer;
 import org.janusgraph.diskstorage.keycolumnvalue.KCVMutation;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
 import org.janusgraph.diskstorage.util.MetricInstrumentedStore;
 
 import com.amazon.janusgraph.diskstorage.dynamodb.mutation.MutateWorker;
@@ -57,4 +61,9 @@ public class MetricStore extends MetricInstrumentedStore implements AwsStore {
     public Collection<MutateWorker> createMutationWorkers(final Map<StaticBuffer, KCVMutation> mutationMap, final DynamoDbStoreTransaction txh) {
         return delegate.createMutationWorkers(mutationMap, txh);
     }
+
+    @Override
+    public List<KeyIterator> getKeySegments(final SliceQuery query, final StoreTransaction txh) throws BackendException {
+        return delegate.getKeySegments(query, txh);
+    }
 }
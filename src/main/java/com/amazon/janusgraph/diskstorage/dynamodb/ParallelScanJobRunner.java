@@ -0,0 +1,229 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.PermanentBackendException;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.KeySliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanJob;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanMetrics;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.StandardScanMetrics;
+import org.janusgraph.diskstorage.util.RecordIterator;
+import org.janusgraph.diskstorage.util.StandardBaseTransactionConfig;
+import org.janusgraph.diskstorage.util.StaticArrayEntryList;
+import org.janusgraph.util.stats.MetricManager;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a JanusGraph ScanJob over the segments of a parallel scan of one store, as an alternative to
+ * JanusGraph's StandardScanner, which processes all the keys of a store on a single thread. Each worker thread
+ * processes its own clone of the job over one segment at a time until no segments are left, so CPU-bound jobs
+ * such as index repair and removal scale with the number of workers. Per-segment progress is reported in the
+ * ScanJobKeys meter, the ScanJobSegment timer and the ScanJobSegmentsCompleted counter of the store table, and
+ * in the SEGMENTS_COMPLETED custom metric of the returned ScanMetrics.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Slf4j
+public class ParallelScanJobRunner {
+    public static final String SEGMENTS_COMPLETED = "segments-completed";
+    private static final String SCAN_JOB = "ScanJob";
+    private static final String SCAN_JOB_KEYS = "ScanJobKeys";
+    private static final String SCAN_JOB_SEGMENT = "ScanJobSegment";
+    private static final String SCAN_JOB_SEGMENTS_COMPLETED = "ScanJobSegmentsCompleted";
+
+    private final DynamoDBStoreManager manager;
+    private final int workers;
+
+    /**
+     * Creates a runner with as many workers as a parallel scan of one store uses.
+     * @param manager the store manager of the graph to scan
+     */
+    public ParallelScanJobRunner(final DynamoDBStoreManager manager) {
+        this(manager, manager.getClient().getDelegate().getScanWorkers());
+    }
+
+    public ParallelScanJobRunner(final DynamoDBStoreManager manager, final int workers) {
+        Preconditions.checkArgument(workers > 0, "the runner needs at least one worker");
+        this.manager = manager;
+        this.workers = workers;
+    }
+
+    /**
+     * Runs a job over every key of a store and waits for it to finish.
+     * @param storeName the store to scan, for example edgestore
+     * @param job the job to run. Every worker runs its own clone of the job.
+     * @param graphConfiguration the graph configuration passed to workerIterationStart
+     * @param jobConfiguration the job configuration passed to workerIterationStart
+     * @return the metrics of all the workers
+     * @throws BackendException if the store could not be scanned
+     */
+    public ScanMetrics run(final String storeName, final ScanJob job, final Configuration graphConfiguration, final Configuration jobConfiguration)
+        throws BackendException {
+        final List<SliceQuery> queries = job.getQueries();
+        Preconditions.checkArgument(queries != null && !queries.isEmpty(), "the job must have at least one query");
+        final AwsStore store = manager.openDatabase(storeName);
+        final StoreTransaction txh = manager.beginTransaction(StandardBaseTransactionConfig.of(manager.getTimestampProvider()));
+        final List<KeyIterator> segments = store.getKeySegments(queries.get(0), txh);
+        final Queue<Integer> pendingSegments = new ConcurrentLinkedQueue<>();
+        for (int segment = 0; segment < segments.size(); segment++) {
+            pendingSegments.add(segment);
+        }
+        final ScanMetrics metrics = new StandardScanMetrics();
+        final int threads = Math.min(workers, segments.size());
+        log.info("Running {} on {} in {} segments with {} workers", job.getClass().getSimpleName(), store.getTableName(), segments.size(), threads);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setNameFormat(storeName + "-scan-job-%d").setDaemon(true).build());
+        final List<Future<Void>> futures = new ArrayList<>(threads);
+        boolean succeeded = false;
+        try {
+            final Callable<Void> worker = () -> {
+                work(job.clone(), store, txh, segments, pendingSegments, graphConfiguration, jobConfiguration, metrics);
+                return null;
+            };
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(worker));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            succeeded = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendRuntimeException("was interrupted while running a scan job");
+        } catch (ExecutionException e) {
+            throw manager.getClient().getDelegate().unwrapExecutionException(e, SCAN_JOB);
+        } finally {
+            // stops the remaining workers after a failure
+            pendingSegments.clear();
+            executor.shutdownNow();
+            // the workers share the transaction, so a failure of any of them rolls back the reads of all of them
+            if (succeeded) {
+                txh.commit();
+            } else {
+                txh.rollback();
+            }
+        }
+        log.info("Finished {} on {}: {} keys succeeded and {} failed", job.getClass().getSimpleName(), store.getTableName(),
+            metrics.get(ScanMetrics.Metric.SUCCESS), metrics.get(ScanMetrics.Metric.FAILURE));
+        return metrics;
+    }
+
+    private void work(final ScanJob job, final AwsStore store, final StoreTransaction txh, final List<KeyIterator> segments,
+        final Queue<Integer> pendingSegments, final Configuration graphConfiguration, final Configuration jobConfiguration,
+        final ScanMetrics metrics) throws BackendException {
+        job.workerIterationStart(graphConfiguration, jobConfiguration, metrics);
+        try {
+            for (Integer segment = pendingSegments.poll(); segment != null; segment = pendingSegments.poll()) {
+                processSegment(job, store, txh, segment, segments.get(segment), segments.size(), metrics);
+            }
+        } finally {
+            job.workerIterationEnd(metrics);
+        }
+    }
+
+    private void processSegment(final ScanJob job, final AwsStore store, final StoreTransaction txh, final int segment,
+        final KeyIterator keys, final int totalSegments, final ScanMetrics metrics) throws BackendException {
+        final DynamoDbDelegate delegate = manager.getClient().getDelegate();
+        final String tableName = store.getTableName();
+        final Meter keysMeter = delegate.getMeter(delegate.getMeterName(SCAN_JOB_KEYS, tableName));
+        final Counter segmentsCompleted = MetricManager.INSTANCE.getCounter(delegate.getMeterName(SCAN_JOB_SEGMENTS_COMPLETED, tableName));
+        final List<SliceQuery> queries = job.getQueries();
+        final Predicate<StaticBuffer> keyFilter = job.getKeyFilter();
+        long processed = 0;
+        final Timer.Context segmentTimer = delegate.getTimerContext(SCAN_JOB_SEGMENT, tableName);
+        try {
+            while (keys.hasNext()) {
+                final StaticBuffer key = keys.next();
+                if (keyFilter.test(key)) {
+                    final Map<SliceQuery, EntryList> slices = new HashMap<>(queries.size() * 2);
+                    slices.put(queries.get(0), readEntries(keys.getEntries()));
+                    for (SliceQuery query : queries.subList(1, queries.size())) {
+                        slices.put(query, store.getSlice(new KeySliceQuery(key, query), txh));
+                    }
+                    process(job, key, slices, metrics);
+                    processed++;
+                    keysMeter.mark();
+                }
+            }
+        } catch (BackendRuntimeException e) {
+            throw e.getBackendException();
+        } finally {
+            segmentTimer.stop();
+            close(keys, tableName);
+        }
+        segmentsCompleted.inc();
+        metrics.incrementCustom(SEGMENTS_COMPLETED);
+        log.debug("Processed {} keys in segment {} of {} of {}", processed, segment, totalSegments, tableName);
+    }
+
+    private static EntryList readEntries(final RecordIterator<Entry> entries) throws BackendException {
+        try (RecordIterator<Entry> iterator = entries) {
+            return StaticArrayEntryList.of(Lists.newArrayList(iterator));
+        } catch (IOException e) {
+            throw new PermanentBackendException("Unable to close the entries of a key", e);
+        }
+    }
+
+    private static void process(final ScanJob job, final StaticBuffer key, final Map<SliceQuery, EntryList> slices, final ScanMetrics metrics) {
+        try {
+            job.process(key, slices, metrics);
+            metrics.increment(ScanMetrics.Metric.SUCCESS);
+        } catch (RuntimeException e) {
+            // like StandardScanner, a key that fails does not fail the job
+            log.error("Exception processing row [" + key + "]", e);
+            metrics.increment(ScanMetrics.Metric.FAILURE);
+        }
+    }
+
+    private static void close(final KeyIterator keys, final String tableName) {
+        try {
+            keys.close();
+        } catch (IOException e) {
+            log.warn("Unable to close a scan segment of " + tableName, e);
+        }
+    }
+}
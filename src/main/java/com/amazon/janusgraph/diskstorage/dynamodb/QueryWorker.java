@@ -31,7 +31,9 @@ import com.amazonaws.services.dynamodbv2.model.QueryResult;
 import lombok.Getter;
 
 /**
- * QueryWorker iterates through pages of DynamoDB Query results.
+ * QueryWorker iterates through pages of DynamoDB Query results. Iterating with next() emits each page without keeping
+ * it, so callers that consume the pages one at a time use memory for one page only. Only call() keeps the pages, to
+ * merge them into one result, so it must not be mixed with next() on the same worker.
  *
  * @author Alexander Patrikalakis
  *
@@ -47,6 +49,10 @@ public class QueryWorker extends PaginatingTask<QueryResultWrapper> {
     private final List<Map<String, AttributeValue>> finalItemList;
     private int permitsToConsume;
     private double totalCapacityUnits;
+    /**
+     * True if the pages are kept to be merged, when the worker is run with call().
+     */
+    private boolean merging;
 
     QueryWorker(final DynamoDbDelegate delegate, final QueryRequest request, final StaticBuffer titanKey) {
         super(delegate, DynamoDbDelegate.QUERY, request.getTableName());
@@ -57,6 +63,13 @@ public class QueryWorker extends PaginatingTask<QueryResultWrapper> {
         this.finalItemList = new ArrayList<>();
         this.permitsToConsume = 1;
         this.totalCapacityUnits = 0.0;
+        this.merging = false;
+    }
+
+    @Override
+    public QueryResultWrapper call() throws BackendException {
+        merging = true;
+        return super.call();
     }
 
     @Override
@@ -79,8 +92,10 @@ public class QueryWorker extends PaginatingTask<QueryResultWrapper> {
 
         // b update scanned count
         scannedCount += result.getScannedCount();
-        // c add scanned finalItemList
-        finalItemList.addAll(result.getItems());
+        // c add scanned finalItemList, unless the pages are consumed one at a time
+        if (merging) {
+            finalItemList.addAll(result.getItems());
+        }
         return new QueryResultWrapper(titanKey, result);
     }
 
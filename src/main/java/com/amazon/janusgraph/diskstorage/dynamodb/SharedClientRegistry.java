@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reference counted DynamoDB clients and client executors, shared by the graphs of a JVM that configure the same
+ * client, credentials and executor. The HTTP connection pool of a client and the threads of an executor are released
+ * when the last graph that uses them shuts down.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Slf4j
+final class SharedClientRegistry {
+    /**
+     * A client and executor, and the number of graphs that use them.
+     */
+    @RequiredArgsConstructor
+    static final class Resources {
+        @Getter
+        private final AmazonDynamoDB client;
+        @Getter
+        private final ThreadPoolExecutor pool;
+        private int references;
+    }
+
+    private static final Map<List<Object>, Resources> RESOURCES = new HashMap<>();
+
+    private SharedClientRegistry() {
+    }
+
+    /**
+     * @param key the configuration values that graphs must agree on to share a client and executor
+     * @param clientFactory creates the client if no graph uses one with the same key
+     * @param poolFactory creates the executor if no graph uses one with the same key
+     * @return the shared client and executor
+     */
+    static synchronized Resources acquire(final List<Object> key, final Supplier<AmazonDynamoDB> clientFactory,
+        final Supplier<ThreadPoolExecutor> poolFactory) {
+        final Resources resources = RESOURCES.computeIfAbsent(key, k -> new Resources(clientFactory.get(), poolFactory.get()));
+        resources.references++;
+        log.debug("Acquired a shared DynamoDB client used by {} graphs", resources.references);
+        return resources;
+    }
+
+    /**
+     * Shuts down the client and executor of a key when the last graph that uses them releases them.
+     * @param key the key the resources were acquired with
+     */
+    static synchronized void release(final List<Object> key) {
+        final Resources resources = RESOURCES.get(key);
+        if (resources == null) {
+            return;
+        }
+        resources.references--;
+        if (resources.references == 0) {
+            RESOURCES.remove(key);
+            resources.client.shutdown();
+            resources.pool.shutdown();
+        }
+    }
+}
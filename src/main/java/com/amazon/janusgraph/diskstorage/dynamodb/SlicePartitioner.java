@@ -0,0 +1,216 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Splits the slices of wide keys into sub-ranges that can be queried in parallel. A key is wide once a read of one of
+ * its slices consumed more capacity than a full page of a query does, and the columns that read returned are sampled
+ * and remembered as boundaries. Later slices of the key are split at the remembered boundaries that fall inside them,
+ * and sub-ranges are bisected in byte space when there are not enough boundaries. Reads of whole slices of a wide key
+ * replace the boundaries inside the slice with samples of the columns they returned. Slices with a limit that fits in
+ * about a page of the key are not split, because one query reads them.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+class SlicePartitioner {
+    /**
+     * The read capacity units a 1 MB page of a query consumes with eventually consistent reads. Slices that consume
+     * less than this fit in one page, and gain nothing from being split.
+     */
+    static final double PAGE_CAPACITY_UNITS = 128.0;
+    /**
+     * The number of boundaries remembered per key.
+     */
+    static final int MAX_SAMPLES = 64;
+    private static final long MAX_KEYS = 10000L;
+
+    private final int partitions;
+    private final Cache<StaticBuffer, KeySamples> samples;
+
+    /**
+     * The boundaries remembered for a key, and the number of its columns that fit in a page.
+     */
+    @RequiredArgsConstructor
+    private static class KeySamples {
+        private final List<StaticBuffer> boundaries;
+        private final int columnsPerPage;
+    }
+
+    /**
+     * @param partitions the number of sub-ranges to split the slices of wide keys into
+     */
+    SlicePartitioner(final int partitions) {
+        this.partitions = partitions;
+        this.samples = CacheBuilder.newBuilder().maximumSize(MAX_KEYS).build();
+    }
+
+    /**
+     * @param key the key
+     * @param query the slice of the key
+     * @return contiguous sub-ranges that cover the slice in column order, each with the limit of the slice, or only
+     * the slice if the key is not known to be wide or the limit of the slice fits in a page
+     */
+    List<SliceQuery> partition(final StaticBuffer key, final SliceQuery query) {
+        final KeySamples keySamples = samples.getIfPresent(key);
+        if (keySamples == null || query.hasLimit() && query.getLimit() <= keySamples.columnsPerPage) {
+            return Collections.singletonList(query);
+        }
+        final List<StaticBuffer> inside = new ArrayList<>();
+        for (StaticBuffer sample : keySamples.boundaries) {
+            if (sample.compareTo(query.getSliceStart()) > 0 && sample.compareTo(query.getSliceEnd()) < 0) {
+                inside.add(sample);
+            }
+        }
+        List<StaticBuffer> bounds = new ArrayList<>(partitions + 1);
+        bounds.add(query.getSliceStart());
+        if (inside.size() >= partitions - 1) {
+            for (int i = 1; i < partitions; i++) {
+                bounds.add(inside.get(i * inside.size() / partitions));
+            }
+        } else {
+            bounds.addAll(inside);
+        }
+        bounds.add(query.getSliceEnd());
+        while (bounds.size() <= partitions) {
+            final List<StaticBuffer> bisected = bisect(bounds, partitions + 1);
+            if (bisected.size() == bounds.size()) {
+                break;
+            }
+            bounds = bisected;
+        }
+
+        final List<SliceQuery> subRanges = new ArrayList<>(bounds.size() - 1);
+        for (int i = 1; i < bounds.size(); i++) {
+            final SliceQuery subRange = new SliceQuery(bounds.get(i - 1), bounds.get(i));
+            if (query.hasLimit()) {
+                subRange.setLimit(query.getLimit());
+            }
+            subRanges.add(subRange);
+        }
+        return subRanges;
+    }
+
+    /**
+     * @param bounds the bounds of sub-ranges in column order
+     * @param maxBounds the number of bounds to stop at
+     * @return the bounds with the midpoint of each sub-range inserted, from the first sub-range on
+     */
+    private static List<StaticBuffer> bisect(final List<StaticBuffer> bounds, final int maxBounds) {
+        final List<StaticBuffer> bisected = new ArrayList<>(maxBounds);
+        int added = bounds.size();
+        for (int i = 0; i < bounds.size(); i++) {
+            if (i > 0 && added < maxBounds) {
+                final StaticBuffer midpoint = midpoint(bounds.get(i - 1), bounds.get(i));
+                if (midpoint != null) {
+                    bisected.add(midpoint);
+                    added++;
+                }
+            }
+            bisected.add(bounds.get(i));
+        }
+        return bisected;
+    }
+
+    /**
+     * Bisects a range of columns by reading the columns as fractions in base 256.
+     * @param low the lower bound
+     * @param high the upper bound
+     * @return a column strictly between the bounds, or null if there is none
+     */
+    static StaticBuffer midpoint(final StaticBuffer low, final StaticBuffer high) {
+        // one byte more than the longer bound, so that bounds that differ in their last byte have columns between them
+        final int length = Math.max(low.length(), high.length()) + 1;
+        final BigInteger lowValue = new BigInteger(1, pad(low, length));
+        final BigInteger highValue = new BigInteger(1, pad(high, length));
+        final BigInteger middle = lowValue.add(highValue).shiftRight(1);
+        if (middle.compareTo(lowValue) <= 0 || middle.compareTo(highValue) >= 0) {
+            return null;
+        }
+        final byte[] magnitude = middle.toByteArray();
+        final byte[] bytes = new byte[length];
+        final int copied = Math.min(magnitude.length, length);
+        System.arraycopy(magnitude, magnitude.length - copied, bytes, length - copied, copied);
+        return new StaticArrayBuffer(bytes);
+    }
+
+    private static byte[] pad(final StaticBuffer column, final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < column.length(); i++) {
+            bytes[i] = column.getByte(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Remembers samples of the columns of a whole slice of a key, if the slice took more than a page to read.
+     * @param key the key
+     * @param query the slice of the key, which must not have a limit
+     * @param entries the columns of the slice in column order
+     * @param consumedCapacity the read capacity units the slice consumed
+     */
+    void record(final StaticBuffer key, final SliceQuery query, final List<Entry> entries, final double consumedCapacity) {
+        if (consumedCapacity < PAGE_CAPACITY_UNITS || entries.size() < 2) {
+            return;
+        }
+        final int columnsPerPage = Math.max(1, (int) (entries.size() * PAGE_CAPACITY_UNITS / consumedCapacity));
+        final KeySamples previous = samples.getIfPresent(key);
+        final List<StaticBuffer> merged = new ArrayList<>();
+        if (previous != null) {
+            for (StaticBuffer sample : previous.boundaries) {
+                if (!query.contains(sample)) {
+                    merged.add(sample);
+                }
+            }
+        }
+        final int sampled = Math.min(entries.size() - 1, MAX_SAMPLES);
+        for (int i = 1; i <= sampled; i++) {
+            // copy the column, so that the sample does not hold on to the data of the whole slice
+            merged.add(new StaticArrayBuffer(entries.get(i * entries.size() / (sampled + 1)).getColumn().as(StaticBuffer.ARRAY_FACTORY)));
+        }
+        Collections.sort(merged);
+        if (merged.size() <= MAX_SAMPLES) {
+            samples.put(key, new KeySamples(merged, columnsPerPage));
+            return;
+        }
+        final List<StaticBuffer> thinned = new ArrayList<>(MAX_SAMPLES);
+        for (int i = 0; i < MAX_SAMPLES; i++) {
+            thinned.add(merged.get(i * merged.size() / MAX_SAMPLES));
+        }
+        samples.put(key, new KeySamples(thinned, columnsPerPage));
+    }
+
+    /**
+     * Forgets the samples of every key, after the table was deleted.
+     */
+    void invalidateAll() {
+        samples.invalidateAll();
+    }
+}
@@ -37,6 +37,11 @@ public class TableNameDynamoDbStoreFactory implements DynamoDbStoreFactory {
     public AwsStore create(final DynamoDBStoreManager manager, final String prefix, final String name) throws BackendException {
         log.debug("Entering TableNameDynamoDbStoreFactory.create prefix:{} name:{}", prefix, name);
         // ensure there is only one instance used per table name.
+        final AwsStore existing = stores.get(name);
+        if (null != existing) {
+            log.debug("Exiting TableNameDynamoDbStoreFactory.create prefix:{} name:{} returning:{}", prefix, name, existing);
+            return existing;
+        }
 
         final Client client = manager.getClient();
         final BackendDataModel model = client.dataModel(name);
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.PermanentBackendException;
+import org.janusgraph.diskstorage.StaticBuffer;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.ExponentialBackoff.UpdateItem;
+import com.amazon.janusgraph.diskstorage.dynamodb.mutation.MutateWorker;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Combines the unconditional updates of SINGLE items that different transactions make to the same item within a
+ * short window into one UpdateItem call. The first update of an item opens a window, and the updates that arrive
+ * before the window closes are applied in the order they arrived. When the window closes, a task of the scheduler
+ * hands the combined UpdateItem call to the write lane, so that no thread sleeps through the window. Every update
+ * completes when the combined UpdateItem call completes, and fails if it fails.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@RequiredArgsConstructor
+class WriteCombiner {
+    static final String COMBINED_UPDATES = "CombinedUpdateItem";
+
+    private final DynamoDbDelegate delegate;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<Pair<String, StaticBuffer>, Batch> openBatches = new ConcurrentHashMap<>();
+
+    /**
+     * The updates of one item that are written together.
+     */
+    @RequiredArgsConstructor
+    private static final class Batch {
+        private final UpdateItemRequest request;
+        private final Map<String, AttributeValueUpdate> attributeUpdates = new HashMap<>();
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+        private int updates;
+        private boolean closed;
+
+        /**
+         * @param update the attribute updates of an update of the item
+         * @return true if the update was added to the batch, false if the batch was already closed
+         */
+        synchronized boolean add(final Map<String, AttributeValueUpdate> update) {
+            if (closed) {
+                return false;
+            }
+            attributeUpdates.putAll(update);
+            updates++;
+            return true;
+        }
+
+        synchronized int close() {
+            closed = true;
+            return updates;
+        }
+    }
+
+    /**
+     * An update that is written combined with the updates of the same item made by other workers. The store manager
+     * starts combined updates and waits for their futures on the committing thread, instead of running them on the
+     * write lane, where they would hold a thread for the whole window.
+     */
+    @RequiredArgsConstructor
+    final class CombinedUpdate implements MutateWorker {
+        private final StaticBuffer hashKey;
+        private final UpdateItemRequest request;
+        private final long windowMillis;
+
+        /**
+         * Adds the update to the open batch of its item, and opens a batch if there is none.
+         * @return the future of the combined write of the update
+         */
+        CompletableFuture<Void> start() {
+            final Pair<String, StaticBuffer> item = Pair.of(request.getTableName(), hashKey);
+            Batch batch;
+            boolean leader;
+            do {
+                batch = openBatches.computeIfAbsent(item, key -> new Batch(request));
+                leader = batch.request == request;
+            } while (!batch.add(request.getAttributeUpdates()));
+
+            if (leader) {
+                final Batch opened = batch;
+                try {
+                    scheduler.schedule(() -> write(item, opened), windowMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    openBatches.remove(item, opened);
+                    opened.close();
+                    opened.written.completeExceptionally(new PermanentBackendException("The store manager was closed", e));
+                }
+            }
+            return batch.written;
+        }
+
+        @Override
+        public Void call() throws BackendException {
+            awaitAll(Collections.singletonList(start()));
+            return null;
+        }
+    }
+
+    /**
+     * @param hashKey the key of the item the request updates
+     * @param request an UpdateItem request without expectations
+     * @param windowMillis the time (in milliseconds) the first update of an item waits for more updates
+     * @return a worker that writes the request combined with the updates of the same item made by other workers
+     */
+    CombinedUpdate combine(final StaticBuffer hashKey, final UpdateItemRequest request, final long windowMillis) {
+        return new CombinedUpdate(hashKey, request, windowMillis);
+    }
+
+    private void write(final Pair<String, StaticBuffer> item, final Batch batch) {
+        openBatches.remove(item, batch);
+        final int updates = batch.close();
+        final UpdateItemRequest combined = batch.request.clone()
+            .withAttributeUpdates(batch.attributeUpdates)
+            .withReturnValues(ReturnValue.NONE);
+        delegate.submitWrite(() -> {
+            new UpdateItem(combined, delegate).runWithBackoff();
+            delegate.getMeter(delegate.getMeterName(COMBINED_UPDATES, item.getLeft())).mark(updates - 1);
+            return null;
+        }).whenComplete((result, failure) -> {
+            if (failure == null) {
+                batch.written.complete(null);
+            } else {
+                batch.written.completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * Waits for the combined writes of updates.
+     * @param writes the futures of the combined writes
+     * @throws BackendException if a combined write failed
+     */
+    static void awaitAll(final List<CompletableFuture<Void>> writes) throws BackendException {
+        try {
+            for (CompletableFuture<Void> write : writes) {
+                write.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendRuntimeException("was interrupted while waiting for a combined write");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BackendException) {
+                throw (BackendException) e.getCause();
+            }
+            throw new PermanentBackendException(e.getCause());
+        }
+    }
+}
@@ -38,11 +38,19 @@ public class ConditionExpressionBuilder extends AbstractBuilder {
     private final Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
 
     public ConditionExpressionBuilder hashKey(final StaticBuffer key) {
+        return hashKey(encodeKeyBuffer(key));
+    }
+
+    /**
+     * @param hashKey the encoded hash key, which may be salted
+     * @return this builder
+     */
+    public ConditionExpressionBuilder hashKey(final String hashKey) {
         // build up condition expression
         conditionExpressions.put(Constants.JANUSGRAPH_HASH_KEY, HASH_KEY_EQUALS);
 
         // add the constants
-        final AttributeValue av = new AttributeValue().withS(encodeKeyBuffer(key));
+        final AttributeValue av = new AttributeValue().withS(hashKey);
         if (!expressionAttributeValues.containsKey(K)) {
             expressionAttributeValues.put(K, av);
         } else {
@@ -17,6 +17,7 @@ package com.amazon.janusgraph.diskstorage.dynamodb.builder;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.janusgraph.diskstorage.Entry;
@@ -40,6 +41,10 @@ import lombok.experimental.Accessors;
  */
 public class EntryBuilder extends AbstractBuilder {
     private final Map<String, AttributeValue> item;
+    /**
+     * True if the item has an expiry time that has passed, but DynamoDB has not deleted the item yet.
+     */
+    private final boolean expired;
     private StaticBuffer start;
     private StaticBuffer end;
     private boolean slice;
@@ -50,10 +55,15 @@ public class EntryBuilder extends AbstractBuilder {
     public EntryBuilder(final Map<String, AttributeValue> item) {
         this.item = item;
         item.remove(Constants.JANUSGRAPH_HASH_KEY);
+        this.expired = isExpired(item.remove(Constants.JANUSGRAPH_EXPIRY));
+    }
+
+    private static boolean isExpired(final AttributeValue expiry) {
+        return expiry != null && Long.parseLong(expiry.getN()) <= TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
     }
 
     public List<Entry> buildAll() {
-        if (null == item) {
+        if (null == item || expired) {
             return Collections.emptyList();
         }
         final Entry sliceStartEntry;
@@ -90,7 +100,7 @@ public class EntryBuilder extends AbstractBuilder {
     }
 
     public Entry build(final StaticBuffer column) {
-        if (null == item || null == column) {
+        if (null == item || null == column || expired) {
             return null;
         }
 
@@ -21,6 +21,7 @@ import org.janusgraph.diskstorage.StaticBuffer;
 import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
 import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbStore;
 import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbStoreTransaction;
+import com.amazon.janusgraph.diskstorage.dynamodb.ExpectedValueIndex.ExpectedValue;
 import com.amazon.janusgraph.diskstorage.dynamodb.Expression;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.google.common.collect.Maps;
@@ -46,6 +47,9 @@ public class MultiUpdateExpressionBuilder extends AbstractBuilder {
     private static final String MISSING_VALUE_EXPR = String.format("attribute_not_exists(%s)", Constants.JANUSGRAPH_VALUE);
     private static final String EXPECTED_VALUE_EXPR = String.format("%s = %s", Constants.JANUSGRAPH_VALUE, EXPECTED_VALUE_LABEL);
     private static final String SET_VALUE_EXPR = String.format("SET %s = %s", Constants.JANUSGRAPH_VALUE, VALUE_LABEL);
+    private static final String EXPIRY_LABEL = ":x";
+    private static final String SET_EXPIRY_EXPR = String.format(", %s = %s", Constants.JANUSGRAPH_EXPIRY, EXPIRY_LABEL);
+    private static final String REMOVE_EXPIRY_EXPR = String.format(" REMOVE %s", Constants.JANUSGRAPH_EXPIRY);
 
     @NonNull
     private final DynamoDbStore store;
@@ -57,6 +61,16 @@ public class MultiUpdateExpressionBuilder extends AbstractBuilder {
     private StaticBuffer rangeKey;
     @Setter
     private StaticBuffer value;
+    /**
+     * The expiry of the item in seconds since the epoch, 0 to remove the expiry of the item, or null to leave it as is.
+     */
+    @Setter
+    private Long expiry;
+    /**
+     * True to condition the expression on the item not having a value, instead of on the value the transaction expects.
+     */
+    @Setter
+    private boolean expectMissingValue;
 
     /**
      *
@@ -68,15 +82,18 @@ public class MultiUpdateExpressionBuilder extends AbstractBuilder {
         // This might be used for a DeleteItem, in which case the update expression should be null
         String updateExpression = null;
         if (value != null) {
-            updateExpression = SET_VALUE_EXPR;
             final AttributeValue updateValue = encodeValue(value);
             attributeValues.put(VALUE_LABEL, updateValue);
+            updateExpression = SET_VALUE_EXPR + buildExpiryExpression(attributeValues);
         }
 
         // Condition expression and attribute value
         String conditionExpression = null;
-        if (transaction.contains(store, hashKey, rangeKey)) {
-            final StaticBuffer expectedValue = transaction.get(store, hashKey, rangeKey);
+        final ExpectedValue expected = transaction.getIfPresent(store, hashKey, rangeKey);
+        if (expectMissingValue) {
+            conditionExpression = MISSING_VALUE_EXPR;
+        } else if (expected != null) {
+            final StaticBuffer expectedValue = expected.getValue();
             if (expectedValue == null) {
                 conditionExpression = MISSING_VALUE_EXPR;
             } else {
@@ -90,4 +107,15 @@ public class MultiUpdateExpressionBuilder extends AbstractBuilder {
         return new Expression(updateExpression, conditionExpression, attributeValues);
     }
 
+    private String buildExpiryExpression(final Map<String, AttributeValue> attributeValues) {
+        if (expiry == null) {
+            return "";
+        }
+        if (expiry == 0L) {
+            return REMOVE_EXPIRY_EXPR;
+        }
+        attributeValues.put(EXPIRY_LABEL, new AttributeValue().withN(expiry.toString()));
+        return SET_EXPIRY_EXPR;
+    }
+
 }
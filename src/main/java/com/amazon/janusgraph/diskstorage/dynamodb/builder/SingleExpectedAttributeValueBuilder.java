@@ -23,6 +23,7 @@ import org.janusgraph.diskstorage.keycolumnvalue.KCVMutation;
 
 import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbSingleRowStore;
 import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbStoreTransaction;
+import com.amazon.janusgraph.diskstorage.dynamodb.ExpectedValueIndex.ExpectedValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
@@ -70,8 +71,9 @@ public class SingleExpectedAttributeValueBuilder extends AbstractBuilder {
             return;
         }
 
-        if (transaction.contains(store, key, column)) {
-            final StaticBuffer expectedValue = transaction.get(store, key, column);
+        final ExpectedValue expected = transaction.getIfPresent(store, key, column);
+        if (expected != null) {
+            final StaticBuffer expectedValue = expected.getValue();
             final ExpectedAttributeValue expectedAttributeValue;
             if (expectedValue == null) {
                 expectedAttributeValue = new ExpectedAttributeValue().withExists(false);
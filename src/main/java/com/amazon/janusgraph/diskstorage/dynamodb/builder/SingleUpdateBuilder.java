@@ -21,7 +21,9 @@ import java.util.Map;
 import org.janusgraph.diskstorage.Entry;
 import org.janusgraph.diskstorage.StaticBuffer;
 
+import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
 import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
 
 /**
@@ -55,6 +57,22 @@ public class SingleUpdateBuilder extends AbstractBuilder {
         return this;
     }
 
+    /**
+     * Sets the expiry of the item.
+     * @param expiry the expiry time of the item in seconds since the epoch, or 0 to remove the expiry of the item
+     * @return this builder
+     */
+    public SingleUpdateBuilder expiry(final long expiry) {
+        if (expiry == 0L) {
+            updates.put(Constants.JANUSGRAPH_EXPIRY, new AttributeValueUpdate().withAction(AttributeAction.DELETE));
+        } else {
+            updates.put(Constants.JANUSGRAPH_EXPIRY, new AttributeValueUpdate()
+                    .withAction(AttributeAction.PUT)
+                    .withValue(new AttributeValue().withN(Long.toString(expiry))));
+        }
+        return this;
+    }
+
     public Map<String, AttributeValueUpdate> build() {
         return new HashMap<>(updates);
     }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.janusgraph.util.stats.MetricManager;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
+/**
+ * The hit, miss, hit ratio and size metrics of a cache.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+class CacheMetrics {
+    private final Function<String, String> metricName;
+    private final String cacheName;
+    private final Meter hits;
+    private final Meter misses;
+    private final AtomicLong bytes = new AtomicLong();
+    private final String bytesGaugeName;
+    private final String hitRatioGaugeName;
+
+    /**
+     * @param metricName maps the name of a metric to the full name of the metric
+     * @param cacheName the prefix of the names of the metrics of the cache
+     */
+    CacheMetrics(final Function<String, String> metricName, final String cacheName) {
+        this.metricName = metricName;
+        this.cacheName = cacheName;
+        final MetricRegistry registry = MetricManager.INSTANCE.getRegistry();
+        this.hits = meter("Hits");
+        this.misses = meter("Misses");
+        this.bytesGaugeName = metricName.apply(cacheName + "Bytes");
+        this.hitRatioGaugeName = metricName.apply(cacheName + "HitRatio");
+        if (!registry.getNames().contains(bytesGaugeName)) {
+            registry.register(bytesGaugeName, (Gauge<Long>) bytes::get);
+        }
+        if (!registry.getNames().contains(hitRatioGaugeName)) {
+            registry.register(hitRatioGaugeName, new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+                }
+            });
+        }
+    }
+
+    Meter meter(final String name) {
+        return MetricManager.INSTANCE.getRegistry().meter(metricName.apply(cacheName + name));
+    }
+
+    void hit() {
+        hits.mark();
+    }
+
+    void miss() {
+        misses.mark();
+    }
+
+    long getBytes() {
+        return bytes.get();
+    }
+
+    void addBytes(final long delta) {
+        bytes.addAndGet(delta);
+    }
+
+    /**
+     * Removes the gauges of the cache.
+     */
+    void close() {
+        MetricManager.INSTANCE.getRegistry().remove(bytesGaugeName);
+        MetricManager.INSTANCE.getRegistry().remove(hitRatioGaugeName);
+    }
+}
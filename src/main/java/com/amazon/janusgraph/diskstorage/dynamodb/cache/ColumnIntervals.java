@@ -0,0 +1,234 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+import org.janusgraph.diskstorage.util.StaticArrayEntryList;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The columns of a key that were read from a MULTI store, kept as sorted, disjoint column intervals. Every column
+ * of the key inside an interval is known, and nothing is known about the columns outside the intervals. A slice
+ * that was truncated by its limit is known up to its last column. Instances are immutable.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public final class ColumnIntervals {
+    public static final ColumnIntervals EMPTY = new ColumnIntervals(Collections.emptyList(), Long.MAX_VALUE);
+    private static final Comparator<Entry> BY_COLUMN = Comparator.comparing(Entry::getColumn);
+
+    @RequiredArgsConstructor
+    private static final class Interval {
+        /**
+         * The first column of the interval, inclusive.
+         */
+        private final StaticBuffer start;
+        /**
+         * The end of the interval, exclusive.
+         */
+        private final StaticBuffer end;
+        /**
+         * The columns of the key in the interval, sorted by column.
+         */
+        private final List<Entry> entries;
+    }
+
+    private final List<Interval> intervals;
+    /**
+     * The time at which the oldest interval was read, in milliseconds since the epoch.
+     */
+    @Getter
+    private final long oldestReadMillis;
+    @Getter
+    private final int byteSize;
+
+    private ColumnIntervals(final List<Interval> intervals, final long oldestReadMillis) {
+        this.intervals = intervals;
+        this.oldestReadMillis = oldestReadMillis;
+        int size = 0;
+        for (Interval interval : intervals) {
+            size += interval.start.length() + interval.end.length();
+            for (Entry entry : interval.entries) {
+                size += entry.length();
+            }
+        }
+        this.byteSize = size;
+    }
+
+    private static StaticBuffer min(final StaticBuffer left, final StaticBuffer right) {
+        if (left.compareTo(right) <= 0) {
+            return left;
+        }
+        return right;
+    }
+
+    private static StaticBuffer max(final StaticBuffer left, final StaticBuffer right) {
+        if (left.compareTo(right) >= 0) {
+            return left;
+        }
+        return right;
+    }
+
+    /**
+     * @param column a column
+     * @return the smallest column that sorts after the column
+     */
+    private static StaticBuffer successor(final StaticBuffer column) {
+        return new StaticArrayBuffer(Arrays.copyOf(column.getBytes(0, column.length()), column.length() + 1));
+    }
+
+    private static boolean contains(final StaticBuffer start, final StaticBuffer end, final Entry entry) {
+        return entry.getColumn().compareTo(start) >= 0 && entry.getColumn().compareTo(end) < 0;
+    }
+
+    private static SliceQuery gap(final SliceQuery query, final StaticBuffer start, final StaticBuffer end, final int found) {
+        final SliceQuery gap = new SliceQuery(start, end);
+        if (query.hasLimit()) {
+            gap.setLimit(query.getLimit() - found);
+        }
+        return gap;
+    }
+
+    /**
+     * Finds the first range of columns of a slice that must be read before the intervals can answer the slice.
+     * @param query the slice
+     * @return the slice of the first missing range, limited to the number of columns the slice still needs, or null
+     * if the intervals answer the slice
+     */
+    public SliceQuery firstGap(final SliceQuery query) {
+        final StaticBuffer sliceEnd = query.getSliceEnd();
+        StaticBuffer position = query.getSliceStart();
+        int found = 0;
+        for (Interval interval : intervals) {
+            if (position.compareTo(sliceEnd) >= 0 || query.hasLimit() && found >= query.getLimit()) {
+                return null;
+            }
+            if (interval.start.compareTo(position) > 0) {
+                return gap(query, position, min(interval.start, sliceEnd), found);
+            }
+            if (interval.end.compareTo(position) > 0) {
+                final StaticBuffer from = position;
+                final StaticBuffer to = min(interval.end, sliceEnd);
+                found += (int) interval.entries.stream().filter(entry -> contains(from, to, entry)).count();
+                position = interval.end;
+            }
+        }
+        if (position.compareTo(sliceEnd) >= 0 || query.hasLimit() && found >= query.getLimit()) {
+            return null;
+        }
+        return gap(query, position, sliceEnd, found);
+    }
+
+    /**
+     * Finds the ranges of columns of a slice that must be read before the intervals can answer the slice. A slice
+     * with a limit may be answered before its later ranges are read, so only its first missing range is returned.
+     * @param query the slice
+     * @return the missing ranges in column order, or an empty list if the intervals answer the slice
+     */
+    public List<SliceQuery> gaps(final SliceQuery query) {
+        if (query.hasLimit()) {
+            final SliceQuery gap = firstGap(query);
+            if (gap == null) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(gap);
+        }
+        final List<SliceQuery> gaps = new ArrayList<>();
+        final StaticBuffer sliceEnd = query.getSliceEnd();
+        StaticBuffer position = query.getSliceStart();
+        for (Interval interval : intervals) {
+            if (position.compareTo(sliceEnd) >= 0) {
+                return gaps;
+            }
+            if (interval.start.compareTo(position) > 0) {
+                gaps.add(new SliceQuery(position, min(interval.start, sliceEnd)));
+            }
+            position = max(position, interval.end);
+        }
+        if (position.compareTo(sliceEnd) < 0) {
+            gaps.add(new SliceQuery(position, sliceEnd));
+        }
+        return gaps;
+    }
+
+    /**
+     * @param query a slice for which firstGap returned null, or gaps returned no ranges
+     * @return the columns of the slice
+     */
+    public EntryList slice(final SliceQuery query) {
+        final List<Entry> entries = intervals.stream()
+            .flatMap(interval -> interval.entries.stream())
+            .filter(entry -> contains(query.getSliceStart(), query.getSliceEnd(), entry))
+            .limit(query.getLimit())
+            .collect(Collectors.toList());
+        return StaticArrayEntryList.of(entries);
+    }
+
+    /**
+     * Adds the result of a slice query to the intervals. The result replaces the known columns in the range it
+     * covers, and is joined with the intervals it overlaps or touches.
+     * @param query the slice query that was read
+     * @param entries the columns the slice query returned, sorted by column
+     * @return the intervals with the result of the query
+     */
+    public ColumnIntervals merge(final SliceQuery query, final List<Entry> entries) {
+        final StaticBuffer start = query.getSliceStart();
+        final StaticBuffer end;
+        if (query.hasLimit() && entries.size() >= query.getLimit()) {
+            if (entries.isEmpty()) {
+                return this;
+            }
+            // the slice was truncated, so the columns are only known up to the last column it returned
+            end = successor(entries.get(entries.size() - 1).getColumn());
+        } else {
+            end = query.getSliceEnd();
+        }
+        if (start.compareTo(end) >= 0) {
+            return this;
+        }
+
+        final List<Interval> merged = new ArrayList<>(intervals.size() + 1);
+        final List<Entry> mergedEntries = new ArrayList<>(entries);
+        StaticBuffer mergedStart = start;
+        StaticBuffer mergedEnd = end;
+        for (Interval interval : intervals) {
+            if (interval.end.compareTo(start) < 0 || interval.start.compareTo(end) > 0) {
+                merged.add(interval);
+            } else {
+                mergedStart = min(mergedStart, interval.start);
+                mergedEnd = max(mergedEnd, interval.end);
+                interval.entries.stream().filter(entry -> !contains(start, end, entry)).forEach(mergedEntries::add);
+            }
+        }
+        mergedEntries.sort(BY_COLUMN);
+        merged.add(new Interval(mergedStart, mergedEnd, mergedEntries));
+        merged.sort((left, right) -> left.start.compareTo(right.start));
+        return new ColumnIntervals(merged, Math.min(oldestReadMillis, System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+/**
+ * Count-min sketch of how often keys were accessed recently, with 4-bit counters, as used by the TinyLFU cache
+ * admission policy. All the counters are halved after a number of increments proportional to the width of the
+ * sketch, so that the sketch forgets old accesses.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final int MAXIMUM_COUNT = 15;
+    private static final int SAMPLES_PER_COUNTER = 10;
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedKeys the number of keys the sketch should tell apart, rounded up to a power of two
+     */
+    FrequencySketch(final int expectedKeys) {
+        final int width = Integer.highestOneBit(Math.max(2, expectedKeys) - 1) << 1;
+        this.counters = new byte[SEEDS.length][width];
+        this.mask = width - 1;
+        this.sampleSize = width * SAMPLES_PER_COUNTER;
+        this.additions = 0;
+    }
+
+    private int index(final int hash, final int row) {
+        final long spread = (hash + SEEDS[row]) * SEEDS[row];
+        return (int) (spread ^ spread >>> Integer.SIZE) & mask;
+    }
+
+    synchronized void increment(final int hash) {
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            final int index = index(hash, row);
+            if (counters[row][index] < MAXIMUM_COUNT) {
+                counters[row][index]++;
+                added = true;
+            }
+        }
+        if (added) {
+            additions++;
+            if (additions >= sampleSize) {
+                reset();
+            }
+        }
+    }
+
+    synchronized int frequency(final int hash) {
+        int frequency = MAXIMUM_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            frequency = Math.min(frequency, counters[row][index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (byte[] row : counters) {
+            for (int index = 0; index < row.length; index++) {
+                row[index] = (byte) (row[index] >> 1);
+            }
+        }
+        additions /= 2;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+import java.util.function.Consumer;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+
+/**
+ * Versions of stripes of keys, which order the reads and writes of cached keys. Writes increment the version of
+ * the stripe of their key when they start and when they complete, and a read only caches what it read if the
+ * version of the stripe of its key did not change during the read.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+class KeyVersions {
+    private static final int STRIPES = 1024;
+
+    private final Object[] locks = new Object[STRIPES];
+    private final long[] versions = new long[STRIPES];
+
+    KeyVersions() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            locks[stripe] = new Object();
+        }
+    }
+
+    private static int stripe(final StaticBuffer key) {
+        return key.hashCode() & STRIPES - 1;
+    }
+
+    long get(final StaticBuffer key) {
+        final int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            return versions[stripe];
+        }
+    }
+
+    /**
+     * Runs an action and increments the version of the stripe of a key, atomically.
+     * @param key the key
+     * @param action the action to run before the version is incremented
+     * @return the new version
+     */
+    long increment(final StaticBuffer key, final Runnable action) {
+        final int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            action.run();
+            versions[stripe]++;
+            return versions[stripe];
+        }
+    }
+
+    /**
+     * Runs an action if the version of the stripe of a key did not change, atomically.
+     * @param key the key
+     * @param version the version that was read before
+     * @param action the action to run if the version did not change
+     */
+    void ifUnchanged(final StaticBuffer key, final long version, final Runnable action) {
+        final int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            if (versions[stripe] == version) {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * Increments the version of the stripe of a key and runs an action with whether the version had changed, atomically.
+     * @param key the key
+     * @param version the version that was read before
+     * @param action the action to run with true if the version did not change, false otherwise
+     */
+    void incrementIfUnchanged(final StaticBuffer key, final long version, final Consumer<Boolean> action) {
+        final int stripe = stripe(key);
+        synchronized (locks[stripe]) {
+            final boolean unchanged = versions[stripe] == version;
+            versions[stripe]++;
+            action.accept(unchanged);
+        }
+    }
+}
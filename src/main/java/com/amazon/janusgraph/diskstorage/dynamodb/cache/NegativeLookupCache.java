@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of keys whose slices were recently read empty, bounded by the number of keys. Each key remembers the
+ * widest empty slice that was read, which answers every slice it contains. Unlike a Bloom filter, a key can be
+ * removed, so keys are dropped when they are written through this instance.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public class NegativeLookupCache {
+    private final Cache<StaticBuffer, SliceQuery> emptySlices;
+    private final KeyVersions versions = new KeyVersions();
+    private final CacheMetrics metrics;
+
+    /**
+     * @param maximumKeys the maximum number of cached keys
+     * @param ttlMillis the time after which a cached key expires
+     * @param metricName maps the name of a metric of the cache to the full name of the metric
+     */
+    public NegativeLookupCache(final long maximumKeys, final long ttlMillis, final Function<String, String> metricName) {
+        this.metrics = new CacheMetrics(metricName, "NegativeCache");
+        this.emptySlices = CacheBuilder.newBuilder()
+            .maximumSize(maximumKeys)
+            .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+            .<StaticBuffer, SliceQuery>removalListener(notice -> metrics.addBytes(-weigh(notice.getKey(), notice.getValue())))
+            .build();
+    }
+
+    private static int weigh(final StaticBuffer key, final SliceQuery slice) {
+        return key.length() + slice.getSliceStart().length() + slice.getSliceEnd().length();
+    }
+
+    private static boolean contains(final SliceQuery outer, final SliceQuery inner) {
+        return outer.getSliceStart().compareTo(inner.getSliceStart()) <= 0 && outer.getSliceEnd().compareTo(inner.getSliceEnd()) >= 0;
+    }
+
+    /**
+     * @param key the key
+     * @param query the slice
+     * @return true if the slice of the key is known to be empty
+     */
+    public boolean isEmpty(final StaticBuffer key, final SliceQuery query) {
+        final SliceQuery emptySlice = emptySlices.getIfPresent(key);
+        if (emptySlice != null && contains(emptySlice, query)) {
+            metrics.hit();
+            return true;
+        }
+        metrics.miss();
+        return false;
+    }
+
+    /**
+     * Must be called before the slice of a key that isEmpty could not answer is read.
+     * @param key the key
+     * @return the version to pass to putEmpty
+     */
+    public long startRead(final StaticBuffer key) {
+        return versions.get(key);
+    }
+
+    /**
+     * Remembers that a slice of a key was read empty, unless the key may have been written since startRead.
+     * @param key the key
+     * @param query the slice that was read empty
+     * @param version the version returned by startRead
+     */
+    public void putEmpty(final StaticBuffer key, final SliceQuery query, final long version) {
+        versions.ifUnchanged(key, version, () -> {
+            final SliceQuery emptySlice = emptySlices.getIfPresent(key);
+            if (emptySlice == null || !contains(emptySlice, query)) {
+                final SliceQuery slice = new SliceQuery(query.getSliceStart(), query.getSliceEnd());
+                emptySlices.put(key, slice);
+                metrics.addBytes(weigh(key, slice));
+            }
+        });
+    }
+
+    /**
+     * Must be called when a write of a key starts and when it completes. Forgets the key.
+     * @param key the key
+     */
+    public void invalidate(final StaticBuffer key) {
+        versions.increment(key, () -> emptySlices.invalidate(key));
+    }
+
+    public void invalidateAll() {
+        emptySlices.invalidateAll();
+    }
+
+    /**
+     * Empties the cache and removes its gauges.
+     */
+    public void close() {
+        invalidateAll();
+        metrics.close();
+    }
+}
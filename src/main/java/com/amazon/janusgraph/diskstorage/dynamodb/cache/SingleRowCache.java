@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.StaticBuffer;
+
+import com.codahale.metrics.Meter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.primitives.Ints;
+
+/**
+ * Cache of the whole decoded rows of a SINGLE store, bounded by the size of the rows in bytes. Once the cache is
+ * full, a row is only admitted if a frequency sketch counted at least ADMISSION_FREQUENCY recent accesses of it, so
+ * that rows that are read once do not evict frequently read rows. This is a fixed frequency threshold rather than
+ * TinyLFU admission: the underlying cache does not expose the row it would evict, so the frequency of the candidate
+ * is not compared with the frequency of the victim. Rows expire a fixed time after they were cached.
+ *
+ * Reads and writes of the same row through this instance are ordered with a version per stripe of keys: a read
+ * only caches the row it read if no write of the stripe started or completed during the read, and a write only
+ * caches the row it wrote if no other write of the stripe started or completed during the write.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public class SingleRowCache {
+    private static final int ADMISSION_FREQUENCY = 2;
+    private static final long ESTIMATED_ROW_BYTES = 512L;
+    private static final int MINIMUM_SKETCH_KEYS = 1024;
+    private static final int MAXIMUM_SKETCH_KEYS = 4194304;
+
+    private final long maximumBytes;
+    private final Cache<StaticBuffer, EntryList> rows;
+    private final FrequencySketch sketch;
+    private final KeyVersions versions = new KeyVersions();
+    private final CacheMetrics metrics;
+    private final Meter rejections;
+
+    /**
+     * @param maximumBytes the maximum size of the cached rows and their keys
+     * @param stalenessMillis the time after which a cached row expires
+     * @param metricName maps the name of a metric of the cache to the full name of the metric
+     */
+    public SingleRowCache(final long maximumBytes, final long stalenessMillis, final Function<String, String> metricName) {
+        this.maximumBytes = maximumBytes;
+        this.metrics = new CacheMetrics(metricName, "RowCache");
+        this.rejections = metrics.meter("Rejections");
+        // one segment, so that the whole byte budget is available to every row; the cache is only written on misses
+        this.rows = CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(maximumBytes)
+            .weigher(SingleRowCache::weigh)
+            .expireAfterWrite(stalenessMillis, TimeUnit.MILLISECONDS)
+            .<StaticBuffer, EntryList>removalListener(notice -> metrics.addBytes(-weigh(notice.getKey(), notice.getValue())))
+            .build();
+        final long expectedRows = Math.max(MINIMUM_SKETCH_KEYS, Math.min(MAXIMUM_SKETCH_KEYS, maximumBytes / ESTIMATED_ROW_BYTES));
+        this.sketch = new FrequencySketch(Ints.checkedCast(expectedRows));
+    }
+
+    private static int weigh(final StaticBuffer key, final EntryList row) {
+        return key.length() + row.getByteSize();
+    }
+
+    /**
+     * @param key the key of a row
+     * @return the cached row, or null if the row is not cached
+     */
+    public EntryList getIfPresent(final StaticBuffer key) {
+        sketch.increment(key.hashCode());
+        final EntryList row = rows.getIfPresent(key);
+        if (row == null) {
+            metrics.miss();
+        } else {
+            metrics.hit();
+        }
+        return row;
+    }
+
+    /**
+     * Must be called before a row that is not cached is read from DynamoDB.
+     * @param key the key of the row
+     * @return the version to pass to putAfterRead
+     */
+    public long startRead(final StaticBuffer key) {
+        return versions.get(key);
+    }
+
+    /**
+     * Caches a row that was read from DynamoDB, unless a write of the row may have happened during the read.
+     * @param key the key of the row
+     * @param row the whole row
+     * @param version the version returned by startRead
+     */
+    public void putAfterRead(final StaticBuffer key, final EntryList row, final long version) {
+        versions.ifUnchanged(key, version, () -> putIfAdmitted(key, row));
+    }
+
+    /**
+     * Must be called before a row is written to DynamoDB. Invalidates the cached row.
+     * @param key the key of the row
+     * @return the version to pass to completeWrite
+     */
+    public long startWrite(final StaticBuffer key) {
+        return versions.increment(key, () -> rows.invalidate(key));
+    }
+
+    /**
+     * Caches the row that a write returned, unless another write of the row may have happened during the write.
+     * @param key the key of the row
+     * @param row the whole row after the write, or null if the write failed or did not return the row
+     * @param version the version returned by startWrite
+     */
+    public void completeWrite(final StaticBuffer key, final EntryList row, final long version) {
+        versions.incrementIfUnchanged(key, version, unchanged -> {
+            if (unchanged && row != null) {
+                putIfAdmitted(key, row);
+            } else {
+                rows.invalidate(key);
+            }
+        });
+    }
+
+    private void putIfAdmitted(final StaticBuffer key, final EntryList row) {
+        final int weight = weigh(key, row);
+        if (metrics.getBytes() + weight <= maximumBytes || sketch.frequency(key.hashCode()) >= ADMISSION_FREQUENCY) {
+            rows.put(key, row);
+            metrics.addBytes(weight);
+        } else {
+            rejections.mark();
+        }
+    }
+
+    public void invalidateAll() {
+        rows.invalidateAll();
+    }
+
+    /**
+     * Empties the cache and removes its gauges.
+     */
+    public void close() {
+        invalidateAll();
+        metrics.close();
+    }
+}
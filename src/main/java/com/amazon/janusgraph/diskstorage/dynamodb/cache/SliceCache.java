@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the column intervals of the keys of a MULTI store that were already read, bounded by their size in
+ * bytes. Slices that overlap the cached intervals of a key only need to read the ranges that are missing. The
+ * intervals of a key are dropped when the key is written through this instance, and when the oldest of them is
+ * older than the staleness bound.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public class SliceCache {
+    private final long stalenessMillis;
+    private final Cache<StaticBuffer, ColumnIntervals> keys;
+    private final KeyVersions versions = new KeyVersions();
+    private final CacheMetrics metrics;
+
+    /**
+     * @param maximumBytes the maximum size of the cached intervals and their keys
+     * @param stalenessMillis the time after which the intervals of a key expire, counted from the oldest interval
+     * @param metricName maps the name of a metric of the cache to the full name of the metric
+     */
+    public SliceCache(final long maximumBytes, final long stalenessMillis, final Function<String, String> metricName) {
+        this.stalenessMillis = stalenessMillis;
+        this.metrics = new CacheMetrics(metricName, "SliceCache");
+        // one segment, so that the whole byte budget is available to every key; the cache is only written on misses
+        this.keys = CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(maximumBytes)
+            .weigher(SliceCache::weigh)
+            .expireAfterWrite(stalenessMillis, TimeUnit.MILLISECONDS)
+            .<StaticBuffer, ColumnIntervals>removalListener(notice -> metrics.addBytes(-weigh(notice.getKey(), notice.getValue())))
+            .build();
+    }
+
+    private static int weigh(final StaticBuffer key, final ColumnIntervals intervals) {
+        return key.length() + intervals.getByteSize();
+    }
+
+    /**
+     * Must be called before the cached intervals of a key are read with get.
+     * @param key the key
+     * @return the version to pass to merge
+     */
+    public long startRead(final StaticBuffer key) {
+        return versions.get(key);
+    }
+
+    /**
+     * @param key the key
+     * @return the cached intervals of the key, or no intervals if the key is not cached
+     */
+    public ColumnIntervals get(final StaticBuffer key) {
+        final ColumnIntervals intervals = keys.getIfPresent(key);
+        if (intervals == null || System.currentTimeMillis() - intervals.getOldestReadMillis() > stalenessMillis) {
+            return ColumnIntervals.EMPTY;
+        }
+        return intervals;
+    }
+
+    /**
+     * Records whether a slice was answered by the cached intervals alone.
+     * @param hit true if no range of the slice had to be read
+     */
+    public void recordSlice(final boolean hit) {
+        if (hit) {
+            metrics.hit();
+        } else {
+            metrics.miss();
+        }
+    }
+
+    /**
+     * Adds the result of a slice query to the cached intervals of a key, unless the key may have been written
+     * since startRead.
+     * @param key the key
+     * @param query the slice query that was read
+     * @param entries the columns the slice query returned, sorted by column
+     * @param version the version returned by startRead
+     */
+    public void merge(final StaticBuffer key, final SliceQuery query, final List<Entry> entries, final long version) {
+        versions.ifUnchanged(key, version, () -> {
+            final ColumnIntervals merged = get(key).merge(query, entries);
+            keys.put(key, merged);
+            metrics.addBytes(weigh(key, merged));
+        });
+    }
+
+    /**
+     * Must be called when a write of a key starts and when it completes. Drops the cached intervals of the key.
+     * @param key the key
+     */
+    public void invalidate(final StaticBuffer key) {
+        versions.increment(key, () -> keys.invalidate(key));
+    }
+
+    public void invalidateAll() {
+        keys.invalidateAll();
+    }
+
+    /**
+     * Empties the cache and removes its gauges.
+     */
+    public void close() {
+        invalidateAll();
+        metrics.close();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scanner that records the progress of another scanner in a ScanCheckpoint and periodically saves it to a file.
+ * ScanBackedKeyIterator consumes all the keys of a page before asking for the next one, so a page is recorded
+ * as consumed when the next page is requested. A scan resumed from the checkpoint therefore restarts at the
+ * first page that was not completely consumed, and may emit some keys a second time. The checkpoint file is
+ * deleted once the scan is exhausted. Closing the scanner before the end does not save the checkpoint, because
+ * callers close scans they no longer need, so only the progress saved periodically while the scan ran is resumed.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Slf4j
+public class CheckpointingScanner implements Scanner {
+    private final Scanner scanner;
+    private final ScanCheckpoint checkpoint;
+    private final Path file;
+    private final long intervalMillis;
+    private long lastSavedMillis;
+    private ScanContext lastContext;
+    private boolean complete;
+
+    public CheckpointingScanner(final Scanner scanner, final ScanCheckpoint checkpoint, final Path file, final long intervalMillis) {
+        this.scanner = scanner;
+        this.checkpoint = checkpoint;
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+        this.lastSavedMillis = System.currentTimeMillis();
+        this.complete = false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        final boolean hasNext = scanner.hasNext();
+        if (!hasNext && !complete) {
+            complete = true;
+            markLastContextConsumed();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Unable to delete the checkpoint of a completed scan " + file, e);
+            }
+        }
+        return hasNext;
+    }
+
+    @Override
+    public ScanContext next() {
+        markLastContextConsumed();
+        if (System.currentTimeMillis() - lastSavedMillis >= intervalMillis) {
+            save();
+        }
+        lastContext = scanner.next();
+        return lastContext;
+    }
+
+    private void markLastContextConsumed() {
+        if (lastContext != null) {
+            final ScanResult result = lastContext.getScanResult();
+            // sequential scans are not segmented and are recorded as segment 0
+            int segment = 0;
+            if (lastContext.getScanRequest().getSegment() != null) {
+                segment = lastContext.getScanRequest().getSegment();
+            }
+            checkpoint.pageConsumed(segment, result.getLastEvaluatedKey(), result.getCount());
+            lastContext = null;
+        }
+    }
+
+    private void save() {
+        try {
+            checkpoint.save(file);
+        } catch (IOException e) {
+            // the checkpoint is an optimization for restarts, so the scan goes on without it
+            log.warn("Unable to save the scan checkpoint " + file, e);
+        }
+        lastSavedMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public void close() throws IOException {
+        scanner.close();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+}
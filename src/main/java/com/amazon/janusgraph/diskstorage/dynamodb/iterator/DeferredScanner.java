@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Scanner that creates the scanner it delegates to when it is first iterated. Scanners send their first
+ * request as soon as they are constructed, so this keeps segments that are waiting for a worker from
+ * consuming read capacity.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public class DeferredScanner implements Scanner {
+    private final Supplier<Scanner> supplier;
+    private Scanner scanner;
+
+    public DeferredScanner(final Supplier<Scanner> supplier) {
+        this.supplier = supplier;
+    }
+
+    private Scanner getScanner() {
+        if (scanner == null) {
+            scanner = supplier.get();
+        }
+        return scanner;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return getScanner().hasNext();
+    }
+
+    @Override
+    public ScanContext next() {
+        return getScanner().next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (scanner != null) {
+            scanner.close();
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.util.RecordIterator;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.BackendRuntimeException;
+import com.google.common.collect.Iterators;
+
+/**
+ * KeyIterator over a key range of a store, in key order, backed by the buckets of a key directory.
+ * The keys of each bucket are read in order and merged across buckets. The slices of the merged keys are
+ * read from the store in batches, with one multi-key getSlice per batch, and keys without any column in the
+ * slice (including directory entries of keys whose columns were deleted) are skipped.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public class KeyDirectoryIterator implements KeyIterator {
+    private final List<RecordIterator<Entry>> buckets;
+    private final Iterator<Entry> keys;
+    private final KeyColumnValueStore store;
+    private final SliceQuery sliceQuery;
+    private final StoreTransaction txh;
+    private final int batchSize;
+    private Iterator<StaticBuffer> batchKeys = Collections.emptyIterator();
+    private Map<StaticBuffer, EntryList> batchSlices = Collections.emptyMap();
+    private StaticBuffer nextKey;
+    private StaticBuffer current;
+    private boolean closed;
+
+    public KeyDirectoryIterator(final List<RecordIterator<Entry>> buckets, final KeyColumnValueStore store, final SliceQuery sliceQuery,
+        final StoreTransaction txh, final int batchSize) {
+        this.buckets = buckets;
+        // the directory entries of a bucket are sorted by key, which is their column
+        this.keys = Iterators.mergeSorted(buckets, (left, right) -> left.getColumn().compareTo(right.getColumn()));
+        this.store = store;
+        this.sliceQuery = sliceQuery;
+        this.txh = txh;
+        this.batchSize = batchSize;
+        this.closed = false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (nextKey == null && !closed) {
+            if (batchKeys.hasNext()) {
+                final StaticBuffer key = batchKeys.next();
+                final EntryList slice = batchSlices.get(key);
+                if (slice != null && !slice.isEmpty()) {
+                    nextKey = key;
+                }
+            } else if (keys.hasNext()) {
+                readBatch();
+            } else {
+                return false;
+            }
+        }
+        return nextKey != null;
+    }
+
+    private void readBatch() {
+        final List<StaticBuffer> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && keys.hasNext()) {
+            batch.add(keys.next().getColumn());
+        }
+        try {
+            batchSlices = store.getSlice(batch, sliceQuery, txh);
+        } catch (BackendException e) {
+            throw new BackendRuntimeException(e);
+        }
+        batchKeys = batch.iterator();
+    }
+
+    @Override
+    public StaticBuffer next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        current = nextKey;
+        nextKey = null;
+        return current;
+    }
+
+    @Override
+    public RecordIterator<Entry> getEntries() {
+        return new StaticRecordIterator(batchSlices.get(current));
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (RecordIterator<Entry> bucket : buckets) {
+            bucket.close();
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+}
@@ -28,7 +28,7 @@ import org.janusgraph.diskstorage.util.RecordIterator;
 
 import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
 import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbStore;
-import com.amazon.janusgraph.diskstorage.dynamodb.QueryWorker;
+import com.amazon.janusgraph.diskstorage.dynamodb.KeySharding;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.KeyBuilder;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
@@ -75,9 +75,32 @@ public class MultiRowParallelScanInterpreter implements ScanContextInterpreter {
      *
      * By doing this, we avoid returning a RecordIterator for the same hash key twice and we only need to store at most 2 hash keys per segment.
      *
+     * The segments of a scan may be iterated on different threads that share this interpreter, so the boundary keys
+     * are tracked under a lock. The columns of the keys are only queried after the lock is released, so that the
+     * queries of a sharded key in one segment do not hold up the other segments.
      */
     @Override
     public List<SingleKeyRecordIterator> buildRecordIterators(final ScanContext scanContext) {
+        // Sharded keys found only through their marker items may have no columns of the slice in any shard
+        final Set<StaticBuffer> markedKeys = Sets.newHashSet();
+        final List<StaticBuffer> hashKeys = selectHashKeys(scanContext, markedKeys);
+
+        final List<SingleKeyRecordIterator> recordIterators = Lists.newLinkedList();
+        for (StaticBuffer hashKey : hashKeys) {
+            final SingleKeyRecordIterator recordIterator = buildRecordIteratorForHashKey(hashKey);
+            if (!markedKeys.contains(hashKey) || recordIterator.getRecordIterator().hasNext()) {
+                recordIterators.add(recordIterator);
+            }
+        }
+        return recordIterators;
+    }
+
+    /**
+     * @param scanContext a page of a segment
+     * @param markedKeys collects the keys that the page only has the marker items of
+     * @return the hash keys of the page that no segment returned yet, in scan order
+     */
+    private synchronized List<StaticBuffer> selectHashKeys(final ScanContext scanContext, final Set<StaticBuffer> markedKeys) {
         final ScanResult dynamoDbResult = scanContext.getScanResult();
         final int segment = scanContext.getScanRequest().getSegment();
         final List<Map<String, AttributeValue>> items = dynamoDbResult.getItems();
@@ -86,51 +109,70 @@ public class MultiRowParallelScanInterpreter implements ScanContextInterpreter {
             return Collections.emptyList();
         }
 
-        final List<SingleKeyRecordIterator> recordIterators = Lists.newLinkedList();
+        final List<StaticBuffer> hashKeys = Lists.newArrayList();
 
         final Iterator<Map<String, AttributeValue>> itemIterator = items.iterator();
         final Map<String, AttributeValue> firstItem = itemIterator.next();
         final StaticBuffer firstKey = new KeyBuilder(firstItem).build(Constants.JANUSGRAPH_HASH_KEY);
+        if (KeySharding.isMarker(firstItem)) {
+            markedKeys.add(firstKey);
+        }
+
+        // A segment resumed from a checkpoint already returned the hash key of the item it starts after, unless that
+        // hash key was a salted hash key, whose items are filtered out of the scan.
+        if (!scanContext.isFirstResult() && !segmentBoundaries.containsKey(segment)) {
+            final StaticBuffer resumedKey = KeySharding.decodeHashKey(scanContext.getScanRequest().getExclusiveStartKey()
+                .get(Constants.JANUSGRAPH_HASH_KEY));
+            if (resumedKey != null) {
+                setInitialBoundaryKeys(segment, resumedKey, resumedKey);
+            }
+        }
+        final boolean startsSegment = !segmentBoundaries.containsKey(segment);
 
         // Computes the full set of boundary keys up to this point. This includes the previous end key for this segment.
         final ImmutableSet<StaticBuffer> boundaryKeys = aggregateBoundaryKeys();
 
         // The first key in this scan segment might already have been returned by a previous scan segment
         if (!boundaryKeys.contains(firstKey)) {
-            recordIterators.add(buildRecordIteratorForHashKey(firstKey));
+            hashKeys.add(firstKey);
         }
 
         StaticBuffer hashKey = firstKey;
         while (itemIterator.hasNext()) {
-            final Optional<StaticBuffer> nextKey = findNextHashKey(itemIterator, hashKey);
-            if (nextKey.isPresent()) {
-                // Found a new hash key. Make a record iterator and look for the next unique hash key
-                hashKey = nextKey.get();
-                recordIterators.add(buildRecordIteratorForHashKey(hashKey));
+            final Optional<Map<String, AttributeValue>> nextItem = findItemWithNextHashKey(itemIterator, hashKey);
+            if (nextItem.isPresent()) {
+                // Found a new hash key. Remember it and look for the next unique hash key
+                hashKey = new KeyBuilder(nextItem.get()).build(Constants.JANUSGRAPH_HASH_KEY);
+                if (KeySharding.isMarker(nextItem.get())) {
+                    markedKeys.add(hashKey);
+                }
+                hashKeys.add(hashKey);
             }
         }
 
         // If we've already seen the final hashKey in a previous scan segment result, we want to avoid returning it again.
         if (!hashKey.equals(firstKey) && boundaryKeys.contains(hashKey)) {
-            recordIterators.remove(recordIterators.size() - 1);
+            hashKeys.remove(hashKeys.size() - 1);
         }
 
         // Update the boundary keys for this segment
-        if (scanContext.isFirstResult()) {
+        if (scanContext.isFirstResult() || startsSegment) {
             setInitialBoundaryKeys(segment, firstKey, hashKey);
         } else {
             updateLastKey(segment, hashKey);
         }
-        return recordIterators;
+        return hashKeys;
     }
 
-    private Optional<StaticBuffer> findNextHashKey(final Iterator<Map<String, AttributeValue>> itemIterator, final StaticBuffer previousKey) {
-        Optional<StaticBuffer> result = Optional.empty();
+    private Optional<Map<String, AttributeValue>> findItemWithNextHashKey(final Iterator<Map<String, AttributeValue>> itemIterator,
+        final StaticBuffer previousKey) {
+        Optional<Map<String, AttributeValue>> result = Optional.empty();
 
         while (itemIterator.hasNext() && !result.isPresent()) {
-            final StaticBuffer nextKey = new KeyBuilder(itemIterator.next()).build(Constants.JANUSGRAPH_HASH_KEY);
+            final Map<String, AttributeValue> item = itemIterator.next();
+            final StaticBuffer nextKey = new KeyBuilder(item).build(Constants.JANUSGRAPH_HASH_KEY);
             if (!nextKey.equals(previousKey)) {
-                result = Optional.of(nextKey);
+                result = Optional.of(item);
             }
         }
 
@@ -157,8 +199,7 @@ public class MultiRowParallelScanInterpreter implements ScanContextInterpreter {
     }
 
     private SingleKeyRecordIterator buildRecordIteratorForHashKey(final StaticBuffer hashKey) {
-        final QueryWorker queryWorker = store.buildQueryWorker(hashKey, sliceQuery);
-        final RecordIterator<Entry> columnIterator = new MultiRecordIterator(queryWorker, sliceQuery);
+        final RecordIterator<Entry> columnIterator = store.buildRecordIterator(hashKey, sliceQuery);
         return new SingleKeyRecordIterator(hashKey, columnIterator);
     }
 
@@ -28,7 +28,7 @@ import org.janusgraph.diskstorage.util.RecordIterator;
 
 import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
 import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbStore;
-import com.amazon.janusgraph.diskstorage.dynamodb.QueryWorker;
+import com.amazon.janusgraph.diskstorage.dynamodb.KeySharding;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.EntryBuilder;
 import com.amazon.janusgraph.diskstorage.dynamodb.builder.KeyBuilder;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
@@ -51,10 +51,11 @@ public class MultiRowSequentialScanInterpreter implements ScanContextInterpreter
     public List<SingleKeyRecordIterator> buildRecordIterators(final ScanContext scanContext) {
         final Map<String, AttributeValue> previousScanEnd = scanContext.getScanRequest().getExclusiveStartKey();
 
-        // If there was a previous request, we can assume we already returned a RecordIterator for the last hash key in the previous request
+        // If there was a previous request, we can assume we already returned a RecordIterator for the last hash key in the previous request,
+        // unless that hash key was a salted hash key, whose items are filtered out of the scan
         StaticBuffer previousKey = null;
         if (previousScanEnd != null && !previousScanEnd.isEmpty()) {
-            previousKey = new KeyBuilder(previousScanEnd).build(Constants.JANUSGRAPH_HASH_KEY);
+            previousKey = KeySharding.decodeHashKey(previousScanEnd.get(Constants.JANUSGRAPH_HASH_KEY));
         }
 
         final List<Map<String, AttributeValue>> items = scanContext.getScanResult().getItems();
@@ -67,6 +68,15 @@ public class MultiRowSequentialScanInterpreter implements ScanContextInterpreter
                 final Map<String, AttributeValue> item = nextItem.get();
                 final StaticBuffer hashKey = new KeyBuilder(item).build(Constants.JANUSGRAPH_HASH_KEY);
 
+                if (KeySharding.isMarker(item)) {
+                    // The key is sharded and has no columns of the slice in its unsalted hash key, so its other shards decide
+                    final RecordIterator<Entry> columns = buildRecordIteratorForHashKey(hashKey);
+                    if (columns.hasNext()) {
+                        recordIterators.add(new SingleKeyRecordIterator(hashKey, columns));
+                    }
+                    previousKey = hashKey;
+                    continue;
+                }
                 final Entry columnValue = new EntryBuilder(item).slice(sliceQuery.getSliceStart(),
                                                                        sliceQuery.getSliceEnd())
                                                                 .build();
@@ -75,10 +85,10 @@ public class MultiRowSequentialScanInterpreter implements ScanContextInterpreter
                 // is inclusive, but Titan's upper bound is exclusive
                 if (columnValue != null) {
                     recordIterators.add(new SingleKeyRecordIterator(hashKey, buildRecordIteratorForHashKey(hashKey)));
+                    // It's always okay to move on to the next key after finding a single result, because the columns for each hash key are
+                    // scanned in order. The only item that can follow an item at the upper bound is the marker item of a sharded key.
+                    previousKey = hashKey;
                 }
-                // It's always okay to move on to the next key after finding a single result, because the columns for each hash key are
-                // scanned in order.
-                previousKey = hashKey;
             }
         }
 
@@ -99,7 +109,6 @@ public class MultiRowSequentialScanInterpreter implements ScanContextInterpreter
     }
 
     private RecordIterator<Entry> buildRecordIteratorForHashKey(final StaticBuffer hashKey) {
-        final QueryWorker queryWorker = store.buildQueryWorker(hashKey, sliceQuery);
-        return new MultiRecordIterator(queryWorker, sliceQuery);
+        return store.buildRecordIterator(hashKey, sliceQuery);
     }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbDelegate;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Segmented scanner that returns the pages of each segment in segment order: all the pages of segment 0,
+ * then all the pages of segment 1, and so on. Up to readAheadSegments segments are scanned at a time, each by
+ * a PrefetchingScanner that keeps paging in the background until it buffered SEGMENT_BUFFERED_PAGES pages, so
+ * later segments are read ahead while earlier ones are consumed. With a fixed number of segments, scans of a table
+ * that has not changed return keys in the same order every time.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Slf4j
+public class OrderedParallelScanner implements Scanner {
+    /**
+     * The number of pages each segment in the window reads ahead of the pages consumed.
+     */
+    static final int SEGMENT_BUFFERED_PAGES = 4;
+
+    private final DynamoDbDelegate delegate;
+    private final ScanRequest request;
+    @Getter
+    private final int totalSegments;
+    private final int readAheadSegments;
+    private final Optional<ScanCheckpoint> resumeFrom;
+    private final Deque<Scanner> window = new ArrayDeque<>();
+    private int nextSegment;
+
+    /**
+     * Starts an ordered scan, or resumes one from a checkpoint.
+     * @param delegate the delegate to scan with
+     * @param request a fresh ScanRequest
+     * @param totalSegments the number of segments to divide the table into
+     * @param readAheadSegments the maximum number of segments to scan at a time
+     * @param resumeFrom the checkpoint of an earlier scan with the same number of segments to resume, if any
+     */
+    public OrderedParallelScanner(final DynamoDbDelegate delegate, final ScanRequest request, final int totalSegments,
+        final int readAheadSegments, final Optional<ScanCheckpoint> resumeFrom) {
+        Preconditions.checkArgument(totalSegments > 0, "a scan has at least one segment");
+        Preconditions.checkArgument(readAheadSegments > 0, "at least one segment must be scanned at a time");
+        Preconditions.checkArgument(!resumeFrom.isPresent() || resumeFrom.get().getTotalSegments() == totalSegments,
+            "can only resume a scan with the same number of segments");
+        this.delegate = delegate;
+        this.request = request;
+        this.totalSegments = totalSegments;
+        this.readAheadSegments = readAheadSegments;
+        this.resumeFrom = resumeFrom;
+        this.nextSegment = 0;
+        fillWindow();
+    }
+
+    private void fillWindow() {
+        while (window.size() < readAheadSegments && nextSegment < totalSegments) {
+            final int segment = nextSegment;
+            nextSegment++;
+            if (!resumeFrom.isPresent() || !resumeFrom.get().isFinished(segment)) {
+                final ScanRequest segmentRequest = DynamoDbDelegate.copyScanRequest(request).withTotalSegments(totalSegments).withSegment(segment);
+                window.addLast(new PrefetchingScanner(delegate, segmentRequest,
+                    resumeFrom.map(checkpoint -> checkpoint.getExclusiveStartKey(segment)).orElse(null), SEGMENT_BUFFERED_PAGES));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!window.isEmpty() && !window.peekFirst().hasNext()) {
+            closeQuietly(window.removeFirst());
+            fillWindow();
+        }
+        return !window.isEmpty();
+    }
+
+    @Override
+    public ScanContext next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return window.peekFirst().next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        while (!window.isEmpty()) {
+            closeQuietly(window.removeFirst());
+        }
+    }
+
+    private static void closeQuietly(final Scanner scanner) {
+        try {
+            scanner.close();
+        } catch (IOException e) {
+            log.warn("Unable to close a scan segment", e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+}
@@ -15,7 +15,9 @@
 package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.BitSet;
+import java.util.Queue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorCompletionService;
@@ -31,6 +33,9 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
  * Class lazily loads all the pages of all the segments of a parallel scan, in multiple threads.
+ * At most maxActiveSegments segments are scanned at the same time. The remaining segments wait in
+ * a queue and are started as the active segments finish, so the table can be over-partitioned into
+ * many small segments without a skewed segment holding up the end of the scan.
  * @author Alexander Patrikalakis
  *
  */
@@ -39,17 +44,31 @@ public class ParallelScanner implements Scanner {
     private final ScanSegmentWorker[] workers;
     private final ExecutorCompletionService<ScanContext> exec;
     private final DynamoDbDelegate dynamoDbDelegate;
+    private final int maxActiveSegments;
+    // segments that have a worker but were not started yet
+    private final Queue<Integer> pendingSegments;
+    private int activeSegments;
 
     // contains all currently running ScanRequests
     private final Future<ScanContext>[] currentFutures;
 
     public ParallelScanner(final Executor executor, final int segments, final DynamoDbDelegate dynamoDbDelegate) {
+        this(executor, segments, segments, dynamoDbDelegate);
+    }
+
+    public ParallelScanner(final Executor executor, final int segments, final int maxActiveSegments, final DynamoDbDelegate dynamoDbDelegate) {
+        if (maxActiveSegments < 1) {
+            throw new IllegalArgumentException("need at least one active segment otherwise wont make progress on scan");
+        }
         this.dynamoDbDelegate = dynamoDbDelegate;
         this.exec = new ExecutorCompletionService<>(executor);
         this.finished = new BitSet(segments);
         this.finished.clear();
         this.workers = new ScanSegmentWorker[segments];
         this.currentFutures = new Future[segments];
+        this.maxActiveSegments = maxActiveSegments;
+        this.pendingSegments = new ArrayDeque<>(segments);
+        this.activeSegments = 0;
     }
 
     public void finishSegment(final int segment) {
@@ -80,15 +99,30 @@ public class ParallelScanner implements Scanner {
         } else {
             finishSegment(segment);
             currentFutures[segment] = null;
+            activeSegments--;
+            startPendingSegments();
         }
 
         //FYI, This might block if nothing is available.
         return ret.get();
     }
 
+    public int getTotalSegments() {
+        return workers.length;
+    }
+
     public void addWorker(final ScanSegmentWorker ssw, final int segment) {
         workers[segment] = ssw;
-        currentFutures[segment] = exec.submit(ssw);
+        pendingSegments.add(segment);
+        startPendingSegments();
+    }
+
+    private void startPendingSegments() {
+        while (activeSegments < maxActiveSegments && !pendingSegments.isEmpty()) {
+            final int segment = pendingSegments.remove();
+            currentFutures[segment] = exec.submit(workers[segment]);
+            activeSegments++;
+        }
     }
 
     @Override
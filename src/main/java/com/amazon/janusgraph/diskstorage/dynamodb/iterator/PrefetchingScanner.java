@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import org.janusgraph.diskstorage.PermanentBackendException;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.BackendRuntimeException;
+import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbDelegate;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.google.common.base.Preconditions;
+
+/**
+ * Scanner that keeps requesting the pages of a scan in the background until it has buffered maxBufferedPages pages
+ * that were not consumed yet, and resumes requesting them as the pages are consumed. Only one request of the scan is
+ * in flight at a time, because each page starts after the last key of the page before it.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public class PrefetchingScanner implements Scanner {
+    private final DynamoDbDelegate dynamoDbDelegate;
+    private final ScanRequest request;
+    private final int maxBufferedPages;
+    private final Deque<ScanContext> pages = new ArrayDeque<>();
+    private int lastConsumedCapacity;
+    private CompletableFuture<ScanResult> currentFuture;
+    private boolean exhausted;
+    private boolean closed;
+    private Throwable failure;
+
+    /**
+     * Starts a scan, or resumes a scan at the page that starts after exclusiveStartKey.
+     * @param dynamoDbDelegate the delegate to scan with
+     * @param request a fresh ScanRequest
+     * @param exclusiveStartKey the LastEvaluatedKey of the last page consumed by the scan to resume, or null to start a new scan
+     * @param maxBufferedPages the maximum number of pages requested ahead of the pages consumed
+     */
+    public PrefetchingScanner(final DynamoDbDelegate dynamoDbDelegate, final ScanRequest request,
+        final Map<String, AttributeValue> exclusiveStartKey, final int maxBufferedPages) {
+        Preconditions.checkArgument(request.getExclusiveStartKey() == null || request.getExclusiveStartKey().isEmpty(),
+                                    "A scan worker should start with a fresh ScanRequest");
+        Preconditions.checkArgument(maxBufferedPages > 0, "at least one page must be buffered");
+        this.dynamoDbDelegate = dynamoDbDelegate;
+        this.request = DynamoDbDelegate.copyScanRequest(request).withExclusiveStartKey(exclusiveStartKey);
+        this.maxBufferedPages = maxBufferedPages;
+        this.lastConsumedCapacity = dynamoDbDelegate.estimateCapacityUnits(DynamoDbDelegate.SCAN, request.getTableName());
+        requestPage();
+    }
+
+    /**
+     * Requests the next page, unless a page is in flight, the buffer is full or the scan is over.
+     */
+    private synchronized void requestPage() {
+        if (currentFuture != null || closed || exhausted || failure != null || pages.size() >= maxBufferedPages) {
+            return;
+        }
+        final ScanRequest pageRequest = DynamoDbDelegate.copyScanRequest(request);
+        currentFuture = dynamoDbDelegate.scanPageAsync(pageRequest, lastConsumedCapacity);
+        currentFuture.whenComplete((result, error) -> pageArrived(pageRequest, result, error));
+    }
+
+    private synchronized void pageArrived(final ScanRequest pageRequest, final ScanResult result, final Throwable error) {
+        currentFuture = null;
+        if (closed) {
+            return;
+        }
+        if (error instanceof CompletionException) {
+            failure = error.getCause();
+        } else {
+            failure = error;
+        }
+        if (failure != null) {
+            notifyAll();
+            return;
+        }
+        if (result.getConsumedCapacity() != null) {
+            lastConsumedCapacity = result.getConsumedCapacity().getCapacityUnits().intValue();
+        }
+        pages.addLast(new ScanContext(pageRequest, result));
+        if (result.getLastEvaluatedKey() != null && !result.getLastEvaluatedKey().isEmpty()) {
+            request.setExclusiveStartKey(result.getLastEvaluatedKey());
+        } else {
+            exhausted = true;
+        }
+        notifyAll();
+        requestPage();
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        return !pages.isEmpty() || !exhausted && !closed;
+    }
+
+    @Override
+    public synchronized ScanContext next() {
+        while (pages.isEmpty() && failure == null && !exhausted && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // wraps a BackendException, so that callers unwrapping it with getBackendException have one to throw
+                throw new BackendRuntimeException(new PermanentBackendException("was interrupted while waiting for a scan page", e));
+            }
+        }
+        if (pages.isEmpty()) {
+            if (failure != null) {
+                throw new BackendRuntimeException(dynamoDbDelegate.unwrapExecutionException(new ExecutionException(failure),
+                    DynamoDbDelegate.SCAN));
+            }
+            throw new NoSuchElementException();
+        }
+        final ScanContext page = pages.removeFirst();
+        requestPage();
+        return page;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        pages.clear();
+        if (currentFuture != null) {
+            currentFuture.cancel(false /*mayInterruptIfRunning*/);
+        }
+        notifyAll();
+    }
+}
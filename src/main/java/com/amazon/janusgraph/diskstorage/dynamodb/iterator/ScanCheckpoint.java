@@ -0,0 +1,225 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The progress of a scan over one table: for each segment, the exclusive start key of the next page
+ * to consume, the number of items emitted so far and whether the segment is finished. A sequential scan
+ * is recorded as a single, unsegmented segment 0. The checkpoint also records the filter of the scan and the
+ * slice its keys are read with, so that only a scan of the same request resumes from it. Checkpoints are stored
+ * as a properties file so that they can be inspected, or deleted to force a scan to start over.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Slf4j
+public class ScanCheckpoint {
+    private static final String TABLE = "table";
+    private static final String FILTER = "filter";
+    private static final String SLICE = "slice";
+    private static final String PARALLEL = "parallel";
+    private static final String TOTAL_SEGMENTS = "total-segments";
+    private static final String SEGMENT = "segment.";
+    private static final String ITEMS = ".items";
+    private static final String FINISHED = ".finished";
+    private static final String KEY = ".key.";
+
+    @Getter
+    private final String tableName;
+    @Getter
+    private final String filter;
+    @Getter
+    private final String slice;
+    @Getter
+    private final boolean parallel;
+    @Getter
+    private final int totalSegments;
+    private final List<Map<String, AttributeValue>> exclusiveStartKeys;
+    private final long[] itemsEmitted;
+    private final boolean[] finished;
+
+    /**
+     * @param tableName the table the scan reads
+     * @param filter a description of the filter of the scan requests
+     * @param slice a description of the slice the keys of the scan are read with
+     * @param parallel true if the scan is segmented
+     * @param totalSegments the number of segments of the scan
+     */
+    public ScanCheckpoint(final String tableName, final String filter, final String slice, final boolean parallel, final int totalSegments) {
+        Preconditions.checkArgument(totalSegments > 0, "a scan has at least one segment");
+        Preconditions.checkArgument(parallel || totalSegments == 1, "a sequential scan has exactly one segment");
+        this.tableName = tableName;
+        this.filter = filter;
+        this.slice = slice;
+        this.parallel = parallel;
+        this.totalSegments = totalSegments;
+        this.exclusiveStartKeys = new ArrayList<>(Collections.nCopies(totalSegments, null));
+        this.itemsEmitted = new long[totalSegments];
+        this.finished = new boolean[totalSegments];
+    }
+
+    /**
+     * Records that all the pages of a segment up to the page that ended at lastEvaluatedKey were consumed.
+     * @param segment the segment the page belonged to
+     * @param lastEvaluatedKey the LastEvaluatedKey of the page, or null or empty if it was the last page of the segment
+     * @param items the number of items in the page
+     */
+    public synchronized void pageConsumed(final int segment, final Map<String, AttributeValue> lastEvaluatedKey, final long items) {
+        itemsEmitted[segment] += items;
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            finished[segment] = true;
+            exclusiveStartKeys.set(segment, null);
+        } else {
+            exclusiveStartKeys.set(segment, new HashMap<>(lastEvaluatedKey));
+        }
+    }
+
+    public synchronized boolean isFinished(final int segment) {
+        return finished[segment];
+    }
+
+    public synchronized boolean isComplete() {
+        for (boolean segmentFinished : finished) {
+            if (!segmentFinished) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized Map<String, AttributeValue> getExclusiveStartKey(final int segment) {
+        if (exclusiveStartKeys.get(segment) == null) {
+            return null;
+        }
+        return Collections.unmodifiableMap(new HashMap<>(exclusiveStartKeys.get(segment)));
+    }
+
+    public synchronized long getItemsEmitted(final int segment) {
+        return itemsEmitted[segment];
+    }
+
+    public synchronized long getTotalItemsEmitted() {
+        long total = 0;
+        for (long items : itemsEmitted) {
+            total += items;
+        }
+        return total;
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file next to the target and moves it in place, so a crash
+     * while saving leaves the previous checkpoint intact.
+     * @param file where to save the checkpoint
+     * @throws IOException if the checkpoint could not be written
+     */
+    public void save(final Path file) throws IOException {
+        final Properties properties = toProperties();
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            properties.store(out, "scan checkpoint of " + tableName);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a checkpoint. Missing or unreadable checkpoints are treated as absent so that the scan starts over.
+     * @param file the checkpoint file
+     * @return the checkpoint saved in the file, if there is a valid one
+     */
+    public static Optional<ScanCheckpoint> load(final Path file) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+            return Optional.of(fromProperties(properties));
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring unreadable scan checkpoint " + file, e);
+            return Optional.empty();
+        }
+    }
+
+    private synchronized Properties toProperties() {
+        final Properties properties = new Properties();
+        properties.setProperty(TABLE, tableName);
+        properties.setProperty(FILTER, filter);
+        properties.setProperty(SLICE, slice);
+        properties.setProperty(PARALLEL, Boolean.toString(parallel));
+        properties.setProperty(TOTAL_SEGMENTS, Integer.toString(totalSegments));
+        for (int segment = 0; segment < totalSegments; segment++) {
+            properties.setProperty(SEGMENT + segment + ITEMS, Long.toString(itemsEmitted[segment]));
+            properties.setProperty(SEGMENT + segment + FINISHED, Boolean.toString(finished[segment]));
+            if (exclusiveStartKeys.get(segment) != null) {
+                for (Map.Entry<String, AttributeValue> entry : exclusiveStartKeys.get(segment).entrySet()) {
+                    // the key attributes of the backend tables are strings
+                    Preconditions.checkArgument(entry.getValue().getS() != null, "only string key attributes are supported");
+                    properties.setProperty(SEGMENT + segment + KEY + entry.getKey(), entry.getValue().getS());
+                }
+            }
+        }
+        return properties;
+    }
+
+    private static ScanCheckpoint fromProperties(final Properties properties) {
+        final ScanCheckpoint checkpoint = new ScanCheckpoint(required(properties, TABLE), required(properties, FILTER), required(properties, SLICE),
+            Boolean.parseBoolean(required(properties, PARALLEL)),
+            Integer.parseInt(required(properties, TOTAL_SEGMENTS)));
+        for (int segment = 0; segment < checkpoint.totalSegments; segment++) {
+            final String segmentPrefix = SEGMENT + segment;
+            checkpoint.itemsEmitted[segment] = Long.parseLong(required(properties, segmentPrefix + ITEMS));
+            checkpoint.finished[segment] = Boolean.parseBoolean(required(properties, segmentPrefix + FINISHED));
+            final String keyPrefix = segmentPrefix + KEY;
+            final Map<String, AttributeValue> key = new HashMap<>();
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith(keyPrefix)) {
+                    key.put(name.substring(keyPrefix.length()), new AttributeValue().withS(properties.getProperty(name)));
+                }
+            }
+            if (!key.isEmpty()) {
+                checkpoint.exclusiveStartKeys.set(segment, key);
+            }
+        }
+        return checkpoint;
+    }
+
+    private static String required(final Properties properties, final String name) {
+        final String value = properties.getProperty(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        return value;
+    }
+}
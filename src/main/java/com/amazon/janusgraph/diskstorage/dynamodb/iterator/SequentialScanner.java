@@ -15,11 +15,13 @@
 package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import com.amazon.janusgraph.diskstorage.dynamodb.BackendRuntimeException;
 import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbDelegate;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.google.common.base.Preconditions;
@@ -45,12 +47,23 @@ public class SequentialScanner implements Scanner {
     private Future<ScanResult> currentFuture;
 
     public SequentialScanner(final DynamoDbDelegate dynamoDbDelegate, final ScanRequest request) {
+        this(dynamoDbDelegate, request, null /*exclusiveStartKey*/);
+    }
+
+    /**
+     * Starts a scan, or resumes a scan at the page that starts after exclusiveStartKey.
+     * @param dynamoDbDelegate the delegate to scan with
+     * @param request a fresh ScanRequest
+     * @param exclusiveStartKey the LastEvaluatedKey of the last page consumed by the scan to resume, or null to start a new scan
+     */
+    public SequentialScanner(final DynamoDbDelegate dynamoDbDelegate, final ScanRequest request,
+        final Map<String, AttributeValue> exclusiveStartKey) {
         this.dynamoDbDelegate = dynamoDbDelegate;
         Preconditions.checkArgument(request.getExclusiveStartKey() == null || request.getExclusiveStartKey().isEmpty(),
                                     "A scan worker should start with a fresh ScanRequest");
-        this.request = DynamoDbDelegate.copyScanRequest(request);
+        this.request = DynamoDbDelegate.copyScanRequest(request).withExclusiveStartKey(exclusiveStartKey);
         this.lastConsumedCapacity = dynamoDbDelegate.estimateCapacityUnits(DynamoDbDelegate.SCAN, request.getTableName());
-        this.currentFuture = dynamoDbDelegate.scanAsync(request, lastConsumedCapacity);
+        this.currentFuture = dynamoDbDelegate.scanAsync(this.request, lastConsumedCapacity);
     }
 
     @Override
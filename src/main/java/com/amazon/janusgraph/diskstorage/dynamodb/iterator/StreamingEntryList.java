@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.BackendRuntimeException;
+import com.amazon.janusgraph.diskstorage.dynamodb.QueryWorker;
+import com.amazon.janusgraph.diskstorage.dynamodb.builder.EntryBuilder;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * The columns of a key in a slice, which are queried a page at a time as the list is consumed. Iterating stops
+ * querying as soon as the caller stops, and the items of a page are decoded and dropped as soon as the page arrives,
+ * so only the entries of the slice are kept. Asking for the size or the byte size of the list queries the rest of the slice.
+ * Errors that occur while querying a page are thrown as BackendRuntimeException.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+public class StreamingEntryList extends AbstractList<Entry> implements EntryList {
+    /**
+     * The bytes that each entry takes in addition to its column and value, for the offsets StaticArrayEntryList keeps.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 8;
+
+    private final QueryWorker queryWorker;
+    private final SliceQuery sliceQuery;
+    private final List<Entry> entries = new ArrayList<>();
+
+    public StreamingEntryList(final QueryWorker queryWorker, final SliceQuery sliceQuery) {
+        this.queryWorker = queryWorker;
+        this.sliceQuery = sliceQuery;
+    }
+
+    /**
+     * Queries the next page of the slice.
+     * @return false if the slice has no more pages
+     */
+    private boolean fetchPage() {
+        if (!queryWorker.hasNext()) {
+            return false;
+        }
+        final List<Map<String, AttributeValue>> items;
+        try {
+            items = queryWorker.next().getDynamoDBResult().getItems();
+        } catch (BackendException e) {
+            throw new BackendRuntimeException(e);
+        }
+        for (Map<String, AttributeValue> item : items) {
+            // DynamoDB's between includes the end of the range, but JanusGraph's slice queries expect the end key to be exclusive
+            final Entry entry = new EntryBuilder(item).slice(sliceQuery.getSliceStart(), sliceQuery.getSliceEnd())
+                                                      .build();
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param index the index of an entry
+     * @return true if the slice has an entry at the index, after querying the pages up to it
+     */
+    private synchronized boolean hasEntry(final int index) {
+        // a page may have no columns in the slice
+        boolean more = true;
+        while (index >= entries.size() && more) {
+            more = fetchPage();
+        }
+        return index < entries.size();
+    }
+
+    @Override
+    public synchronized Entry get(final int index) {
+        if (index < 0 || !hasEntry(index)) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        return entries.get(index);
+    }
+
+    @Override
+    public synchronized int size() {
+        hasEntry(Integer.MAX_VALUE);
+        return entries.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !hasEntry(0);
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        return new Iterator<Entry>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return hasEntry(next);
+            }
+
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Entry> reuseIterator() {
+        return iterator();
+    }
+
+    @Override
+    public synchronized int getByteSize() {
+        int bytes = 0;
+        hasEntry(Integer.MAX_VALUE);
+        for (Entry entry : entries) {
+            bytes += entry.length() + ENTRY_OVERHEAD_BYTES;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.mutation;
+
+import org.janusgraph.diskstorage.locking.PermanentLockingException;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Writes or deletes a locked column of a sharded key in the salted hash key the column belongs to, and checks the
+ * value the transaction expects against the copy of the column that readers see. That is the copy in the salted
+ * hash key if there is one, and otherwise the copy the unsalted hash key kept from before the key was sharded.
+ * The copy in the unsalted hash key is deleted, so that it never resurfaces.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@RequiredArgsConstructor
+public class ShardedColumnWorker implements MutateWorker {
+    /**
+     * Writes or deletes the column in its salted hash key, on condition that it has the expected value there.
+     */
+    private final MutateWorker shardMutation;
+    /**
+     * Writes or deletes the column in its salted hash key, on condition that it has no value there.
+     */
+    private final MutateWorker shardMutationIfMissing;
+    /**
+     * Deletes the copy of the column in the unsalted hash key, on condition that it has the expected value.
+     */
+    private final MutateWorker unsaltedClaim;
+    /**
+     * Deletes the copy of the column in the unsalted hash key, if there is one.
+     */
+    private final MutateWorker unsaltedDelete;
+    /**
+     * False if the transaction expects the column to be missing.
+     */
+    private final boolean valueExpected;
+
+    @Override
+    public Void call() throws Exception {
+        if (!valueExpected) {
+            // the column must be missing from both hash keys
+            unsaltedClaim.call();
+            shardMutation.call();
+            return null;
+        }
+        try {
+            shardMutation.call();
+        } catch (PermanentLockingException e) {
+            // the expected value may be in the copy from before the key was sharded, and then the salted hash key
+            // must not have a copy that shadows it
+            unsaltedClaim.call();
+            shardMutationIfMissing.call();
+            return null;
+        }
+        unsaltedDelete.call();
+
+        // void
+        return null;
+    }
+}
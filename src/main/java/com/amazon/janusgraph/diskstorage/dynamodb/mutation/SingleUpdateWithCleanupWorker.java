@@ -27,6 +27,7 @@ import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 /**
@@ -38,10 +39,13 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class SingleUpdateWithCleanupWorker implements MutateWorker {
 
-    private static final int ATTRIBUTES_IN_EMPTY_SINGLE_ITEM = 1;
-
     private final UpdateItemRequest updateItemRequest;
     private final DynamoDbDelegate dynamoDbDelegate;
+    /**
+     * The item returned by the update, once the update succeeded.
+     */
+    @Getter
+    private Map<String, AttributeValue> updatedItem;
 
     @Override
     public Void call() throws BackendException {
@@ -51,6 +55,7 @@ public class SingleUpdateWithCleanupWorker implements MutateWorker {
 
 
         final Map<String, AttributeValue> item = result.getAttributes();
+        updatedItem = item;
 
         if (item == null) {
             // bail
@@ -58,7 +63,9 @@ public class SingleUpdateWithCleanupWorker implements MutateWorker {
         }
 
         // If the record has no Titan columns left after deletions occur, then just delete the record
-        if (item.containsKey(Constants.JANUSGRAPH_HASH_KEY) && item.size() == ATTRIBUTES_IN_EMPTY_SINGLE_ITEM) {
+        final boolean hasColumns = item.keySet().stream()
+            .anyMatch(name -> !Constants.JANUSGRAPH_HASH_KEY.equals(name) && !Constants.JANUSGRAPH_EXPIRY.equals(name));
+        if (item.containsKey(Constants.JANUSGRAPH_HASH_KEY) && !hasColumns) {
             final DeleteItem deleteBackoff = new DeleteItem(new DeleteItemRequest().withTableName(updateItemRequest.getTableName())
                                                                              .withKey(updateItemRequest.getKey()), dynamoDbDelegate);
             deleteBackoff.runWithBackoff();
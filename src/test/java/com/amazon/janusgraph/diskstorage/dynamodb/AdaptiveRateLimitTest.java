@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class AdaptiveRateLimitTest {
+    private static final double DELTA = 0.001;
+
+    @Test
+    public void onThrottled_halvesRateOncePerInterval() {
+        final AdaptiveRateLimit limit = new AdaptiveRateLimit(RateLimiter.create(100.0));
+        limit.onThrottled();
+        assertEquals(50.0, limit.getRate(), DELTA);
+        limit.onThrottled();
+        assertEquals(50.0, limit.getRate(), DELTA);
+    }
+
+    @Test
+    public void onThrottled_keepsRateAboveMinimum() {
+        final AdaptiveRateLimit limit = new AdaptiveRateLimit(RateLimiter.create(1.5));
+        limit.onThrottled();
+        assertEquals(1.0, limit.getRate(), DELTA);
+    }
+
+    @Test
+    public void acquire_raisesRateWhenCallersWait() {
+        final AdaptiveRateLimit limit = new AdaptiveRateLimit(RateLimiter.create(10.0));
+        limit.acquire(10);
+        limit.acquire(1);
+        assertEquals(11.0, limit.getRate(), DELTA);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class CapacityAutoscalerTest {
+    private static final double TARGET = 0.5;
+    private static final long MIN = 10L;
+    private static final long MAX = 100L;
+
+    @Test
+    public void scale_raisesCapacityWithinBounds() {
+        assertEquals(40L, CapacityAutoscaler.scale(20L, 20.0, false /*throttled*/, TARGET, MIN, MAX, false /*mayDecrease*/));
+        assertEquals(MAX, CapacityAutoscaler.scale(20L, 200.0, false /*throttled*/, TARGET, MIN, MAX, false /*mayDecrease*/));
+        assertEquals(40L, CapacityAutoscaler.scale(20L, 0.0, true /*throttled*/, TARGET, MIN, MAX, false /*mayDecrease*/));
+        assertEquals(20L, CapacityAutoscaler.scale(20L, 200.0, false /*throttled*/, TARGET, MIN, 0L /*max*/, false /*mayDecrease*/));
+    }
+
+    @Test
+    public void scale_lowersCapacityOnlyWhenAllowedAndWellBelowTarget() {
+        assertEquals(50L, CapacityAutoscaler.scale(50L, 1.0, false /*throttled*/, TARGET, MIN, MAX, false /*mayDecrease*/));
+        assertEquals(MIN, CapacityAutoscaler.scale(50L, 1.0, false /*throttled*/, TARGET, MIN, MAX, true /*mayDecrease*/));
+        assertEquals(50L, CapacityAutoscaler.scale(50L, 22.0, false /*throttled*/, TARGET, MIN, MAX, true /*mayDecrease*/));
+    }
+
+    @Test
+    public void mayDecrease_respectsDailyQuotaAndCooldown() {
+        final Instant now = Instant.now();
+        assertTrue(CapacityAutoscaler.mayDecrease(new ProvisionedThroughputDescription().withNumberOfDecreasesToday(0L), now));
+        assertFalse(CapacityAutoscaler.mayDecrease(new ProvisionedThroughputDescription()
+            .withNumberOfDecreasesToday((long) CapacityAutoscaler.MAX_DECREASES_PER_DAY), now));
+        assertFalse(CapacityAutoscaler.mayDecrease(new ProvisionedThroughputDescription().withNumberOfDecreasesToday(1L)
+            .withLastDecreaseDateTime(Date.from(now.minus(Duration.ofMinutes(1)))), now));
+        assertTrue(CapacityAutoscaler.mayDecrease(new ProvisionedThroughputDescription().withNumberOfDecreasesToday(1L)
+            .withLastDecreaseDateTime(Date.from(now.minus(Duration.ofHours(2)))), now));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.janusgraph.diskstorage.Backend;
+import org.janusgraph.diskstorage.configuration.BasicConfiguration;
+import org.janusgraph.diskstorage.configuration.BasicConfiguration.Restriction;
+import org.janusgraph.diskstorage.configuration.backend.CommonsConfiguration;
+import org.janusgraph.graphdb.configuration.GraphDatabaseConfiguration;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class DynamoDBStoreManagerTest {
+    private static final String PREFIX = "bootstrap";
+
+    @Test
+    public void getTableSchemas_coversEveryStoreAndKeyDirectory() {
+        final BaseConfiguration properties = new BaseConfiguration();
+        properties.setProperty("storage.dynamodb.prefix", PREFIX);
+        properties.setProperty("storage.dynamodb.client.signing-region", "us-east-1");
+        properties.setProperty("storage.dynamodb.stores." + Backend.EDGESTORE_NAME + ".data-model", BackendDataModel.MULTI.name());
+        properties.setProperty("storage.dynamodb.stores." + Backend.EDGESTORE_NAME + ".key-directory-buckets", 4);
+        properties.setProperty("storage.dynamodb.stores." + Backend.INDEXSTORE_NAME + ".data-model", BackendDataModel.SINGLE.name());
+        final Client client = new Client(new BasicConfiguration(GraphDatabaseConfiguration.ROOT_NS, new CommonsConfiguration(properties),
+            Restriction.NONE));
+        try {
+            final List<CreateTableRequest> tables = DynamoDBStoreManager.getTableSchemas(client);
+
+            final Map<String, Integer> keys = new HashMap<>();
+            tables.forEach(table -> keys.put(table.getTableName(), table.getKeySchema().size()));
+            assertEquals(client.getStoreNames().size() + 1, tables.size());
+            assertEquals(Integer.valueOf(2), keys.get(PREFIX + "_" + Backend.EDGESTORE_NAME));
+            assertEquals(Integer.valueOf(2), keys.get(PREFIX + "_" + Backend.EDGESTORE_NAME + KeyDirectory.TABLE_SUFFIX));
+            assertEquals(Integer.valueOf(1), keys.get(PREFIX + "_" + Backend.INDEXSTORE_NAME));
+            assertFalse(keys.containsKey(PREFIX + "_" + Backend.INDEXSTORE_NAME + KeyDirectory.TABLE_SUFFIX));
+        } finally {
+            client.getDelegate().shutdown();
+        }
+    }
+}
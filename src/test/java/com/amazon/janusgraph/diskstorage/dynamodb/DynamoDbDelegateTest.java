@@ -45,6 +45,7 @@ public class DynamoDbDelegateTest {
     public static final String EMPTY_REGION = "";
     public static final String INVALID_REGION = "foobar";
     public static final String VALID_REGION = "ap-northeast-1";
+    public static final long ONE_GIGABYTE = 1073741824L;
 
     //NULL ENDPOINT
     @Test(expected = IllegalArgumentException.class)
@@ -186,4 +187,35 @@ public class DynamoDbDelegateTest {
         assertEquals(VALID_REGION, config.getSigningRegion());
         assertEquals(VALID_DYNAMODB_ENDPOINT.get(), config.getServiceEndpoint());
     }
+
+    //PARALLEL SCAN SEGMENTS
+    @Test
+    public void computeTotalSegments_whenTableIsEmpty_overPartitionsWorkers() {
+        assertEquals(100, DynamoDbDelegate.computeTotalSegments(0L, 0L, 25, 4, ONE_GIGABYTE, 4096));
+    }
+
+    @Test
+    public void computeTotalSegments_whenTableIsLarge_usesSegmentSize() {
+        assertEquals(300, DynamoDbDelegate.computeTotalSegments(1000000000L, 300 * ONE_GIGABYTE, 25, 4, ONE_GIGABYTE, 4096));
+    }
+
+    @Test
+    public void computeTotalSegments_whenTableHasFewItems_boundsSegmentsByItemCount() {
+        assertEquals(7, DynamoDbDelegate.computeTotalSegments(7L, 700L, 25, 4, ONE_GIGABYTE, 4096));
+    }
+
+    @Test
+    public void computeTotalSegments_whenItemCountIsStale_keepsSizeBasedEstimate() {
+        assertEquals(300, DynamoDbDelegate.computeTotalSegments(7L, 300 * ONE_GIGABYTE, 25, 4, ONE_GIGABYTE, 4096));
+    }
+
+    @Test
+    public void computeTotalSegments_whenTableIsHuge_boundsSegmentsByMax() {
+        assertEquals(4096, DynamoDbDelegate.computeTotalSegments(Long.MAX_VALUE, 10000 * ONE_GIGABYTE, 25, 4, ONE_GIGABYTE, 4096));
+    }
+
+    @Test
+    public void computeTotalSegments_whenOneWorker_returnsAtLeastOneSegment() {
+        assertEquals(1, DynamoDbDelegate.computeTotalSegments(1L, 1L, 1, 1, ONE_GIGABYTE, 4096));
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class DynamoDbSnapshotToolTest {
+    @Test
+    public void serialize_thenDeserialize_roundTripsItem() throws IOException {
+        final Map<String, AttributeValue> item = ImmutableMap.of(
+            Constants.JANUSGRAPH_HASH_KEY, new AttributeValue().withS("0a0b"),
+            Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue().withS("0c"),
+            Constants.JANUSGRAPH_VALUE, new AttributeValue().withB(ByteBuffer.wrap(new byte[] {1, 2, 3})),
+            "ex", new AttributeValue().withN("1500000000"));
+        assertEquals(item, DynamoDbSnapshotTool.deserialize(DynamoDbSnapshotTool.serialize(item)));
+    }
+
+    @Test(expected = IOException.class)
+    public void serialize_whenAttributeTypeIsUnsupported_throws() throws IOException {
+        DynamoDbSnapshotTool.serialize(ImmutableMap.of("l", new AttributeValue().withBOOL(true)));
+    }
+}
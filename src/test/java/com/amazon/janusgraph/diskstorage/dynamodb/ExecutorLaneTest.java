@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.janusgraph.diskstorage.TemporaryBackendException;
+import org.janusgraph.util.stats.MetricManager;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class ExecutorLaneTest {
+    private static final String METRIC = "ExecutorLaneTest.lane";
+    private static final String GAUGE = METRIC + "-queue-size";
+    private static final String TIMER = METRIC + "-wait";
+    private static final long MAX_QUEUE_WAIT_MILLIS = 50L;
+
+    private static ThreadPoolExecutor createPool() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    private static ExecutorLane createLane(final ThreadPoolExecutor pool, final boolean dedicated) {
+        return new ExecutorLane("test", pool, dedicated, METRIC, MAX_QUEUE_WAIT_MILLIS);
+    }
+
+    private static void assertTemporaryFailure(final Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TemporaryBackendException);
+        }
+    }
+
+    @Test
+    public void submit_runsTaskAndTimesWait() throws Exception {
+        final ThreadPoolExecutor pool = createPool();
+        final ExecutorLane lane = createLane(pool, true /*dedicated*/);
+        final long waits = MetricManager.INSTANCE.getTimer(TIMER).getCount();
+        try {
+            assertEquals("done", lane.submit(() -> "done").get());
+            assertEquals(waits + 1, MetricManager.INSTANCE.getTimer(TIMER).getCount());
+            assertTrue(MetricManager.INSTANCE.getRegistry().getNames().contains(GAUGE));
+        } finally {
+            lane.shutdown();
+        }
+        assertTrue(pool.isShutdown());
+        assertFalse(MetricManager.INSTANCE.getRegistry().getNames().stream().anyMatch(metric -> metric.startsWith(METRIC)));
+    }
+
+    @Test
+    public void submitCompletable_completesWithTheResultOrFailureOfTheTask() throws Exception {
+        final ExecutorLane lane = createLane(createPool(), true /*dedicated*/);
+        try {
+            assertEquals("done", lane.submitCompletable(() -> "done").thenApply(String::valueOf).get());
+            assertTemporaryFailure(lane.submitCompletable(() -> {
+                throw new TemporaryBackendException("failed");
+            }));
+        } finally {
+            lane.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdown_keepsSharedPoolRunning() {
+        final ThreadPoolExecutor pool = createPool();
+        try {
+            createLane(pool, false /*dedicated*/).shutdown();
+            assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void submit_shedsTaskExpectedToWaitTooLong() throws Exception {
+        final ThreadPoolExecutor pool = createPool();
+        final ExecutorLane lane = createLane(pool, true /*dedicated*/);
+        try {
+            lane.submit(() -> {
+                Thread.sleep(MAX_QUEUE_WAIT_MILLIS * 2);
+                return null;
+            }).get();
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch blocked = new CountDownLatch(1);
+            lane.submit(() -> {
+                started.countDown();
+                return blocked.await(1, TimeUnit.MINUTES);
+            });
+            started.await(1, TimeUnit.MINUTES);
+            // nothing is queued yet, so the next task is expected to start right away
+            final Future<String> queued = lane.submit(() -> "queued");
+            assertTrue(lane.getExpectedWaitNanos() > TimeUnit.MILLISECONDS.toNanos(MAX_QUEUE_WAIT_MILLIS));
+            final Future<String> shed = lane.submit(() -> "shed");
+            assertTrue(shed.isDone());
+            assertTemporaryFailure(shed);
+            blocked.countDown();
+            assertEquals("queued", queued.get());
+        } finally {
+            lane.shutdown();
+        }
+    }
+
+    @Test
+    public void submit_failsTaskRejectedByPool() throws Exception {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+        final ExecutorLane lane = createLane(pool, true /*dedicated*/);
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            lane.submit(() -> blocked.await(1, TimeUnit.MINUTES));
+            assertTemporaryFailure(lane.submit(() -> "rejected"));
+            blocked.countDown();
+        } finally {
+            lane.shutdown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class ExpectedValueIndexTest {
+    private static final int KEYS = 100;
+    private static final StaticBuffer COLUMN = BufferUtil.getIntBuffer(0);
+
+    private final AbstractDynamoDbStore store = mock(AbstractDynamoDbStore.class);
+    private final AbstractDynamoDbStore otherStore = mock(AbstractDynamoDbStore.class);
+
+    @Test
+    public void putIfAbsent_keepsFirstExpectedValue() {
+        final ExpectedValueIndex index = new ExpectedValueIndex();
+        final StaticBuffer key = BufferUtil.getIntBuffer(1);
+        index.putIfAbsent(store, key, COLUMN, null);
+        index.putIfAbsent(store, key, COLUMN, BufferUtil.getIntBuffer(2));
+        index.putIfAbsent(otherStore, key, COLUMN, BufferUtil.getIntBuffer(3));
+
+        assertNull(index.getIfPresent(store, BufferUtil.getIntBuffer(1), COLUMN).getValue());
+        assertEquals(BufferUtil.getIntBuffer(3), index.getIfPresent(otherStore, key, COLUMN).getValue());
+        assertNull(index.getIfPresent(store, key, BufferUtil.getIntBuffer(1)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void forEach_visitsEveryKeyColumnAfterResize() {
+        final ExpectedValueIndex index = new ExpectedValueIndex();
+        for (int i = 0; i < KEYS; i++) {
+            index.putIfAbsent(store, BufferUtil.getIntBuffer(i), COLUMN, BufferUtil.getIntBuffer(i));
+        }
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(BufferUtil.getIntBuffer(i), index.getIfPresent(store, BufferUtil.getIntBuffer(i), COLUMN).getValue());
+        }
+        final List<StaticBuffer> keys = new ArrayList<>();
+        index.forEach(expected -> keys.add(expected.getKey()));
+        assertEquals(KEYS, keys.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.getIfPresent(store, BufferUtil.getIntBuffer(0), COLUMN));
+    }
+}
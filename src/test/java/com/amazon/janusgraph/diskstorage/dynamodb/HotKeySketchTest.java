@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class HotKeySketchTest {
+    private static final double DELTA = 0.001;
+
+    @Test
+    public void getTopKeys_ordersKeysByShare() {
+        final HotKeySketch sketch = new HotKeySketch(2);
+        sketch.add("a", 1.0);
+        sketch.add("b", 6.0);
+        sketch.add("c", 3.0);
+        final List<HotKeySketch.HotKey> top = sketch.getTopKeys();
+        assertEquals(2, top.size());
+        assertEquals("b", top.get(0).getKey());
+        assertEquals(0.6, top.get(0).getShare(), DELTA);
+        assertEquals("c", top.get(1).getKey());
+        assertEquals(0.6, sketch.getTopShare(), DELTA);
+    }
+
+    @Test
+    public void add_keepsHeavyKeyAmongManyLightKeys() {
+        final HotKeySketch sketch = new HotKeySketch(1);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("light" + i, 1.0);
+            sketch.add("hot", 1.0);
+        }
+        final List<HotKeySketch.HotKey> top = sketch.getTopKeys();
+        assertEquals("hot", top.get(0).getKey());
+        assertTrue(top.get(0).getShare() >= 0.5);
+    }
+
+    @Test
+    public void getTopKeys_isEmptyWithoutWeight() {
+        final HotKeySketch sketch = new HotKeySketch(3);
+        assertTrue(sketch.getTopKeys().isEmpty());
+        assertEquals(0.0, sketch.getTopShare(), DELTA);
+    }
+
+    @Test
+    public void getTopKeys_mergesTheStripes() {
+        final HotKeySketch sketch = new HotKeySketch(3);
+        double total = 0.0;
+        for (int i = 1; i <= HotKeySketch.STRIPES * 2; i++) {
+            sketch.add("key" + i, i);
+            total += i;
+        }
+        final List<HotKeySketch.HotKey> top = sketch.getTopKeys();
+        assertEquals(3, top.size());
+        assertEquals("key32", top.get(0).getKey());
+        assertEquals(32 / total, top.get(0).getShare(), DELTA);
+        assertEquals("key31", top.get(1).getKey());
+        assertEquals("key30", top.get(2).getKey());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.janusgraph.diskstorage.PermanentBackendException;
+import org.janusgraph.diskstorage.locking.PermanentLockingException;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class KeyDirectoryTest {
+    private static final String TABLE = "graph_edgestore_keys";
+    private static final int BUCKETS = 8;
+
+    private static DynamoDbDelegate createExistingDirectory(final int recordedBuckets) throws Exception {
+        final DynamoDbDelegate delegate = mock(DynamoDbDelegate.class);
+        when(delegate.putItem(any(PutItemRequest.class))).thenThrow(new PermanentLockingException("exists"));
+        when(delegate.getItem(any(GetItemRequest.class))).thenReturn(new GetItemResult()
+            .withItem(Collections.singletonMap("n", new AttributeValue().withN(Integer.toString(recordedBuckets)))));
+        return delegate;
+    }
+
+    @Test
+    public void checkBucketCount_recordsBucketCountOfNewDirectory() throws Exception {
+        final DynamoDbDelegate delegate = mock(DynamoDbDelegate.class);
+        when(delegate.putItem(any(PutItemRequest.class))).thenReturn(new PutItemResult());
+        KeyDirectory.checkBucketCount(delegate, TABLE, BUCKETS);
+        verify(delegate).putItem(any(PutItemRequest.class));
+        verify(delegate, never()).getItem(any(GetItemRequest.class));
+    }
+
+    @Test
+    public void checkBucketCount_acceptsRecordedBucketCount() throws Exception {
+        KeyDirectory.checkBucketCount(createExistingDirectory(BUCKETS), TABLE, BUCKETS);
+    }
+
+    @Test
+    public void checkBucketCount_whenBucketCountChanged_fails() throws Exception {
+        try {
+            KeyDirectory.checkBucketCount(createExistingDirectory(BUCKETS), TABLE, BUCKETS * 2);
+            fail();
+        } catch (PermanentBackendException e) {
+            assertFalse(e instanceof PermanentLockingException);
+        }
+    }
+}
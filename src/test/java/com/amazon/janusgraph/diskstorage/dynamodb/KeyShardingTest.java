@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class KeyShardingTest {
+    private static final StaticBuffer KEY = BufferUtil.getIntBuffer(42);
+    private static final int SHARDS = 4;
+
+    @Test
+    public void getSaltedHashKey_keepsUnshardedColumnsInTheHashKey() {
+        assertNull(KeySharding.getSaltedHashKey(KEY, BufferUtil.getIntBuffer(1), 1 /*writeShards*/));
+    }
+
+    @Test
+    public void getSaltedHashKey_spreadsColumnsOverShards() {
+        final Set<String> hashKeys = new HashSet<>();
+        for (int column = 0; column < 100; column++) {
+            final StaticBuffer columnBuffer = BufferUtil.getIntBuffer(column);
+            final String saltedHashKey = KeySharding.getSaltedHashKey(KEY, columnBuffer, SHARDS);
+            assertEquals(saltedHashKey, KeySharding.getSaltedHashKey(KEY, columnBuffer, SHARDS));
+            hashKeys.add(String.valueOf(saltedHashKey));
+        }
+        assertEquals(SHARDS, hashKeys.size());
+        assertTrue(hashKeys.contains("null"));
+        assertTrue(hashKeys.contains("0000002a#1"));
+        assertTrue(hashKeys.contains("0000002a#3"));
+    }
+
+    @Test
+    public void decodeHashKey_skipsSaltedHashKeys() {
+        assertEquals(KEY, KeySharding.decodeHashKey(new AttributeValue("0000002a")));
+        assertNull(KeySharding.decodeHashKey(new AttributeValue("0000002a#2")));
+        assertNull(KeySharding.decodeHashKey(new AttributeValue("#shards")));
+        assertTrue(KeySharding.isSalted("0000002a#2"));
+        assertFalse(KeySharding.isSalted("0000002a"));
+    }
+
+    @Test
+    public void isMarker_sortsAfterEveryColumn() {
+        final Map<String, AttributeValue> item = new HashMap<>();
+        item.put(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue("0000002a"));
+        item.put(Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue(KeySharding.MARKER_RANGE_KEY));
+        assertTrue(KeySharding.isMarker(item));
+        assertTrue(KeySharding.MARKER_RANGE_KEY.compareTo("ffffffff") > 0);
+
+        item.put(Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue("ffffffff"));
+        assertFalse(KeySharding.isMarker(item));
+    }
+}
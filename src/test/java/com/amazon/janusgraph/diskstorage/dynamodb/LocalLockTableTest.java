@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class LocalLockTableTest {
+    private static final StaticBuffer KEY = BufferUtil.getIntBuffer(1);
+    private static final StaticBuffer COLUMN = BufferUtil.getIntBuffer(2);
+    private static final long EXPIRY_MILLIS = 50L;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor();
+    private final DynamoDbStoreTransaction first = mock(DynamoDbStoreTransaction.class);
+    private final DynamoDbStoreTransaction second = mock(DynamoDbStoreTransaction.class);
+
+    @After
+    public void tearDown() {
+        sweeper.shutdownNow();
+    }
+
+    private LocalLockTable createTable(final long expiryMillis) {
+        return new LocalLockTable(mock(DynamoDbDelegate.class), "table", Duration.ofMillis(expiryMillis), sweeper);
+    }
+
+    @Test
+    public void lock_returnsHolderUntilReleased() {
+        final LocalLockTable table = createTable(Duration.ofMinutes(1).toMillis());
+        assertSame(first, table.lock(KEY, COLUMN, first));
+        assertSame(first, table.lock(BufferUtil.getIntBuffer(1), BufferUtil.getIntBuffer(2), second));
+        assertSame(second, table.lock(KEY, BufferUtil.getIntBuffer(3), second));
+        table.release(KEY, COLUMN);
+        assertSame(second, table.lock(KEY, COLUMN, second));
+        table.close();
+    }
+
+    @Test
+    public void lock_replacesExpiredLock() throws Exception {
+        final LocalLockTable table = createTable(EXPIRY_MILLIS);
+        assertSame(first, table.lock(KEY, COLUMN, first));
+        Thread.sleep(EXPIRY_MILLIS * 2);
+        table.sweep();
+        assertSame(second, table.lock(KEY, COLUMN, second));
+        Thread.sleep(EXPIRY_MILLIS * 2);
+        assertSame(first, table.lock(KEY, COLUMN, first));
+        table.close();
+    }
+}
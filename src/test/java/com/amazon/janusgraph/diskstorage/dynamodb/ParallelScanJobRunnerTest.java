@@ -0,0 +1,184 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.TemporaryBackendException;
+import org.janusgraph.diskstorage.configuration.Configuration;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanJob;
+import org.janusgraph.diskstorage.keycolumnvalue.scan.ScanMetrics;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.RecordIterator;
+import org.janusgraph.diskstorage.util.time.TimestampProviders;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.iterator.StaticRecordIterator;
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class ParallelScanJobRunnerTest {
+    private static final String STORE = "edgestore";
+    private static final int WORKERS = 2;
+
+    /**
+     * Records the keys it processed. Its clones share the record.
+     */
+    private static final class KeyRecordingJob implements ScanJob {
+        private final Set<StaticBuffer> processed = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void process(final StaticBuffer key, final Map<SliceQuery, EntryList> entries, final ScanMetrics metrics) {
+            processed.add(key);
+        }
+
+        @Override
+        public List<SliceQuery> getQueries() {
+            return Collections.singletonList(new SliceQuery(BufferUtil.zeroBuffer(1), BufferUtil.oneBuffer(1)));
+        }
+
+        @Override
+        public KeyRecordingJob clone() {
+            return this;
+        }
+    }
+
+    private static KeyIterator segment(final StaticBuffer... keys) {
+        final Iterator<StaticBuffer> iterator = Arrays.asList(keys).iterator();
+        return new KeyIterator() {
+            @Override
+            public RecordIterator<Entry> getEntries() {
+                return new StaticRecordIterator(Collections.emptyList());
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public StaticBuffer next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static KeyIterator failingSegment() {
+        return new KeyIterator() {
+            @Override
+            public RecordIterator<Entry> getEntries() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean hasNext() {
+                throw new BackendRuntimeException(new TemporaryBackendException("failed"));
+            }
+
+            @Override
+            public StaticBuffer next() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static DynamoDBStoreManager createManager(final List<KeyIterator> segments, final StoreTransaction txh) throws BackendException {
+        final DynamoDbDelegate delegate = mock(DynamoDbDelegate.class);
+        when(delegate.unwrapExecutionException(any(ExecutionException.class), anyString()))
+            .thenAnswer(invocation -> (BackendException) ((ExecutionException) invocation.getArguments()[0]).getCause());
+        final Client client = mock(Client.class);
+        when(client.getDelegate()).thenReturn(delegate);
+        final AwsStore store = mock(AwsStore.class);
+        when(store.getTableName()).thenReturn(STORE);
+        when(store.getKeySegments(any(SliceQuery.class), any(StoreTransaction.class))).thenReturn(segments);
+        final DynamoDBStoreManager manager = mock(DynamoDBStoreManager.class);
+        when(manager.getClient()).thenReturn(client);
+        when(manager.getTimestampProvider()).thenReturn(TimestampProviders.MILLI);
+        when(manager.openDatabase(STORE)).thenReturn(store);
+        when(manager.beginTransaction(any())).thenReturn(txh);
+        return manager;
+    }
+
+    @Test
+    public void run_processesEverySegmentAndCommits() throws Exception {
+        final List<KeyIterator> segments = Arrays.asList(segment(BufferUtil.getIntBuffer(1), BufferUtil.getIntBuffer(2)),
+            segment(BufferUtil.getIntBuffer(3)), segment(), segment(BufferUtil.getIntBuffer(4)));
+        final StoreTransaction txh = mock(StoreTransaction.class);
+        final KeyRecordingJob job = new KeyRecordingJob();
+
+        final ScanMetrics metrics = new ParallelScanJobRunner(createManager(segments, txh), WORKERS)
+            .run(STORE, job, mock(Configuration.class), mock(Configuration.class));
+
+        assertEquals(4, job.processed.size());
+        assertEquals(4, metrics.get(ScanMetrics.Metric.SUCCESS));
+        assertEquals(segments.size(), metrics.getCustom(ParallelScanJobRunner.SEGMENTS_COMPLETED));
+        verify(txh).commit();
+        verify(txh, never()).rollback();
+    }
+
+    @Test
+    public void run_whenSegmentFails_failsAndRollsBack() throws Exception {
+        final List<KeyIterator> segments = Arrays.asList(segment(BufferUtil.getIntBuffer(1)), failingSegment(),
+            segment(BufferUtil.getIntBuffer(2)));
+        final StoreTransaction txh = mock(StoreTransaction.class);
+
+        try {
+            new ParallelScanJobRunner(createManager(segments, txh), WORKERS)
+                .run(STORE, new KeyRecordingJob(), mock(Configuration.class), mock(Configuration.class));
+            fail();
+        } catch (TemporaryBackendException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        verify(txh).rollback();
+        verify(txh, never()).commit();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class QueryWorkerTest {
+    /**
+     * The query of every hash key has two pages of one item each.
+     * @return a worker that queries the two pages
+     */
+    private static QueryWorker createWorker() throws BackendException {
+        final DynamoDbDelegate delegate = mock(DynamoDbDelegate.class);
+        when(delegate.query(any(QueryRequest.class), anyInt())).thenAnswer(invocation -> {
+            final QueryRequest request = (QueryRequest) invocation.getArguments()[0];
+            final Map<String, AttributeValue> item = Collections.singletonMap(Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue("00"));
+            final QueryResult result = new QueryResult().withItems(Collections.singletonList(item)).withCount(1).withScannedCount(1);
+            if (request.getExclusiveStartKey() == null) {
+                result.setLastEvaluatedKey(item);
+            }
+            return result;
+        });
+        return new QueryWorker(delegate, new QueryRequest().withTableName("table"), BufferUtil.getIntBuffer(0));
+    }
+
+    @Test
+    public void next_emitsPagesWithoutKeepingThem() throws BackendException {
+        final QueryWorker worker = createWorker();
+
+        assertEquals(1, worker.next().getDynamoDBResult().getItems().size());
+        assertTrue(worker.hasNext());
+        assertEquals(1, worker.next().getDynamoDBResult().getItems().size());
+        assertFalse(worker.hasNext());
+        assertTrue(worker.getFinalItemList().isEmpty());
+    }
+
+    @Test
+    public void call_mergesThePages() throws BackendException {
+        final QueryResult merged = createWorker().call().getDynamoDBResult();
+
+        assertEquals(2, merged.getItems().size());
+        assertEquals(Integer.valueOf(2), merged.getCount());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class SharedClientRegistryTest {
+    private static final List<Object> KEY = Arrays.asList("SharedClientRegistryTest", "us-east-1");
+
+    private static ThreadPoolExecutor createPool() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    @Test
+    public void release_shutsDownResourcesAfterLastGraph() {
+        final AmazonDynamoDB client = mock(AmazonDynamoDB.class);
+        final ThreadPoolExecutor pool = createPool();
+        final SharedClientRegistry.Resources first = SharedClientRegistry.acquire(KEY, () -> client, () -> pool);
+        final SharedClientRegistry.Resources second = SharedClientRegistry.acquire(KEY, () -> mock(AmazonDynamoDB.class),
+            SharedClientRegistryTest::createPool);
+        assertSame(first, second);
+        assertSame(client, second.getClient());
+
+        SharedClientRegistry.release(KEY);
+        verify(client, never()).shutdown();
+        assertFalse(pool.isShutdown());
+
+        SharedClientRegistry.release(KEY);
+        verify(client).shutdown();
+        assertTrue(pool.isShutdown());
+    }
+}
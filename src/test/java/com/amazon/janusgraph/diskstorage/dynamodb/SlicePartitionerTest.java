@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class SlicePartitionerTest {
+    private static final StaticBuffer KEY = BufferUtil.getIntBuffer(1);
+    private static final SliceQuery SLICE = new SliceQuery(BufferUtil.zeroBuffer(1), BufferUtil.oneBuffer(4));
+    private static final int PARTITIONS = 4;
+
+    private static List<Entry> columns(final int count) {
+        final List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(StaticArrayEntry.of(BufferUtil.getIntBuffer(i), BufferUtil.emptyBuffer()));
+        }
+        return entries;
+    }
+
+    private static void assertContiguous(final SliceQuery slice, final List<SliceQuery> subRanges) {
+        assertEquals(slice.getSliceStart(), subRanges.get(0).getSliceStart());
+        assertEquals(slice.getSliceEnd(), subRanges.get(subRanges.size() - 1).getSliceEnd());
+        for (int i = 1; i < subRanges.size(); i++) {
+            assertEquals(subRanges.get(i - 1).getSliceEnd(), subRanges.get(i).getSliceStart());
+            assertTrue(subRanges.get(i).getSliceStart().compareTo(subRanges.get(i).getSliceEnd()) < 0);
+        }
+    }
+
+    @Test
+    public void midpoint_isStrictlyBetweenTheBounds() {
+        final StaticBuffer low = BufferUtil.getIntBuffer(1);
+        final StaticBuffer high = BufferUtil.getIntBuffer(2);
+        final StaticBuffer middle = SlicePartitioner.midpoint(low, high);
+        assertTrue(low.compareTo(middle) < 0);
+        assertTrue(middle.compareTo(high) < 0);
+        assertNull(SlicePartitioner.midpoint(high, low));
+    }
+
+    @Test
+    public void partition_splitsOnlyKeysThatTookMoreThanAPage() {
+        final SlicePartitioner partitioner = new SlicePartitioner(PARTITIONS);
+        assertEquals(1, partitioner.partition(KEY, SLICE).size());
+
+        partitioner.record(KEY, SLICE, columns(1000), SlicePartitioner.PAGE_CAPACITY_UNITS / 2);
+        assertEquals(1, partitioner.partition(KEY, SLICE).size());
+
+        partitioner.record(KEY, SLICE, columns(1000), SlicePartitioner.PAGE_CAPACITY_UNITS * 2);
+        final List<SliceQuery> subRanges = partitioner.partition(KEY, SLICE);
+        assertEquals(PARTITIONS, subRanges.size());
+        assertContiguous(SLICE, subRanges);
+        // the slice is split near the quartiles of the sampled columns
+        assertTrue(BufferUtil.getIntBuffer(200).compareTo(subRanges.get(1).getSliceStart()) < 0);
+        assertTrue(BufferUtil.getIntBuffer(300).compareTo(subRanges.get(1).getSliceStart()) > 0);
+    }
+
+    @Test
+    public void partition_bisectsSlicesWithoutSamples() {
+        final SlicePartitioner partitioner = new SlicePartitioner(PARTITIONS);
+        partitioner.record(KEY, SLICE, columns(1000), SlicePartitioner.PAGE_CAPACITY_UNITS * 2);
+        // no samples fall between the columns 2000 and 3000
+        final SliceQuery slice = new SliceQuery(BufferUtil.getIntBuffer(2000), BufferUtil.getIntBuffer(3000));
+
+        final List<SliceQuery> subRanges = partitioner.partition(KEY, slice);
+
+        assertEquals(PARTITIONS, subRanges.size());
+        assertContiguous(slice, subRanges);
+    }
+
+    @Test
+    public void partition_splitsOnlySlicesWithALimitBeyondAPage() {
+        final SlicePartitioner partitioner = new SlicePartitioner(PARTITIONS);
+        // 1000 columns took two pages, so 500 columns fit in a page
+        partitioner.record(KEY, SLICE, columns(1000), SlicePartitioner.PAGE_CAPACITY_UNITS * 2);
+
+        assertEquals(1, partitioner.partition(KEY, new SliceQuery(SLICE).setLimit(1)).size());
+        assertEquals(1, partitioner.partition(KEY, new SliceQuery(SLICE).setLimit(500)).size());
+
+        final List<SliceQuery> subRanges = partitioner.partition(KEY, new SliceQuery(SLICE).setLimit(501));
+        assertEquals(PARTITIONS, subRanges.size());
+        assertEquals(501, subRanges.get(PARTITIONS - 1).getLimit());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.PermanentBackendException;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class WriteCombinerTest {
+    private static final long WINDOW_MILLIS = 500L;
+    private static final StaticBuffer KEY = BufferUtil.getIntBuffer(1);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static UpdateItemRequest createRequest(final String attribute, final String value) {
+        return new UpdateItemRequest().withTableName("table")
+            .addAttributeUpdatesEntry(attribute, new AttributeValueUpdate(new AttributeValue(value), AttributeAction.PUT));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DynamoDbDelegate createDelegate() {
+        final DynamoDbDelegate delegate = mock(DynamoDbDelegate.class);
+        when(delegate.submitWrite(any(Callable.class))).thenAnswer(invocation -> {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            try {
+                future.complete(((Callable<Void>) invocation.getArguments()[0]).call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        });
+        return delegate;
+    }
+
+    @Test
+    public void combine_writesConcurrentUpdatesOfItemOnce() throws Exception {
+        final List<UpdateItemRequest> written = new CopyOnWriteArrayList<>();
+        final DynamoDbDelegate delegate = createDelegate();
+        when(delegate.updateItem(any(UpdateItemRequest.class))).thenAnswer(invocation -> {
+            written.add((UpdateItemRequest) invocation.getArguments()[0]);
+            return new UpdateItemResult();
+        });
+        final WriteCombiner combiner = new WriteCombiner(delegate, scheduler);
+
+        final CompletableFuture<Void> first = combiner.combine(KEY, createRequest("a", "1"), WINDOW_MILLIS).start();
+        final CompletableFuture<Void> second = combiner.combine(KEY, createRequest("b", "2"), WINDOW_MILLIS).start();
+        // the window is open, and neither update holds the calling thread while it waits
+        assertFalse(first.isDone());
+        WriteCombiner.awaitAll(Arrays.asList(first, second));
+
+        assertEquals(1, written.size());
+        assertEquals(2, written.get(0).getAttributeUpdates().size());
+    }
+
+    @Test
+    public void combine_failsEveryUpdateOfFailedWrite() throws Exception {
+        final DynamoDbDelegate delegate = createDelegate();
+        when(delegate.updateItem(any(UpdateItemRequest.class))).thenThrow(new PermanentBackendException("failed"));
+        final WriteCombiner combiner = new WriteCombiner(delegate, scheduler);
+
+        final CompletableFuture<Void> first = combiner.combine(KEY, createRequest("a", "1"), WINDOW_MILLIS).start();
+        final CompletableFuture<Void> second = combiner.combine(KEY, createRequest("b", "2"), WINDOW_MILLIS).start();
+        for (CompletableFuture<Void> update : Arrays.asList(first, second)) {
+            try {
+                WriteCombiner.awaitAll(Collections.singletonList(update));
+                fail();
+            } catch (BackendException e) {
+                assertTrue(e instanceof PermanentBackendException);
+            }
+        }
+    }
+}
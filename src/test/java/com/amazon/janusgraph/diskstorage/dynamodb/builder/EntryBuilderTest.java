@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.janusgraph.diskstorage.Entry;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class EntryBuilderTest {
+    private static final long HOUR_IN_SECONDS = TimeUnit.HOURS.toSeconds(1);
+
+    private static AttributeValue expiry(final long offsetSeconds) {
+        return new AttributeValue().withN(Long.toString(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + offsetSeconds));
+    }
+
+    private static Map<String, AttributeValue> singleItem(final AttributeValue expiry) {
+        final Map<String, AttributeValue> item = new HashMap<>();
+        item.put(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue().withS("0a"));
+        item.put("0b", new AttributeValue().withB(ByteBuffer.wrap(new byte[] {1})));
+        item.put("0c", new AttributeValue().withB(ByteBuffer.wrap(new byte[] {2})));
+        item.put(Constants.JANUSGRAPH_EXPIRY, expiry);
+        return item;
+    }
+
+    private static Map<String, AttributeValue> multiItem(final AttributeValue expiry) {
+        final Map<String, AttributeValue> item = new HashMap<>();
+        item.put(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue().withS("0a"));
+        item.put(Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue().withS("0b"));
+        item.put(Constants.JANUSGRAPH_VALUE, new AttributeValue().withB(ByteBuffer.wrap(new byte[] {1})));
+        item.put(Constants.JANUSGRAPH_EXPIRY, expiry);
+        return item;
+    }
+
+    @Test
+    public void buildAll_excludesExpiryAttributeOfLiveItem() {
+        final List<Entry> entries = new EntryBuilder(singleItem(expiry(HOUR_IN_SECONDS))).buildAll();
+        assertEquals(2, entries.size());
+        assertEquals(AbstractBuilder.decodeKey("0b"), entries.get(0).getColumn());
+    }
+
+    @Test
+    public void buildAll_returnsNoColumnsOfExpiredItem() {
+        assertTrue(new EntryBuilder(singleItem(expiry(-HOUR_IN_SECONDS))).buildAll().isEmpty());
+    }
+
+    @Test
+    public void build_returnsNullForExpiredItem() {
+        assertNotNull(new EntryBuilder(multiItem(expiry(HOUR_IN_SECONDS))).build());
+        assertNull(new EntryBuilder(multiItem(expiry(-HOUR_IN_SECONDS))).build());
+    }
+}
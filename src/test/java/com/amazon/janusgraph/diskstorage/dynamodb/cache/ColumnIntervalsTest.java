@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class ColumnIntervalsTest {
+    private static Entry entry(final int column) {
+        return StaticArrayEntry.of(BufferUtil.getIntBuffer(column), BufferUtil.getIntBuffer(column));
+    }
+
+    private static SliceQuery query(final int start, final int end) {
+        return new SliceQuery(BufferUtil.getIntBuffer(start), BufferUtil.getIntBuffer(end));
+    }
+
+    private static SliceQuery query(final int start, final int end, final int limit) {
+        final SliceQuery query = query(start, end);
+        query.setLimit(limit);
+        return query;
+    }
+
+    @Test
+    public void firstGap_returnsWholeSliceWhenEmpty() {
+        final SliceQuery query = query(0, 10);
+        assertEquals(query, ColumnIntervals.EMPTY.firstGap(query));
+    }
+
+    @Test
+    public void firstGap_returnsNullForCoveredSlice() {
+        final ColumnIntervals intervals = ColumnIntervals.EMPTY.merge(query(0, 10), Arrays.asList(entry(2), entry(5)));
+        assertNull(intervals.firstGap(query(1, 6)));
+        assertEquals(Arrays.asList(entry(2), entry(5)), intervals.slice(query(1, 6)));
+    }
+
+    @Test
+    public void firstGap_returnsMissingRangeWithRemainingLimit() {
+        final ColumnIntervals intervals = ColumnIntervals.EMPTY.merge(query(0, 5), Collections.singletonList(entry(2)));
+        assertEquals(query(5, 10, 2), intervals.firstGap(query(0, 10, 3)));
+    }
+
+    @Test
+    public void gaps_returnsEveryMissingRangeOfSliceWithoutLimit() {
+        final ColumnIntervals intervals = ColumnIntervals.EMPTY
+            .merge(query(2, 4), Collections.singletonList(entry(3)))
+            .merge(query(6, 8), Collections.singletonList(entry(7)));
+        assertEquals(Arrays.asList(query(0, 2), query(4, 6), query(8, 10)), intervals.gaps(query(0, 10)));
+        assertEquals(Collections.singletonList(query(4, 6)), intervals.gaps(query(3, 7)));
+        assertTrue(intervals.gaps(query(2, 4)).isEmpty());
+    }
+
+    @Test
+    public void gaps_returnsOnlyFirstMissingRangeOfSliceWithLimit() {
+        final ColumnIntervals intervals = ColumnIntervals.EMPTY.merge(query(2, 4), Collections.singletonList(entry(3)));
+        assertEquals(Collections.singletonList(query(0, 2, 1)), intervals.gaps(query(0, 10, 1)));
+    }
+
+    @Test
+    public void merge_coversTruncatedSliceUpToLastColumn() {
+        final ColumnIntervals intervals = ColumnIntervals.EMPTY.merge(query(0, 10, 2), Arrays.asList(entry(2), entry(5)));
+        assertNull(intervals.firstGap(query(0, 10, 2)));
+        assertNull(intervals.firstGap(query(3, 10, 1)));
+        assertTrue(intervals.firstGap(query(0, 10)).getSliceStart().compareTo(BufferUtil.getIntBuffer(5)) > 0);
+    }
+
+    @Test
+    public void merge_joinsAdjacentIntervals() {
+        final ColumnIntervals intervals = ColumnIntervals.EMPTY
+            .merge(query(0, 5), Collections.singletonList(entry(2)))
+            .merge(query(5, 10), Collections.singletonList(entry(7)));
+        assertNull(intervals.firstGap(query(0, 10)));
+        assertEquals(Arrays.asList(entry(2), entry(7)), intervals.slice(query(0, 10)));
+    }
+
+    @Test
+    public void merge_replacesColumnsInReadRange() {
+        final ColumnIntervals intervals = ColumnIntervals.EMPTY
+            .merge(query(0, 10), Arrays.asList(entry(2), entry(5), entry(7)))
+            .merge(query(4, 6), Collections.emptyList());
+        assertEquals(Arrays.asList(entry(2), entry(7)), intervals.slice(query(0, 10)));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class NegativeLookupCacheTest {
+    private static final long TTL_MILLIS = 60000L;
+    private static final StaticBuffer KEY = BufferUtil.getIntBuffer(1);
+    private static final SliceQuery WIDE = new SliceQuery(BufferUtil.getIntBuffer(0), BufferUtil.getIntBuffer(10));
+    private static final SliceQuery NARROW = new SliceQuery(BufferUtil.getIntBuffer(2), BufferUtil.getIntBuffer(5));
+
+    private final NegativeLookupCache cache = new NegativeLookupCache(16L, TTL_MILLIS, metric -> "NegativeLookupCacheTest." + metric);
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    public void isEmpty_answersContainedSlices() {
+        cache.putEmpty(KEY, WIDE, cache.startRead(KEY));
+        assertTrue(cache.isEmpty(KEY, WIDE));
+        assertTrue(cache.isEmpty(KEY, NARROW));
+    }
+
+    @Test
+    public void isEmpty_doesNotAnswerWiderSlices() {
+        cache.putEmpty(KEY, NARROW, cache.startRead(KEY));
+        assertFalse(cache.isEmpty(KEY, WIDE));
+    }
+
+    @Test
+    public void invalidate_forgetsKey() {
+        cache.putEmpty(KEY, WIDE, cache.startRead(KEY));
+        cache.invalidate(KEY);
+        assertFalse(cache.isEmpty(KEY, WIDE));
+    }
+
+    @Test
+    public void putEmpty_skipsSliceReadDuringWrite() {
+        final long readVersion = cache.startRead(KEY);
+        cache.invalidate(KEY);
+        cache.putEmpty(KEY, WIDE, readVersion);
+        assertFalse(cache.isEmpty(KEY, WIDE));
+    }
+}
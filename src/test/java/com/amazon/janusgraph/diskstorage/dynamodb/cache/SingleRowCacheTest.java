@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.janusgraph.diskstorage.util.StaticArrayEntryList;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class SingleRowCacheTest {
+    private static final long STALENESS_MILLIS = 60000L;
+    private static final StaticBuffer KEY = BufferUtil.getIntBuffer(1);
+    private static final EntryList ROW = StaticArrayEntryList.of(StaticArrayEntry.of(BufferUtil.getIntBuffer(2), BufferUtil.getIntBuffer(3)));
+    private static final EntryList UPDATED_ROW = StaticArrayEntryList.of(StaticArrayEntry.of(BufferUtil.getIntBuffer(2), BufferUtil.getIntBuffer(4)));
+
+    private final SingleRowCache cache = new SingleRowCache(1024L, STALENESS_MILLIS, metric -> "SingleRowCacheTest." + metric);
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    public void putAfterRead_cachesRowReadWithoutConcurrentWrite() {
+        assertNull(cache.getIfPresent(KEY));
+        cache.putAfterRead(KEY, ROW, cache.startRead(KEY));
+        assertEquals(ROW, cache.getIfPresent(KEY));
+    }
+
+    @Test
+    public void putAfterRead_skipsRowReadDuringWrite() {
+        final long readVersion = cache.startRead(KEY);
+        final long writeVersion = cache.startWrite(KEY);
+        cache.putAfterRead(KEY, ROW, readVersion);
+        assertNull(cache.getIfPresent(KEY));
+        cache.completeWrite(KEY, UPDATED_ROW, writeVersion);
+        assertEquals(UPDATED_ROW, cache.getIfPresent(KEY));
+    }
+
+    @Test
+    public void completeWrite_invalidatesRowOfOverlappingWrites() {
+        final long firstWrite = cache.startWrite(KEY);
+        final long secondWrite = cache.startWrite(KEY);
+        cache.completeWrite(KEY, UPDATED_ROW, secondWrite);
+        cache.completeWrite(KEY, ROW, firstWrite);
+        assertNull(cache.getIfPresent(KEY));
+    }
+
+    @Test
+    public void completeWrite_invalidatesRowOfFailedWrite() {
+        cache.putAfterRead(KEY, ROW, cache.startRead(KEY));
+        cache.completeWrite(KEY, null, cache.startWrite(KEY));
+        assertNull(cache.getIfPresent(KEY));
+    }
+
+    @Test
+    public void putAfterRead_admitsOnlyFrequentRowsWhenFull() {
+        final SingleRowCache small = new SingleRowCache(ROW.getByteSize() + KEY.length(), STALENESS_MILLIS, metric -> "SingleRowCacheTest.small." + metric);
+        try {
+            small.putAfterRead(KEY, ROW, small.startRead(KEY));
+            final StaticBuffer other = BufferUtil.getIntBuffer(5);
+            assertNull(small.getIfPresent(other));
+            small.putAfterRead(other, ROW, small.startRead(other));
+            assertEquals(ROW, small.getIfPresent(KEY));
+
+            assertNull(small.getIfPresent(other));
+            small.putAfterRead(other, ROW, small.startRead(other));
+            assertEquals(ROW, small.getIfPresent(other));
+        } finally {
+            small.close();
+        }
+    }
+}
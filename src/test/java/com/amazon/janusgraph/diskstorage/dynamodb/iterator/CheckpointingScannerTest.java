@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class CheckpointingScannerTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * @return a scanner of two pages of one item each
+     */
+    private static Scanner createScanner() {
+        final ScanResult first = new ScanResult().withItems(Collections.emptyList()).withCount(1)
+            .withLastEvaluatedKey(Collections.singletonMap(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue().withS("first")));
+        final ScanResult last = new ScanResult().withItems(Collections.emptyList()).withCount(1);
+        final Scanner scanner = mock(Scanner.class);
+        when(scanner.hasNext()).thenReturn(true, true, false);
+        when(scanner.next()).thenReturn(new ScanContext(new ScanRequest("table"), first), new ScanContext(new ScanRequest("table"), last));
+        return scanner;
+    }
+
+    private static ScanCheckpoint createCheckpoint() {
+        return new ScanCheckpoint("table", "" /*filter*/, "" /*slice*/, false /*parallel*/, 1 /*totalSegments*/);
+    }
+
+    @Test
+    public void close_beforeTheEnd_doesNotSaveTheCheckpoint() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("checkpoint");
+        final CheckpointingScanner scanner = new CheckpointingScanner(createScanner(), createCheckpoint(), file, Long.MAX_VALUE);
+
+        scanner.next();
+        scanner.next();
+        scanner.close();
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void next_afterTheInterval_savesThePagesConsumed() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("checkpoint");
+        final CheckpointingScanner scanner = new CheckpointingScanner(createScanner(), createCheckpoint(), file, 0L /*intervalMillis*/);
+
+        assertTrue(scanner.hasNext());
+        scanner.next();
+        assertTrue(scanner.hasNext());
+        scanner.next();
+
+        assertEquals(1, ScanCheckpoint.load(file).get().getTotalItemsEmitted());
+        assertFalse(scanner.hasNext());
+        assertFalse(Files.exists(file));
+    }
+}
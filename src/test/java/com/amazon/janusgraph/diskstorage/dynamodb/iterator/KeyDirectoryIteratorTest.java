@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.EntryList;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.RecordIterator;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.janusgraph.diskstorage.util.StaticArrayEntryList;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class KeyDirectoryIteratorTest {
+    private static final SliceQuery ALL_COLUMNS = new SliceQuery(BufferUtil.zeroBuffer(1), BufferUtil.oneBuffer(4));
+
+    private static RecordIterator<Entry> bucket(final int... keys) {
+        final List<Entry> entries = new ArrayList<>();
+        for (int key : keys) {
+            entries.add(StaticArrayEntry.of(BufferUtil.getIntBuffer(key), BufferUtil.emptyBuffer()));
+        }
+        return new StaticRecordIterator(entries);
+    }
+
+    @Test
+    public void iterate_mergesBucketsInKeyOrderAndSkipsKeysWithoutColumns() throws BackendException {
+        final EntryList columns = StaticArrayEntryList.of(StaticArrayEntry.of(BufferUtil.getIntBuffer(0), BufferUtil.getIntBuffer(1)));
+        final KeyColumnValueStore store = mock(KeyColumnValueStore.class);
+        when(store.getSlice(anyListOf(StaticBuffer.class), any(SliceQuery.class), any(StoreTransaction.class))).thenAnswer(invocation -> {
+            final Map<StaticBuffer, EntryList> slices = new HashMap<>();
+            for (Object key : (List<?>) invocation.getArguments()[0]) {
+                // key 3 is a stale directory entry of a key without columns
+                if (key.equals(BufferUtil.getIntBuffer(3))) {
+                    slices.put((StaticBuffer) key, EntryList.EMPTY_LIST);
+                } else {
+                    slices.put((StaticBuffer) key, columns);
+                }
+            }
+            return slices;
+        });
+
+        final KeyDirectoryIterator iterator = new KeyDirectoryIterator(Arrays.asList(bucket(1, 4, 5), bucket(2, 3, 6)), store, ALL_COLUMNS,
+            mock(StoreTransaction.class), 2 /*batchSize*/);
+        final List<StaticBuffer> keys = new ArrayList<>();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+            assertEquals(columns.get(0), iterator.getEntries().next());
+        }
+        assertEquals(Arrays.asList(BufferUtil.getIntBuffer(1), BufferUtil.getIntBuffer(2), BufferUtil.getIntBuffer(4),
+            BufferUtil.getIntBuffer(5), BufferUtil.getIntBuffer(6)), keys);
+    }
+}
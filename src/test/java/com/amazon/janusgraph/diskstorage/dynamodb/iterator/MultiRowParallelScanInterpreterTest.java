@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.StaticArrayEntry;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
+import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbStore;
+import com.amazon.janusgraph.diskstorage.dynamodb.KeySharding;
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class MultiRowParallelScanInterpreterTest {
+    private static final SliceQuery SLICE = new SliceQuery(BufferUtil.zeroBuffer(1), BufferUtil.oneBuffer(4));
+
+    private static Map<String, AttributeValue> item(final String hashKey, final String rangeKey) {
+        final Map<String, AttributeValue> item = new HashMap<>();
+        item.put(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue(hashKey));
+        item.put(Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue(rangeKey));
+        return item;
+    }
+
+    @Test
+    public void buildRecordIterators_queriesKeysOutsideTheLockAndSkipsEmptyShardedKeys() {
+        final DynamoDbStore store = mock(DynamoDbStore.class);
+        final MultiRowParallelScanInterpreter interpreter = new MultiRowParallelScanInterpreter(store, SLICE);
+        final StaticBuffer emptyKey = BufferUtil.getIntBuffer(2);
+        when(store.buildRecordIterator(any(StaticBuffer.class), any(SliceQuery.class))).thenAnswer(invocation -> {
+            // the queries of sharded keys must not serialize the segments
+            assertFalse(Thread.holdsLock(interpreter));
+            final List<Entry> columns;
+            if (emptyKey.equals(invocation.getArguments()[0])) {
+                columns = Collections.emptyList();
+            } else {
+                columns = Collections.singletonList(StaticArrayEntry.of(BufferUtil.getIntBuffer(0), BufferUtil.emptyBuffer()));
+            }
+            return new StaticRecordIterator(columns);
+        });
+        final ScanResult result = new ScanResult().withItems(Arrays.asList(item("00000001", "00000000"),
+            item("00000002", KeySharding.MARKER_RANGE_KEY), item("00000003", KeySharding.MARKER_RANGE_KEY)));
+
+        final List<SingleKeyRecordIterator> iterators = interpreter.buildRecordIterators(
+            new ScanContext(new ScanRequest().withSegment(0), result));
+
+        assertEquals(2, iterators.size());
+        assertEquals(BufferUtil.getIntBuffer(1), iterators.get(0).getKey());
+        assertEquals(BufferUtil.getIntBuffer(3), iterators.get(1).getKey());
+    }
+}
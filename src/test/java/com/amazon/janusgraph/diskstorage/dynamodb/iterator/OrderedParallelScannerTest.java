@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
+import com.amazon.janusgraph.diskstorage.dynamodb.DynamoDbDelegate;
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class OrderedParallelScannerTest {
+    private static final int TOTAL_SEGMENTS = 3;
+
+    /**
+     * Every segment has two pages. The first page ends at key "first" and the second page is the last one.
+     * @return a delegate that scans the two pages of each segment
+     */
+    private static DynamoDbDelegate createDelegate() {
+        return createDelegate(false /*endless*/);
+    }
+
+    /**
+     * @param endless true if no segment has a last page, so that every page ends at key "first"
+     * @return a delegate that scans the pages of each segment
+     */
+    private static DynamoDbDelegate createDelegate(final boolean endless) {
+        final DynamoDbDelegate delegate = mock(DynamoDbDelegate.class);
+        when(delegate.estimateCapacityUnits(anyString(), anyString())).thenReturn(1);
+        when(delegate.scanPageAsync(any(ScanRequest.class), anyInt())).thenAnswer(invocation -> {
+            final ScanRequest request = (ScanRequest) invocation.getArguments()[0];
+            final ScanResult result = new ScanResult().withItems(Collections.emptyList());
+            if (endless || request.getExclusiveStartKey() == null) {
+                result.setLastEvaluatedKey(Collections.singletonMap(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue().withS("first")));
+            }
+            return CompletableFuture.completedFuture(result);
+        });
+        return delegate;
+    }
+
+    private static List<Integer> scanSegmentOrder(final OrderedParallelScanner scanner) {
+        final List<Integer> segments = new ArrayList<>();
+        while (scanner.hasNext()) {
+            segments.add(scanner.next().getScanRequest().getSegment());
+        }
+        return segments;
+    }
+
+    @Test
+    public void scan_returnsPagesInSegmentOrder() {
+        final OrderedParallelScanner scanner = new OrderedParallelScanner(createDelegate(), new ScanRequest("table"), TOTAL_SEGMENTS,
+            2 /*readAheadSegments*/, Optional.empty());
+        assertEquals(Arrays.asList(0, 0, 1, 1, 2, 2), scanSegmentOrder(scanner));
+        assertFalse(scanner.hasNext());
+    }
+
+    @Test
+    public void scan_readsAheadABoundedNumberOfPagesOfEverySegmentInTheWindow() {
+        final DynamoDbDelegate delegate = createDelegate(true /*endless*/);
+        final OrderedParallelScanner scanner = new OrderedParallelScanner(delegate, new ScanRequest("table"), TOTAL_SEGMENTS,
+            2 /*readAheadSegments*/, Optional.empty());
+        verify(delegate, times(2 * OrderedParallelScanner.SEGMENT_BUFFERED_PAGES)).scanPageAsync(any(ScanRequest.class), anyInt());
+
+        assertEquals(0, scanner.next().getScanRequest().getSegment().intValue());
+        // consuming a page of the head segment makes room for one more page of it, and only of it
+        verify(delegate, times(2 * OrderedParallelScanner.SEGMENT_BUFFERED_PAGES + 1)).scanPageAsync(any(ScanRequest.class), anyInt());
+    }
+
+    @Test
+    public void scan_whenResumed_skipsFinishedSegmentsAndConsumedPages() {
+        final ScanCheckpoint checkpoint = new ScanCheckpoint("table", "" /*filter*/, "" /*slice*/, true /*parallel*/, TOTAL_SEGMENTS);
+        final Map<String, AttributeValue> firstPageEnd = Collections.singletonMap(Constants.JANUSGRAPH_HASH_KEY, new AttributeValue().withS("first"));
+        checkpoint.pageConsumed(0, firstPageEnd, 1);
+        checkpoint.pageConsumed(0, null, 1);
+        checkpoint.pageConsumed(1, firstPageEnd, 1);
+        final OrderedParallelScanner scanner = new OrderedParallelScanner(createDelegate(), new ScanRequest("table"), TOTAL_SEGMENTS,
+            1 /*readAheadSegments*/, Optional.of(checkpoint));
+        assertEquals(Arrays.asList(1, 2, 2), scanSegmentOrder(scanner));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class ScanCheckpointTest {
+    private static final String TABLE = "jg_edgestore";
+    private static final String FILTER = "rk BETWEEN :s AND :e";
+    private static final String SLICE = "slice[rk:0x00 -> 0xff limit:10]";
+    private static final Map<String, AttributeValue> KEY = ImmutableMap.of(
+        Constants.JANUSGRAPH_HASH_KEY, new AttributeValue().withS("0a0b"),
+        Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue().withS("0c"));
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveAndLoad_roundTripsSegmentProgress() throws IOException {
+        final ScanCheckpoint checkpoint = new ScanCheckpoint(TABLE, FILTER, SLICE, true /*parallel*/, 3 /*totalSegments*/);
+        checkpoint.pageConsumed(0, KEY, 10);
+        checkpoint.pageConsumed(1, null, 5);
+        final Path file = folder.getRoot().toPath().resolve("checkpoint");
+        checkpoint.save(file);
+
+        final ScanCheckpoint loaded = ScanCheckpoint.load(file).get();
+        assertEquals(TABLE, loaded.getTableName());
+        assertEquals(FILTER, loaded.getFilter());
+        assertEquals(SLICE, loaded.getSlice());
+        assertTrue(loaded.isParallel());
+        assertEquals(3, loaded.getTotalSegments());
+        assertEquals(KEY, loaded.getExclusiveStartKey(0));
+        assertEquals(10, loaded.getItemsEmitted(0));
+        assertFalse(loaded.isFinished(0));
+        assertTrue(loaded.isFinished(1));
+        assertNull(loaded.getExclusiveStartKey(2));
+        assertEquals(15, loaded.getTotalItemsEmitted());
+        assertFalse(loaded.isComplete());
+    }
+
+    @Test
+    public void isComplete_whenAllSegmentsFinished_returnsTrue() {
+        final ScanCheckpoint checkpoint = new ScanCheckpoint(TABLE, FILTER, SLICE, false /*parallel*/, 1 /*totalSegments*/);
+        checkpoint.pageConsumed(0, KEY, 1);
+        assertFalse(checkpoint.isComplete());
+        checkpoint.pageConsumed(0, ImmutableMap.of(), 1);
+        assertTrue(checkpoint.isComplete());
+    }
+
+    @Test
+    public void load_whenFileIsMissingOrCorrupt_returnsEmpty() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("checkpoint");
+        assertEquals(Optional.empty(), ScanCheckpoint.load(file));
+        Files.write(file, "total-segments=two".getBytes("UTF-8"));
+        assertEquals(Optional.empty(), ScanCheckpoint.load(file));
+    }
+}
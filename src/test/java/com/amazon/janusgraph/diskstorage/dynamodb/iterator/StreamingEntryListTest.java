@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.Entry;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.diskstorage.dynamodb.Constants;
+import com.amazon.janusgraph.diskstorage.dynamodb.QueryResultWrapper;
+import com.amazon.janusgraph.diskstorage.dynamodb.QueryWorker;
+import com.amazon.janusgraph.diskstorage.dynamodb.builder.AbstractBuilder;
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+
+/**
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class StreamingEntryListTest {
+    private static final SliceQuery SLICE = new SliceQuery(BufferUtil.getIntBuffer(0), BufferUtil.getIntBuffer(4));
+
+    private static QueryResultWrapper page(final int... columns) {
+        final List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int column : columns) {
+            final Map<String, AttributeValue> item = new HashMap<>();
+            item.put(Constants.JANUSGRAPH_RANGE_KEY, new AttributeValue(AbstractBuilder.encodeKeyBuffer(BufferUtil.getIntBuffer(column))));
+            item.put(Constants.JANUSGRAPH_VALUE, new AttributeValue().withB(BufferUtil.getIntBuffer(column).asByteBuffer()));
+            items.add(item);
+        }
+        return new QueryResultWrapper(BufferUtil.getIntBuffer(0), new QueryResult().withItems(items));
+    }
+
+    private static QueryWorker worker() throws BackendException {
+        final QueryWorker worker = mock(QueryWorker.class);
+        when(worker.hasNext()).thenReturn(true, true, true, false);
+        // the second page has no columns, and the end of the slice is exclusive
+        when(worker.next()).thenReturn(page(1, 2), page(), page(3, 4));
+        return worker;
+    }
+
+    @Test
+    public void iterator_queriesOnlyThePagesThatAreConsumed() throws BackendException {
+        final QueryWorker worker = worker();
+        final StreamingEntryList entries = new StreamingEntryList(worker, SLICE);
+
+        final Entry first = entries.iterator().next();
+
+        assertEquals(BufferUtil.getIntBuffer(1), first.getColumn());
+        verify(worker, times(1)).next();
+    }
+
+    @Test
+    public void size_queriesTheRestOfTheSlice() throws BackendException {
+        final QueryWorker worker = worker();
+        final StreamingEntryList entries = new StreamingEntryList(worker, SLICE);
+
+        assertFalse(entries.isEmpty());
+        assertEquals(3, entries.size());
+        final List<Entry> iterated = new ArrayList<>();
+        entries.forEach(iterated::add);
+        assertEquals(BufferUtil.getIntBuffer(3), iterated.get(2).getColumn());
+        verify(worker, times(3)).next();
+    }
+}
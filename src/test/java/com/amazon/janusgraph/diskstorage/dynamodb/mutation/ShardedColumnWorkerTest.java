@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazon.janusgraph.diskstorage.dynamodb.mutation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.janusgraph.diskstorage.locking.PermanentLockingException;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.amazon.janusgraph.testcategory.IsolateRemainingTestsCategory;
+
+/**
+ * Runs the worker against the two copies a column of a sharded key can have, and reads the column the way reads
+ * merge the shards, where the copy in the salted hash key shadows the copy in the unsalted hash key.
+ *
+ * @author Alexander Patrikalakis
+ *
+ */
+@Category({IsolateRemainingTestsCategory.class})
+public class ShardedColumnWorkerTest {
+    private static final String UNSALTED = "0000002a";
+    private static final String SALTED = "0000002a#1";
+
+    private final Map<String, String> copies = new HashMap<>();
+
+    /**
+     * @return a conditional write of a copy, which deletes the copy if the value is null
+     */
+    private MutateWorker mutate(final String hashKey, final String expectedValue, final String value) {
+        return () -> {
+            if (!Objects.equals(expectedValue, copies.get(hashKey))) {
+                throw new PermanentLockingException(hashKey + " does not have the expected value");
+            }
+            if (value == null) {
+                copies.remove(hashKey);
+            } else {
+                copies.put(hashKey, value);
+            }
+            return null;
+        };
+    }
+
+    /**
+     * @return a locked write of the column, or a locked delete if the value is null
+     */
+    private ShardedColumnWorker worker(final String expectedValue, final String value) {
+        return new ShardedColumnWorker(mutate(SALTED, expectedValue, value), mutate(SALTED, null /*expectedValue*/, value),
+            mutate(UNSALTED, expectedValue, null /*value*/), () -> {
+                copies.remove(UNSALTED);
+                return null;
+            }, expectedValue != null);
+    }
+
+    private String read() {
+        if (copies.containsKey(SALTED)) {
+            return copies.get(SALTED);
+        }
+        return copies.get(UNSALTED);
+    }
+
+    @Test
+    public void lockedWrite_checksTheCopyThatShadowsTheCopyBeforeSharding() throws Exception {
+        copies.put(UNSALTED, "a");
+        copies.put(SALTED, "b");
+
+        worker("b", "c").call();
+
+        assertEquals("c", read());
+        assertFalse(copies.containsKey(UNSALTED));
+    }
+
+    @Test(expected = PermanentLockingException.class)
+    public void lockedWrite_failsOnTheShadowedCopy() throws Exception {
+        copies.put(UNSALTED, "a");
+        copies.put(SALTED, "b");
+
+        try {
+            worker("a", "c").call();
+        } finally {
+            assertEquals("b", read());
+        }
+    }
+
+    @Test
+    public void lockedWrite_claimsTheCopyBeforeSharding() throws Exception {
+        copies.put(UNSALTED, "a");
+
+        worker("a", "c").call();
+
+        assertEquals("c", copies.get(SALTED));
+        assertFalse(copies.containsKey(UNSALTED));
+    }
+
+    @Test(expected = PermanentLockingException.class)
+    public void lockedWriteOfAMissingColumn_failsOnTheCopyBeforeSharding() throws Exception {
+        copies.put(UNSALTED, "a");
+
+        try {
+            worker(null /*expectedValue*/, "c").call();
+        } finally {
+            assertEquals("a", read());
+            assertFalse(copies.containsKey(SALTED));
+        }
+    }
+
+    @Test
+    public void lockedDelete_deletesEveryCopy() throws Exception {
+        copies.put(UNSALTED, "a");
+        copies.put(SALTED, "b");
+
+        worker("b", null /*value*/).call();
+
+        assertNull(read());
+        assertFalse(copies.containsKey(UNSALTED));
+    }
+
+    @Test
+    public void lockedDelete_deletesTheCopyBeforeSharding() throws Exception {
+        copies.put(UNSALTED, "a");
+
+        worker("a", null /*value*/).call();
+
+        assertNull(read());
+        assertFalse(copies.containsKey(UNSALTED));
+    }
+}